@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent table of pages indexed by nid, for caches that keep a few atomic slots per nid. Each page covers
+ * {@code 2^pageBits} consecutive nids counted from {@link PrimitiveDataService#FIRST_NID}, and is only allocated
+ * when a slot in its range is first written, so a table over a sparse set of nids stays small.
+ * <p>
+ * The table owns only the paging: the page type, what a slot holds and how it is updated belong to the
+ * caller, typically an {@code AtomicIntegerArray}, {@code AtomicLongArray} or {@code AtomicReferenceArray}.
+ * Lookups read a volatile array without locking. Pages are created, and the table cleared, under the table's
+ * monitor, by publishing a new array, so a reader sees either the old array or the new one.
+ *
+ * @param <P> the page type
+ */
+public final class NidPageTable<P> {
+    private final int pageBits;
+    private final int pageMask;
+    private final IntFunction<P[]> arrayFactory;
+    private final Supplier<P> pageFactory;
+    private volatile P[] pages;
+
+    /**
+     * @param pageBits     log2 of the number of nids per page
+     * @param arrayFactory creates the array holding the pages, for example {@code AtomicIntegerArray[]::new}
+     * @param pageFactory  creates an empty page; called under the table's monitor, and may return null to
+     *                     refuse the allocation, for example once the owner is closed or over budget
+     */
+    public NidPageTable(int pageBits, IntFunction<P[]> arrayFactory, Supplier<P> pageFactory) {
+        this.pageBits = pageBits;
+        this.pageMask = (1 << pageBits) - 1;
+        this.arrayFactory = arrayFactory;
+        this.pageFactory = pageFactory;
+        this.pages = arrayFactory.apply(16);
+    }
+
+    /**
+     * @return the position of the nid's slot within its page
+     */
+    public int slot(int nid) {
+        return (nid - PrimitiveDataService.FIRST_NID) & pageMask;
+    }
+
+    /**
+     * @return the page holding the nid, or null if it has not been allocated
+     */
+    public P page(int nid) {
+        int pageIndex = (nid - PrimitiveDataService.FIRST_NID) >>> pageBits;
+        P[] currentPages = pages;
+        return pageIndex < currentPages.length ? currentPages[pageIndex] : null;
+    }
+
+    /**
+     * @return the page holding the nid, allocated if needed, or null if the page factory refused it
+     */
+    public P pageOrCreate(int nid) {
+        P page = page(nid);
+        return page != null ? page : createPage((nid - PrimitiveDataService.FIRST_NID) >>> pageBits);
+    }
+
+    /**
+     * Drops every page, keeping the capacity of the page array.
+     */
+    public synchronized void clear() {
+        pages = arrayFactory.apply(pages.length);
+    }
+
+    /**
+     * Drops every page and the page array itself, for an owner that is being closed.
+     */
+    public synchronized void release() {
+        pages = arrayFactory.apply(0);
+    }
+
+    private synchronized P createPage(int pageIndex) {
+        P[] currentPages = pages;
+        if (pageIndex < currentPages.length && currentPages[pageIndex] != null) {
+            return currentPages[pageIndex];
+        }
+        P page = pageFactory.get();
+        if (page == null) {
+            return null;
+        }
+        P[] updated = arrayFactory.apply(Math.max(pageIndex + 1,
+                pageIndex < currentPages.length ? currentPages.length : currentPages.length * 2));
+        System.arraycopy(currentPages, 0, updated, 0, currentPages.length);
+        updated[pageIndex] = page;
+        pages = updated;
+        return page;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+/**
+ * Point-in-time statistics of one cache, as reported by {@link CachingService#statistics()}.
+ *
+ * @param name          the cache name, unique within its service
+ * @param hitCount      lookups served from the cache
+ * @param missCount     lookups that had to load the value
+ * @param evictionCount entries removed to stay within the maximum
+ * @param estimatedSize approximate number of entries
+ * @param weightedSize  total weight of the entries, in the unit of {@code maximumWeight}
+ * @param maximumWeight the bound on {@code weightedSize}, or {@link Long#MAX_VALUE} if the cache is unbounded
+ */
+public record CacheStatistics(String name, long hitCount, long missCount, long evictionCount,
+                              long estimatedSize, long weightedSize, long maximumWeight) {
+
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
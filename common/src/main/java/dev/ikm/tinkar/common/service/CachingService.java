@@ -18,6 +18,8 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ServiceLoader;
 
 /**
@@ -35,5 +37,22 @@ static void clearAll() {
         });
     }
 
+    /**
+     * @return statistics of every cache of every caching service that reports them
+     */
+    static List<CacheStatistics> allStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        PluggableService.load(CachingService.class).forEach(cachingService ->
+                statistics.addAll(cachingService.statistics()));
+        return statistics;
+    }
+
     void reset();
+
+    /**
+     * @return statistics of the caches this service manages, empty if it does not report any
+     */
+    default List<CacheStatistics> statistics() {
+        return List.of();
+    }
 }
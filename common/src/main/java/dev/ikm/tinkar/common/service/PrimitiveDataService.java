@@ -40,6 +40,7 @@
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
@@ -347,6 +348,42 @@ static long[] mergeCitations(long[] citation1, long[] citation2) {
 
     long writeSequence();
 
+    /**
+     * Visits each nid written after the given write sequence, once per nid, for providers that keep a
+     * persisted modification log.
+     *
+     * @param sinceWriteSequence exclusive lower bound, as previously returned by {@link #writeSequence()}
+     *                           or {@link #writeSequenceAt(long)}
+     * @param procedure          receives each modified nid
+     * @return false if this provider does not keep a modification log, or its log has been truncated past
+     * sinceWriteSequence, in which case the procedure is not called
+     */
+    default boolean forEachNidModifiedSince(long sinceWriteSequence, IntProcedure procedure) {
+        return false;
+    }
+
+    /**
+     * Discards modification log records at or before the given write sequence, for providers that keep a
+     * persisted modification log. Call once every consumer has exported past that sequence; afterward
+     * {@link #forEachNidModifiedSince(long, IntProcedure)} returns false for earlier sequences.
+     *
+     * @param writeSequence the last write sequence that no longer needs to be reported
+     */
+    default void truncateModificationsThrough(long writeSequence) {
+    }
+
+    /**
+     * Translates a wall clock time into a write sequence suitable for {@link #forEachNidModifiedSince(long, IntProcedure)}.
+     * The result is conservative: nids written shortly before the time may be included, but none written after
+     * are omitted.
+     *
+     * @param epochMillis time of the previous synchronization
+     * @return the write sequence, or empty if this provider does not keep a modification log
+     */
+    default OptionalLong writeSequenceAt(long epochMillis) {
+        return OptionalLong.empty();
+    }
+
     void close();
 
     default int nidForPublicId(PublicId publicId) {
@@ -369,6 +406,18 @@ default int nidForPublicId(PublicId publicId) {
 
     byte[] getBytes(int nid);
 
+    /**
+     * Reads the bytes of many entities at once; {@code result[i]} holds the bytes for {@code nids[i]}, or null
+     * if there is no such entity. Providers may reorder the reads to follow their storage layout.
+     */
+    default byte[][] getBytes(int[] nids) {
+        byte[][] bytes = new byte[nids.length][];
+        for (int i = 0; i < nids.length; i++) {
+            bytes[i] = getBytes(nids[i]);
+        }
+        return bytes;
+    }
+
     /**
      * If the specified nid (native identifier -- an int) is not already associated
      * with a value or is associated with null, associates it with the given non-null value.
@@ -412,10 +461,20 @@ default byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
      * @param sourceObject Object that is the source of the bytes to merge.
      * @param activity The data activity performed, classifying the type of database (and therefore change set) write.
      * @return The new value associated with the specified nid, or null if no
-     *         value is associated with the nid.
+     *         value is associated with the nid. When the merge adds nothing to {@code value}, as for a new nid,
+     *         implementations should return {@code value} itself, so callers can tell with
+     *         {@link #mergeUnchanged(byte[], byte[])} that the bytes need not be decoded again.
      */
     byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity);
 
+    /**
+     * @return true if the result of {@link #merge(int, int, int, byte[], Object, DataActivity)} holds exactly
+     * the bytes that were merged, so that the source object already represents the stored entity
+     */
+    static boolean mergeUnchanged(byte[] value, byte[] mergedBytes) {
+        return mergedBytes == value || Arrays.equals(mergedBytes, value);
+    }
+
     PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception;
 
     CompletableFuture<Void> recreateLuceneIndex() throws Exception;
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.eclipse.collections.api.list.primitive.IntList;
+
+/**
+ * A subscriber to a {@link CoalescingBroadcaster} that accepts each coalesced batch at once, rather
+ * than one item at a time.
+ */
+public interface BatchSubscriber extends Subscriber<Integer> {
+
+    /**
+     * @param items the distinct items dispatched since the previous batch, in first-dispatched order; a batch
+     *              that includes {@link CoalescingBroadcaster#EVERY_ITEM} contains only that item
+     * @param generation the write generation of the broadcaster that this batch brings the subscriber up to
+     */
+    default void onNextBatch(IntList items, long generation) {
+        items.forEach(this::onNext);
+    }
+}
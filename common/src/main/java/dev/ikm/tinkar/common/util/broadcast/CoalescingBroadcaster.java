@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A broadcaster that takes delivery off the dispatching thread. Dispatched items are appended to a
+ * lock-free queue, and each dispatch advances the write generation. A single delivery task on the
+ * {@link TinkExecutor#threadPool()} drains the queue, drops duplicates, and hands the batch to each
+ * subscriber, either whole to a {@link BatchSubscriber} or one item at a time to any other subscriber.
+ * <p>
+ * Delivery is asynchronous, so a subscriber that serves derived values compares the generation of the last
+ * batch it received with {@link #writeGeneration()}, and calls {@link #deliverPending()} when it is behind,
+ * which delivers outstanding batches on the calling thread.
+ */
+public class CoalescingBroadcaster extends SimpleBroadcaster<Integer> {
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingBroadcaster.class);
+
+    /**
+     * The item that denotes every item; a batch that includes it is delivered as that item alone.
+     */
+    public static final int EVERY_ITEM = Integer.MIN_VALUE;
+
+    private final ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    private volatile long deliveredGeneration;
+    private final Executor deliveryExecutor;
+
+    public CoalescingBroadcaster() {
+        this(task -> TinkExecutor.threadPool().execute(task));
+    }
+
+    /**
+     * @param deliveryExecutor runs the delivery task; tests pass one they control
+     */
+    CoalescingBroadcaster(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    @Override
+    public void dispatch(Integer item) {
+        pending.add(item);
+        writeGeneration.incrementAndGet();
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            try {
+                deliveryExecutor.execute(this::scheduledDelivery);
+            } catch (RejectedExecutionException | ServiceConfigurationError e) {
+                // No executor to deliver on, so deliver on the dispatching thread.
+                deliveryScheduled.set(false);
+                deliverPending();
+            }
+        }
+    }
+
+    /**
+     * @return the number of items dispatched so far
+     */
+    public long writeGeneration() {
+        return writeGeneration.get();
+    }
+
+    /**
+     * @return the write generation that every subscriber has been brought up to
+     */
+    public long deliveredGeneration() {
+        return deliveredGeneration;
+    }
+
+    /**
+     * Delivers, on the calling thread, every item dispatched before this call that has not yet been
+     * delivered. Returns immediately when nothing is outstanding, or when called by a subscriber
+     * during delivery.
+     */
+    public void deliverPending() {
+        if (deliveredGeneration >= writeGeneration.get() || deliveryLock.isHeldByCurrentThread()) {
+            return;
+        }
+        deliveryLock.lock();
+        try {
+            deliver();
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    private void scheduledDelivery() {
+        deliveryScheduled.set(false);
+        deliveryLock.lock();
+        try {
+            deliver();
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Every item counted by the generation read here was queued before it was counted, so draining the
+     * queue afterwards delivers at least everything up to that generation.
+     */
+    private void deliver() {
+        long generation = writeGeneration.get();
+        if (generation <= deliveredGeneration) {
+            return;
+        }
+        MutableIntList drained = IntLists.mutable.empty();
+        boolean everyItem = false;
+        for (Integer item = pending.poll(); item != null; item = pending.poll()) {
+            if (item == EVERY_ITEM) {
+                everyItem = true;
+            } else if (!everyItem) {
+                drained.add(item);
+            }
+        }
+        IntList batch = everyItem ? IntLists.immutable.of(EVERY_ITEM) : drained.distinct().toImmutable();
+        if (batch.notEmpty()) {
+            for (WeakReference<Subscriber<Integer>> subscriberWeakReference : subscriberWeakReferenceList) {
+                try {
+                    Subscriber<Integer> subscriber = subscriberWeakReference.get();
+                    if (subscriber == null) {
+                        subscriberWeakReferenceList.remove(subscriberWeakReference);
+                    } else if (subscriber instanceof BatchSubscriber batchSubscriber) {
+                        batchSubscriber.onNextBatch(batch, generation);
+                    } else {
+                        batch.forEach(subscriber::onNext);
+                    }
+                } catch (Throwable t) {
+                    LOG.error(t.getMessage(), t);
+                    subscriberWeakReferenceList.remove(subscriberWeakReference);
+                }
+            }
+        }
+        deliveredGeneration = generation;
+    }
+}
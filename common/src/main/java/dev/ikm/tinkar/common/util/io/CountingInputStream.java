@@ -37,6 +37,27 @@ public int read() throws IOException {
         return result ;
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = stream.read(b, off, len);
+        if (result > 0) {
+            bytesRead += result;
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = stream.skip(n);
+        bytesRead += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return stream.available();
+    }
+
     @Override
     public void close() throws IOException {
         super.close();
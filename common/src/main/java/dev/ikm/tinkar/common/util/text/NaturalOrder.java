@@ -114,6 +114,50 @@ public static final int compareStrings(String s1, String s2) {
       // No digits
       return (Character.toLowerCase(c1) - Character.toLowerCase(c2));
    }
+   /**
+    * First char of the marker that precedes each run of digits in a sort key, offset by the length of the run.
+    * It is above the letters of common scripts, so that digits sort after letters as in compareStrings.
+    */
+   private static final char DIGIT_RUN_MARKER = '\uE000';
+   private static final int MAX_DIGIT_RUN_LENGTH = 0x17FF;
+
+   /**
+    * Computes a key for the string such that comparing keys with {@link String#compareTo(String)} orders
+    * strings as {@link #compareStrings(String, String)} does, so that a list can be sorted by char comparison
+    * of keys computed once per string. Letters are lower cased, '.' sorts before ' ', and each run of digits
+    * is preceded by a marker encoding its length, so that a longer number sorts after a shorter one.
+    * <p>
+    * The key order is a total order of its own. compareStrings is not transitive where '.' meets the
+    * punctuation that lies between ' ' and '.' in char order ('!' through '-'): it puts '.' before ' ', ' '
+    * before '!', and '!' before '.'. No key can agree with all three, so the key places '.' just below ' ',
+    * and thus before that punctuation too: "a.b" sorts before "a-b", and "x." before "x!". Elsewhere the
+    * key agrees with compareStrings.
+    *
+    * @param string the string to compute a key for
+    * @return the sort key
+    */
+   public static String sortKey(String string) {
+      int length = string.length();
+      StringBuilder key = new StringBuilder(length + 4);
+      int i = 0;
+      while (i < length) {
+         char c = string.charAt(i);
+         if (Character.isDigit(c)) {
+            int runEnd = i + 1;
+            while (runEnd < length && Character.isDigit(string.charAt(runEnd))) {
+               runEnd++;
+            }
+            key.append((char) (DIGIT_RUN_MARKER + Math.min(runEnd - i, MAX_DIGIT_RUN_LENGTH)));
+            key.append(string, i, runEnd);
+            i = runEnd;
+         } else {
+            key.append(c == '.' ? (char) (' ' - 1) : Character.toLowerCase(c));
+            i++;
+         }
+      }
+      return key.toString();
+   }
+
    @Override
    public int compare(Object o1, Object o2) {
       return compareStrings(o1.toString(), o2.toString());
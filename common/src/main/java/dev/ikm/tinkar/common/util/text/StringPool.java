@@ -0,0 +1,315 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.text;
+
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Pool of deduplicated strings, keyed by a hash of their UTF-8 content. Decoding the same text twice, for
+ * example when an evicted entity is read again while a label cache still holds its description, returns
+ * the same {@link String} instance instead of a copy.
+ * <p>
+ * The content of each pooled string is kept off-heap as UTF-8 bytes and identified by an int handle. The
+ * canonical {@code String} for a handle is only weakly held: once no entity or cache refers to it, it is
+ * collected, and decoded again from the off-heap bytes the next time the same text is seen. The heap cost of
+ * a pooled string that is not in use is a few table slots.
+ * <p>
+ * The pool is split into independently locked segments so that parallel decoding rarely contends. Content
+ * longer than a {@value #CHUNK_SIZE} byte chunk is not pooled. The pool is disabled by default; enable it
+ * with {@link StringPoolKeys#ENABLED}.
+ */
+public final class StringPool {
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    /**
+     * Handles hold the segment in their high bits, leaving the sign bit clear.
+     */
+    private static final int LOCAL_BITS = 31 - SEGMENT_BITS;
+    private static final int LOCAL_MASK = (1 << LOCAL_BITS) - 1;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final long DEFAULT_MAX_OFF_HEAP_BYTES = 1L << 30;
+
+    private static volatile Optional<StringPool> shared;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final long maxOffHeapBytes;
+    private final AtomicLong offHeapBytes = new AtomicLong();
+
+    public StringPool(long maxOffHeapBytes) {
+        this.maxOffHeapBytes = maxOffHeapBytes;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @return the pool shared by entity decoding, if enabled by {@link StringPoolKeys#ENABLED}
+     */
+    public static Optional<StringPool> shared() {
+        Optional<StringPool> pool = shared;
+        if (pool == null) {
+            synchronized (StringPool.class) {
+                pool = shared;
+                if (pool == null) {
+                    pool = ServiceProperties.get(StringPoolKeys.ENABLED, Boolean.FALSE) ?
+                            Optional.of(new StringPool(ServiceProperties.get(StringPoolKeys.MAX_OFF_HEAP_BYTES,
+                                    DEFAULT_MAX_OFF_HEAP_BYTES))) : Optional.empty();
+                    shared = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Decodes UTF-8 bytes, through the shared pool when it is enabled.
+     */
+    public static String decode(byte[] utf8) {
+        Optional<StringPool> pool = shared();
+        if (pool.isPresent()) {
+            return pool.get().intern(utf8, 0, utf8.length);
+        }
+        return new String(utf8, UTF_8);
+    }
+
+    /**
+     * @return the canonical string with the given UTF-8 content
+     */
+    public String intern(byte[] utf8, int offset, int length) {
+        int handle = handle(utf8, offset, length);
+        if (handle < 0) {
+            return new String(utf8, offset, length, UTF_8);
+        }
+        return string(handle);
+    }
+
+    public String intern(String string) {
+        byte[] utf8 = string.getBytes(UTF_8);
+        int handle = handle(utf8, 0, utf8.length);
+        if (handle < 0) {
+            return string;
+        }
+        return segments[handle >>> LOCAL_BITS].string(handle & LOCAL_MASK, string);
+    }
+
+    /**
+     * @return the handle of the given UTF-8 content, adding it to the pool if absent, or -1 if the content
+     * cannot be pooled because the off-heap budget is spent
+     */
+    public int handle(byte[] utf8, int offset, int length) {
+        int hash = hash(utf8, offset, length);
+        int segmentIndex = hash >>> (32 - SEGMENT_BITS);
+        int local = segments[segmentIndex].handle(hash, utf8, offset, length);
+        return local < 0 ? -1 : (segmentIndex << LOCAL_BITS) | local;
+    }
+
+    /**
+     * @return the canonical string for a handle returned by this pool
+     */
+    public String string(int handle) {
+        return segments[handle >>> LOCAL_BITS].string(handle & LOCAL_MASK, null);
+    }
+
+    /**
+     * @return the number of distinct strings pooled
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public long offHeapBytes() {
+        return offHeapBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{" + size() + " strings, " + offHeapBytes() + "/" + maxOffHeapBytes + " off-heap bytes}";
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = length;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the bits, since the segment is chosen from the high bits and the slot from the low bits.
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private final class Segment {
+        /**
+         * Open addressing table of local handles plus one, zero marking an empty slot.
+         */
+        private int[] table = new int[64];
+        private int[] hashes = new int[32];
+        /**
+         * Chunk index in the high word and offset in the low word of each string's length-prefixed bytes.
+         */
+        private long[] locations = new long[32];
+        private CanonicalString[] strings = new CanonicalString[32];
+        private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+        private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+        private int chunkTail = CHUNK_SIZE;
+        private int size;
+
+        synchronized int handle(int hash, byte[] utf8, int offset, int length) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+                if (hashes[entry - 1] == hash && matches(entry - 1, utf8, offset, length)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == LOCAL_MASK || !reserve(length)) {
+                return -1;
+            }
+            ByteBuffer chunk = chunks.get(chunks.size() - 1);
+            chunk.putInt(chunkTail, length);
+            chunk.put(chunkTail + Integer.BYTES, utf8, offset, length);
+            int local = size++;
+            if (local == hashes.length) {
+                hashes = Arrays.copyOf(hashes, local * 2);
+                locations = Arrays.copyOf(locations, local * 2);
+                strings = Arrays.copyOf(strings, local * 2);
+            }
+            hashes[local] = hash;
+            locations[local] = ((long) (chunks.size() - 1) << 32) | chunkTail;
+            chunkTail += Integer.BYTES + length;
+            table[slot] = local + 1;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return local;
+        }
+
+        /**
+         * @param candidate a string with the handle's content to make canonical if there is none, or null
+         */
+        synchronized String string(int local, String candidate) {
+            expungeCollected();
+            CanonicalString reference = strings[local];
+            String string = reference == null ? null : reference.get();
+            if (string == null) {
+                if (candidate == null) {
+                    ByteBuffer chunk = chunks.get((int) (locations[local] >>> 32));
+                    int position = (int) locations[local];
+                    byte[] utf8 = new byte[chunk.getInt(position)];
+                    chunk.get(position + Integer.BYTES, utf8);
+                    candidate = new String(utf8, UTF_8);
+                }
+                string = candidate;
+                strings[local] = new CanonicalString(string, local, collected);
+            }
+            return string;
+        }
+
+        private boolean matches(int local, byte[] utf8, int offset, int length) {
+            ByteBuffer chunk = chunks.get((int) (locations[local] >>> 32));
+            int position = (int) locations[local];
+            if (chunk.getInt(position) != length) {
+                return false;
+            }
+            position += Integer.BYTES;
+            for (int i = 0; i < length; i++) {
+                if (chunk.get(position + i) != utf8[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Makes room for a string in the current chunk, allocating a new chunk within the budget if needed.
+         */
+        private boolean reserve(int length) {
+            int required = Integer.BYTES + length;
+            if (chunkTail + required <= CHUNK_SIZE) {
+                return true;
+            }
+            if (required > CHUNK_SIZE || offHeapBytes.addAndGet(CHUNK_SIZE) > maxOffHeapBytes) {
+                if (required <= CHUNK_SIZE) {
+                    offHeapBytes.addAndGet(-CHUNK_SIZE);
+                }
+                return false;
+            }
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            chunkTail = 0;
+            return true;
+        }
+
+        private void rehash() {
+            int[] rehashed = new int[table.length * 2];
+            int mask = rehashed.length - 1;
+            for (int local = 0; local < size; local++) {
+                int slot = hashes[local] & mask;
+                while (rehashed[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rehashed[slot] = local + 1;
+            }
+            table = rehashed;
+        }
+
+        private void expungeCollected() {
+            for (Object reference = collected.poll(); reference != null; reference = collected.poll()) {
+                CanonicalString canonical = (CanonicalString) reference;
+                if (strings[canonical.local] == canonical) {
+                    strings[canonical.local] = null;
+                }
+            }
+        }
+    }
+
+    private static final class CanonicalString extends WeakReference<String> {
+        private final int local;
+
+        CanonicalString(String string, int local, ReferenceQueue<String> queue) {
+            super(string, queue);
+            this.local = local;
+        }
+    }
+
+    public static class CacheProvider implements CachingService {
+        @Override
+        public void reset() {
+            synchronized (StringPool.class) {
+                shared = null;
+            }
+        }
+    }
+}
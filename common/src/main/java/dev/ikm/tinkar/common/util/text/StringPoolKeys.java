@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.text;
+
+/**
+ * {@link dev.ikm.tinkar.common.service.ServiceProperties} keys that configure the shared {@link StringPool}.
+ * Values are read when the pool is first used after a cache reset.
+ */
+public enum StringPoolKeys {
+    /**
+     * Boolean: whether decoded string fields are deduplicated through the shared pool. Defaults to false.
+     */
+    ENABLED,
+    /**
+     * Long: off-heap bytes the pool may allocate for UTF-8 content. Once spent, new strings are decoded
+     * without pooling, while strings already pooled are still shared. Defaults to 1 GiB.
+     */
+    MAX_OFF_HEAP_BYTES
+}
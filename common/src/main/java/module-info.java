@@ -30,6 +30,7 @@
 import dev.ikm.tinkar.common.service.PublicIdService;
 import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.text.StringPool;
 
 @SuppressWarnings("module")
         // 7 in HL7 is not a version reference
@@ -70,7 +71,8 @@
             TinkExecutor.CacheProvider,
             ServiceProperties.CacheProvider,
             PrimitiveData.CacheProvider,
-            PrimitiveDataService.CacheProvider;
+            PrimitiveDataService.CacheProvider,
+            StringPool.CacheProvider;
 
     uses AlertReportingService;
     uses CachingService;
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoalescingBroadcasterTest {
+
+    /**
+     * Holds delivery tasks until the test runs them.
+     */
+    private static class HeldExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        synchronized void runAll() {
+            List<Runnable> toRun = new ArrayList<>(tasks);
+            tasks.clear();
+            toRun.forEach(Runnable::run);
+        }
+    }
+
+    private record Batch(List<Integer> items, long generation, Thread thread) {
+    }
+
+    private static class RecordingSubscriber implements BatchSubscriber {
+        final List<Batch> batches = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onNextBatch(IntList items, long generation) {
+            List<Integer> copy = new ArrayList<>();
+            items.forEach(copy::add);
+            batches.add(new Batch(copy, generation, Thread.currentThread()));
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            throw new UnsupportedOperationException("Batches are delivered whole");
+        }
+    }
+
+    @Test
+    public void duplicatesCoalesceIntoOneBatch() {
+        HeldExecutor executor = new HeldExecutor();
+        CoalescingBroadcaster broadcaster = new CoalescingBroadcaster(executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+
+        for (int item : new int[]{1, 2, 1, 3, 2}) {
+            broadcaster.dispatch(item);
+        }
+        assertEquals(1, executor.tasks.size(), "one delivery task for the burst");
+        assertTrue(subscriber.batches.isEmpty());
+        assertEquals(5, broadcaster.writeGeneration());
+        assertEquals(0, broadcaster.deliveredGeneration());
+
+        executor.runAll();
+        assertEquals(1, subscriber.batches.size());
+        assertEquals(List.of(1, 2, 3), subscriber.batches.get(0).items());
+        assertEquals(5, subscriber.batches.get(0).generation());
+        assertEquals(5, broadcaster.deliveredGeneration());
+    }
+
+    @Test
+    public void everyItemCollapsesTheBatch() {
+        HeldExecutor executor = new HeldExecutor();
+        CoalescingBroadcaster broadcaster = new CoalescingBroadcaster(executor);
+        RecordingSubscriber batchSubscriber = new RecordingSubscriber();
+        List<Integer> items = new CopyOnWriteArrayList<>();
+        Subscriber<Integer> itemSubscriber = items::add;
+        broadcaster.addSubscriberWithWeakReference(batchSubscriber);
+        broadcaster.addSubscriberWithWeakReference(itemSubscriber);
+
+        broadcaster.dispatch(1);
+        broadcaster.dispatch(CoalescingBroadcaster.EVERY_ITEM);
+        broadcaster.dispatch(2);
+        broadcaster.dispatch(CoalescingBroadcaster.EVERY_ITEM);
+        executor.runAll();
+
+        assertEquals(1, batchSubscriber.batches.size());
+        assertEquals(List.of(CoalescingBroadcaster.EVERY_ITEM), batchSubscriber.batches.get(0).items());
+        assertEquals(List.of(CoalescingBroadcaster.EVERY_ITEM), items);
+    }
+
+    @Test
+    public void readerDeliversPendingOnItsOwnThread() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        CoalescingBroadcaster broadcaster = new CoalescingBroadcaster(executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(7);
+        broadcaster.dispatch(8);
+
+        Thread reader = new Thread(broadcaster::deliverPending, "reader");
+        reader.start();
+        reader.join();
+
+        assertEquals(1, subscriber.batches.size());
+        assertEquals(List.of(7, 8), subscriber.batches.get(0).items());
+        assertSame(reader, subscriber.batches.get(0).thread());
+        assertEquals(broadcaster.writeGeneration(), broadcaster.deliveredGeneration());
+
+        // The scheduled task finds nothing left to deliver.
+        executor.runAll();
+        assertEquals(1, subscriber.batches.size());
+
+        // Nothing outstanding, so a reader returns without delivering.
+        broadcaster.deliverPending();
+        assertEquals(1, subscriber.batches.size());
+    }
+
+    @Test
+    public void subscriberCallingDeliverPendingDuringDeliveryReturns() {
+        HeldExecutor executor = new HeldExecutor();
+        CoalescingBroadcaster broadcaster = new CoalescingBroadcaster(executor);
+        List<Integer> items = new CopyOnWriteArrayList<>();
+        Subscriber<Integer> subscriber = item -> {
+            broadcaster.deliverPending();
+            items.add(item);
+        };
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(1);
+        broadcaster.deliverPending();
+        assertEquals(List.of(1), items);
+    }
+
+    @Test
+    public void rejectedDeliveryRunsOnDispatchingThread() {
+        CoalescingBroadcaster broadcaster = new CoalescingBroadcaster(task -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(4);
+        broadcaster.dispatch(5);
+
+        assertEquals(2, subscriber.batches.size());
+        assertEquals(List.of(4), subscriber.batches.get(0).items());
+        assertEquals(List.of(5), subscriber.batches.get(1).items());
+        assertSame(Thread.currentThread(), subscriber.batches.get(1).thread());
+        assertEquals(2, broadcaster.deliveredGeneration());
+    }
+}
@@ -64,6 +64,34 @@ public void testCompareStrings() {
         assertTrue(result < 0);
     }
 
+    @Test
+    public void testSortKeyOrdersLikeCompareStrings() {
+        String[] strings = {"Test123", "Test124", "Test123.", "Test123 ", "Test123abc", "Test123a", "test123A",
+                "1Test123abc", "10Test123abc", "a2", "a10", "a01", "a1b", "a12", "ab", "a", "Zebra", "apple",
+                "a b", "a.b", "a/b", "a:b", "a_b", "a~b", "a.", "a. b", "a .b", "x", "x ", "x!", "x-y", "x(", "x,1"};
+        for (String s1 : strings) {
+            for (String s2 : strings) {
+                assertEquals(Integer.signum(NaturalOrder.compareStrings(s1, s2)),
+                        Integer.signum(NaturalOrder.sortKey(s1).compareTo(NaturalOrder.sortKey(s2))),
+                        s1 + " vs " + s2);
+            }
+        }
+    }
+
+    @Test
+    public void testSortKeyPutsPeriodBeforePunctuationBelowIt() {
+        // compareStrings is not transitive here, so the key cannot agree with it on every pair
+        assertTrue(NaturalOrder.compareStrings(".", " ") < 0);
+        assertTrue(NaturalOrder.compareStrings(" ", "!") < 0);
+        assertTrue(NaturalOrder.compareStrings("!", ".") < 0);
+
+        assertTrue(NaturalOrder.sortKey("a.b").compareTo(NaturalOrder.sortKey("a b")) < 0);
+        assertTrue(NaturalOrder.sortKey("a b").compareTo(NaturalOrder.sortKey("a-b")) < 0);
+        assertTrue(NaturalOrder.sortKey("a.b").compareTo(NaturalOrder.sortKey("a-b")) < 0);
+        assertTrue(NaturalOrder.sortKey("x.").compareTo(NaturalOrder.sortKey("x!")) < 0);
+        assertTrue(NaturalOrder.sortKey("x.").compareTo(NaturalOrder.sortKey("x/")) < 0);
+    }
+
     @Test
     public void testCompareObjects() {
         Comparator<Object> naturalOrder =  NaturalOrder.getObjectComparator();
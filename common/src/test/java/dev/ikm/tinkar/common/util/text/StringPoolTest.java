@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StringPoolTest {
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        StringPool pool = new StringPool(1L << 24);
+        byte[] first = "Heart structure (body structure)".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "Heart structure (body structure)".getBytes(StandardCharsets.UTF_8);
+        String pooled = pool.intern(first, 0, first.length);
+        assertEquals("Heart structure (body structure)", pooled);
+        assertSame(pooled, pool.intern(second, 0, second.length));
+        assertSame(pooled, pool.intern(new String(second, StandardCharsets.UTF_8)));
+        assertEquals(pool.handle(first, 0, first.length), pool.handle(second, 0, second.length));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testDistinctContent() {
+        StringPool pool = new StringPool(1L << 24);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] utf8 = ("Größe " + i).getBytes(StandardCharsets.UTF_8);
+            assertEquals("Größe " + i, pool.string(pool.handle(utf8, 0, utf8.length)));
+        }
+        assertEquals(10_000, pool.size());
+    }
+
+    @Test
+    public void testBudgetSpent() {
+        StringPool pool = new StringPool(0);
+        byte[] utf8 = "not pooled".getBytes(StandardCharsets.UTF_8);
+        assertEquals(-1, pool.handle(utf8, 0, utf8.length));
+        String first = pool.intern(utf8, 0, utf8.length);
+        assertEquals("not pooled", first);
+        assertNotSame(first, pool.intern(utf8, 0, utf8.length));
+        assertEquals(0, pool.offHeapBytes());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.language.calculator;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.coordinate.language.LanguageCoordinateRecord;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.VersionedCache;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Nid-indexed table of the regular name and fully qualified name description chosen for each component by
+ * one {@link LanguageCalculatorWithCache}, for rendering or exporting labels of far more components than the
+ * calculator's text caches hold.
+ * <p>
+ * Each entry holds the nid of the chosen description semantic, so reading a label is a table read, the latest
+ * version of that description, and its text field. The table is built by a parallel pass over the semantics
+ * of the coordinate's description patterns, choosing descriptions exactly as
+ * {@link LanguageCalculatorWithCache#getSpecifiedDescription(ImmutableList, dev.ikm.tinkar.common.id.IntIdList)}
+ * does, dialect acceptability included. It is then maintained incrementally: a change to a description, or to
+ * a semantic such as a dialect acceptability about a description, forgets the entries of the described
+ * component, which are recomputed the next time they are read.
+ * <p>
+ * Obtain an index with {@link LanguageCalculatorWithCache#buildDescriptionIndex()} and {@link #close()} it
+ * when the work is done.
+ */
+public final class DescriptionIndex implements Subscriber<Integer>, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(DescriptionIndex.class);
+
+    /**
+     * Not a valid nid, so free to mark entries that have not been computed.
+     */
+    private static final int NOT_INDEXED = Integer.MIN_VALUE;
+
+    private static final int REGULAR = 0;
+    private static final int FULLY_QUALIFIED = 1;
+    private static final int ENTRIES_PER_NID = 2;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final LanguageCalculatorWithCache calculator;
+    private final NidPageTable<AtomicIntegerArray> pages = new NidPageTable<>(PAGE_BITS, AtomicIntegerArray[]::new,
+            this::newPage);
+    private volatile boolean closed;
+
+    DescriptionIndex(LanguageCalculatorWithCache calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * Indexes every component that has a semantic of one of the coordinate's description patterns, on the
+     * fork-join pool.
+     */
+    void build() {
+        MutableIntSet descriptionPatternNids = IntSets.mutable.empty();
+        for (LanguageCoordinateRecord languageCoordinate : calculator.languageCoordinateList()) {
+            descriptionPatternNids.addAll(languageCoordinate.descriptionPatternPreferenceNidList().toArray());
+        }
+        MutableIntList descriptionNids = IntLists.mutable.empty();
+        descriptionPatternNids.forEach(patternNid ->
+                descriptionNids.addAll(PrimitiveData.get().semanticNidsOfPattern(patternNid)));
+        try {
+            int[] componentNids = TinkExecutor.forkJoinThreadPool().submit(() -> IntStream.of(descriptionNids.toArray())
+                    .parallel()
+                    .map(descriptionNid -> {
+                        SemanticEntity descriptionSemantic = Entity.getFast(descriptionNid);
+                        return descriptionSemantic.referencedComponentNid();
+                    })
+                    .toArray()).get();
+            Arrays.parallelSort(componentNids);
+            int distinct = 0;
+            for (int i = 0; i < componentNids.length; i++) {
+                if (i == 0 || componentNids[i] != componentNids[i - 1]) {
+                    componentNids[distinct++] = componentNids[i];
+                }
+            }
+            int distinctCount = distinct;
+            TinkExecutor.forkJoinThreadPool().submit(() -> IntStream.of(componentNids).limit(distinctCount).parallel()
+                    .forEach(componentNid -> {
+                        if (!closed) {
+                            index(componentNid);
+                        }
+                    })).get();
+            LOG.info("Indexed descriptions of {} components for {}", distinctCount, calculator);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Text of a component's description as answered by the index: the text, no such description, or unindexed
+     * when the index cannot answer and the caller must choose the description itself.
+     */
+    record IndexedText(boolean indexed, String text) {
+        static final IndexedText UNINDEXED = new IndexedText(false, null);
+        static final IndexedText NO_DESCRIPTION = new IndexedText(true, null);
+
+        /**
+         * @return the text, or empty if the component has no such description; only meaningful when indexed
+         */
+        Optional<String> optionalText() {
+            return Optional.ofNullable(text);
+        }
+    }
+
+    IndexedText regularDescriptionText(int componentNid) {
+        return text(componentNid, REGULAR);
+    }
+
+    IndexedText fullyQualifiedNameText(int componentNid) {
+        return text(componentNid, FULLY_QUALIFIED);
+    }
+
+    private IndexedText text(int componentNid, int kind) {
+        int descriptionNid = entry(componentNid, kind);
+        if (descriptionNid == NOT_INDEXED) {
+            index(componentNid);
+            descriptionNid = entry(componentNid, kind);
+            if (descriptionNid == NOT_INDEXED) {
+                return IndexedText.UNINDEXED;
+            }
+        }
+        if (descriptionNid == componentNid) {
+            return IndexedText.NO_DESCRIPTION;
+        }
+        Latest<SemanticEntityVersion> latestDescription = calculator.stampCalculator.latest(descriptionNid);
+        if (latestDescription.isAbsent()) {
+            return IndexedText.UNINDEXED;
+        }
+        return new IndexedText(true, calculator.extractText(latestDescription));
+    }
+
+    /**
+     * Chooses the component's descriptions, reading its write sequence first. A changed description, or a
+     * changed semantic such as a dialect acceptability about one of its descriptions, advances the component's
+     * sequence, so the choice is current while the sequence is unchanged.
+     */
+    private void index(int componentNid) {
+        long writeSequenceBefore = VersionedCache.writeSequence(componentNid);
+        ImmutableList<SemanticEntity> descriptions = calculator.findDescriptionsForComponent(componentNid);
+        record(componentNid, REGULAR, calculator.getRegularDescription(descriptions), writeSequenceBefore);
+        record(componentNid, FULLY_QUALIFIED, calculator.getFullyQualifiedDescription(descriptions), writeSequenceBefore);
+    }
+
+    /**
+     * Records the chosen description as its semantic nid, or as the component's own nid if there is none. A
+     * description that is itself contradicted on the coordinate is left to the calculator. A change event can
+     * forget the slot between the write sequence check and the store, so the sequence is checked again
+     * afterwards and the entry withdrawn if it moved.
+     */
+    private void record(int componentNid, int kind, Latest<SemanticEntityVersion> latestDescription, long writeSequenceBefore) {
+        int entry;
+        if (latestDescription.isAbsent()) {
+            entry = componentNid;
+        } else {
+            entry = latestDescription.get().nid();
+            if (calculator.stampCalculator.latest(entry).isContradicted()) {
+                return;
+            }
+        }
+        AtomicIntegerArray page = pages.pageOrCreate(componentNid);
+        if (page != null && VersionedCache.writeSequence(componentNid) == writeSequenceBefore) {
+            int slot = slot(componentNid, kind);
+            if (page.compareAndSet(slot, NOT_INDEXED, entry) &&
+                    VersionedCache.writeSequence(componentNid) != writeSequenceBefore) {
+                page.compareAndSet(slot, entry, NOT_INDEXED);
+            }
+        }
+    }
+
+    private int entry(int componentNid, int kind) {
+        AtomicIntegerArray page = pages.page(componentNid);
+        return page == null ? NOT_INDEXED : page.get(slot(componentNid, kind));
+    }
+
+    private void forget(int componentNid) {
+        AtomicIntegerArray page = pages.page(componentNid);
+        if (page != null) {
+            page.set(slot(componentNid, REGULAR), NOT_INDEXED);
+            page.set(slot(componentNid, FULLY_QUALIFIED), NOT_INDEXED);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases the table; the calculator returns to its bounded text caches.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        calculator.releaseDescriptionIndex(this);
+        pages.release();
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (nid == Integer.MIN_VALUE) {
+            pages.clear();
+            return;
+        }
+        forget(nid);
+        if (Entity.getFast(nid) instanceof SemanticEntity semanticEntity) {
+            forget(semanticEntity.referencedComponentNid());
+            if (Entity.getFast(semanticEntity.referencedComponentNid()) instanceof SemanticEntity describedSemantic) {
+                forget(describedSemantic.referencedComponentNid());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DescriptionIndex{" + calculator.languageCoordinateList() + ", closed=" + closed + '}';
+    }
+
+    private int slot(int componentNid, int kind) {
+        return (pages.slot(componentNid) * ENTRIES_PER_NID) + kind;
+    }
+
+    /**
+     * Allocates a table page with every entry not indexed, unless the index is closed.
+     */
+    private AtomicIntegerArray newPage() {
+        if (closed) {
+            return null;
+        }
+        int[] entries = new int[PAGE_SIZE * ENTRIES_PER_NID];
+        Arrays.fill(entries, NOT_INDEXED);
+        return new AtomicIntegerArray(entries);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.coordinate.language.calculator;
 
+import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.IntIdList;
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.IntIds;
@@ -42,6 +43,7 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * The LanguageCalculator class provides functionality for working with language coordinates
@@ -125,11 +127,70 @@ default ImmutableList<String> getPreferredDescriptionTextListForComponents(IntId
      * @return an immutable list of preferred description texts corresponding to the provided component identifiers.
      */
     default ImmutableList<String> getPreferredDescriptionTextListForComponents(int... nids) {
-        MutableList<String> descriptionTextList = Lists.mutable.ofInitialCapacity(nids.length);
-        for (int nid : nids) {
-            descriptionTextList.add(getPreferredDescriptionTextWithFallbackOrNid(nid));
+        String[] descriptionTexts = new String[nids.length];
+        getPreferredDescriptionTexts(nids, descriptionTexts);
+        return Lists.immutable.of(descriptionTexts);
+    }
+
+    /**
+     * Batch form of {@link #getDescriptionsForComponent(int)}.
+     *
+     * @param componentNids the components whose descriptions are to be retrieved
+     * @return the descriptions of each component, in the iteration order of {@code componentNids}
+     */
+    default ImmutableList<SemanticEntity>[] getDescriptionsForComponents(IntIdCollection componentNids) {
+        int[] nids = componentNids.toArray();
+        ImmutableList<SemanticEntity>[] descriptions = new ImmutableList[nids.length];
+        for (int i = 0; i < nids.length; i++) {
+            descriptions[i] = getDescriptionsForComponent(nids[i]);
+        }
+        return descriptions;
+    }
+
+    /**
+     * Batch form of {@link #getRegularDescriptionText(int)}: sets {@code texts[i]} to the regular name of
+     * {@code nids[i]}, or to null if it has none.
+     */
+    default void getRegularDescriptionTexts(int[] nids, String[] texts) {
+        for (int i = 0; i < nids.length; i++) {
+            texts[i] = getRegularDescriptionText(nids[i]).orElse(null);
+        }
+    }
+
+    /**
+     * Batch form of {@link #getFullyQualifiedNameText(int)}: sets {@code texts[i]} to the fully qualified
+     * name of {@code nids[i]}, or to null if it has none.
+     */
+    default void getFullyQualifiedNameTexts(int[] nids, String[] texts) {
+        for (int i = 0; i < nids.length; i++) {
+            texts[i] = getFullyQualifiedNameText(nids[i]).orElse(null);
+        }
+    }
+
+    /**
+     * Batch form of {@link #getPreferredDescriptionTextWithFallbackOrNid(int)}: sets {@code texts[i]} for
+     * {@code nids[i]}, resolving the regular names of all the components before falling back to fully
+     * qualified names for those that have none.
+     */
+    default void getPreferredDescriptionTexts(int[] nids, String[] texts) {
+        getRegularDescriptionTexts(nids, texts);
+        int[] unnamedPositions = IntStream.range(0, nids.length).filter(i -> texts[i] == null).toArray();
+        if (unnamedPositions.length == 0) {
+            return;
+        }
+        int[] unnamedNids = new int[unnamedPositions.length];
+        for (int i = 0; i < unnamedPositions.length; i++) {
+            unnamedNids[i] = nids[unnamedPositions[i]];
+        }
+        String[] fullyQualifiedNames = new String[unnamedNids.length];
+        getFullyQualifiedNameTexts(unnamedNids, fullyQualifiedNames);
+        for (int i = 0; i < unnamedPositions.length; i++) {
+            String text = fullyQualifiedNames[i];
+            if (text == null) {
+                text = getSemanticText(unnamedNids[i]).orElse(Integer.toString(unnamedNids[i]));
+            }
+            texts[unnamedPositions[i]] = text;
         }
-        return descriptionTextList.toImmutable();
     }
 
     default String getPreferredDescriptionTextWithFallbackOrNid(int nid) {
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.coordinate.language.calculator;
 
+import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.IntIdList;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinateRecord;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
@@ -80,5 +81,20 @@ default Latest<SemanticEntityVersion> getSpecifiedDescription(ImmutableList<Sema
         return languageCalculator().getSpecifiedDescription(descriptionList, descriptionTypePriority);
     }
 
+    @Override
+    default ImmutableList<SemanticEntity>[] getDescriptionsForComponents(IntIdCollection componentNids) {
+        return languageCalculator().getDescriptionsForComponents(componentNids);
+    }
+
+    @Override
+    default void getRegularDescriptionTexts(int[] nids, String[] texts) {
+        languageCalculator().getRegularDescriptionTexts(nids, texts);
+    }
+
+    @Override
+    default void getFullyQualifiedNameTexts(int[] nids, String[] texts) {
+        languageCalculator().getFullyQualifiedNameTexts(nids, texts);
+    }
+
     LanguageCalculator languageCalculator();
 }
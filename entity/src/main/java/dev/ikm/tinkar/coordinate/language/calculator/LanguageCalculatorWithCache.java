@@ -16,20 +16,21 @@
 package dev.ikm.tinkar.coordinate.language.calculator;
 
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.ikm.tinkar.collection.ConcurrentReferenceHashMap;
+import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIds;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinate;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinateRecord;
 import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
-import dev.ikm.tinkar.entity.CacheInvalidationSubscriber;
 import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityFactory;
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.EntityVersion;
 import dev.ikm.tinkar.entity.Field;
@@ -38,16 +39,22 @@
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
 import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.VersionedCache;
 import dev.ikm.tinkar.terms.EntityFacade;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class LanguageCalculatorWithCache implements LanguageCalculator {
     /**
@@ -59,24 +66,17 @@ public class LanguageCalculatorWithCache implements LanguageCalculator {
                     ConcurrentReferenceHashMap.ReferenceType.WEAK);
     final StampCalculator stampCalculator;
     final ImmutableList<LanguageCoordinateRecord> languageCoordinateList;
-    private final Cache<Integer, String> preferredCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
-    private final Cache<Integer, String> fqnCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
-    private final Cache<Integer, String> descriptionCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
-    private final Cache<Integer, String> definitionCache =
-            Caffeine.newBuilder().maximumSize(1024).build();
-    private final Cache<Integer, ImmutableList<SemanticEntity>> descriptionsForComponentCache =
-            Caffeine.newBuilder().maximumSize(1024).build();
-
-    private final CacheInvalidationSubscriber cacheInvalidationSubscriber = new CacheInvalidationSubscriber();
+    private final VersionedCache<String> preferredCache = new VersionedCache<>(10240);
+    private final VersionedCache<String> fqnCache = new VersionedCache<>(10240);
+    private final VersionedCache<String> descriptionCache = new VersionedCache<>(10240);
+    private final VersionedCache<String> definitionCache = new VersionedCache<>(1024);
+    private final VersionedCache<ImmutableList<SemanticEntity>> descriptionsForComponentCache = new VersionedCache<>(1024);
+
+    private volatile DescriptionIndex descriptionIndex;
 
     public LanguageCalculatorWithCache(StampCoordinateRecord stampFilter, ImmutableList<LanguageCoordinateRecord> languageCoordinateList) {
         this.stampCalculator = StampCalculatorWithCache.getCalculator(stampFilter);
         this.languageCoordinateList = languageCoordinateList;
-        this.cacheInvalidationSubscriber.addCaches(preferredCache, fqnCache, descriptionCache, definitionCache, descriptionsForComponentCache);
-        Entity.provider().addSubscriberWithWeakReference(this.cacheInvalidationSubscriber);
     }
 
     /**
@@ -129,25 +129,200 @@ public Optional<String> getTextFromSemanticVersion(SemanticEntityVersion semanti
 
     @Override
     public ImmutableList<SemanticEntity> getDescriptionsForComponent(int componentNid) {
-        return descriptionsForComponentCache.get(componentNid, nid -> {
-            // Need semantics for each pattern in the language coordinate. If none in first priority,
-            // repeat for each additional.
-            for (LanguageCoordinate languageCoordinate : languageCoordinateList) {
-                MutableList<SemanticEntity> descriptionList = Lists.mutable.ofInitialCapacity(16);
-                for (int descPatternNid : languageCoordinate.descriptionPatternPreferenceNidList().toArray()) {
-                    EntityService.get().forEachSemanticForComponentOfPattern(componentNid, descPatternNid, semanticEntity -> {
-                        descriptionList.add(semanticEntity);
-                    });
-                    if (descriptionList.notEmpty()) {
-                        break;
-                    }
-                }
+        return descriptionsForComponentCache.get(componentNid, this::findDescriptionsForComponent);
+    }
+
+    /**
+     * Uncached lookup of the component's descriptions, so that building the description index does not churn
+     * the descriptions cache.
+     */
+    ImmutableList<SemanticEntity> findDescriptionsForComponent(int componentNid) {
+        // Need semantics for each pattern in the language coordinate. If none in first priority,
+        // repeat for each additional.
+        for (LanguageCoordinate languageCoordinate : languageCoordinateList) {
+            MutableList<SemanticEntity> descriptionList = Lists.mutable.ofInitialCapacity(16);
+            for (int descPatternNid : languageCoordinate.descriptionPatternPreferenceNidList().toArray()) {
+                EntityService.get().forEachSemanticForComponentOfPattern(componentNid, descPatternNid, semanticEntity -> {
+                    descriptionList.add(semanticEntity);
+                });
                 if (descriptionList.notEmpty()) {
-                    return descriptionList.toImmutable();
+                    break;
+                }
+            }
+            if (descriptionList.notEmpty()) {
+                return descriptionList.toImmutable();
+            }
+        }
+        return Lists.immutable.empty();
+    }
+
+    /**
+     * @return the nids of the component's descriptions, chosen like {@link #findDescriptionsForComponent(int)}
+     * but read from the citation index alone
+     */
+    private int[] findDescriptionNidsForComponent(int componentNid) {
+        for (LanguageCoordinate languageCoordinate : languageCoordinateList) {
+            for (int descPatternNid : languageCoordinate.descriptionPatternPreferenceNidList().toArray()) {
+                int[] descriptionNids = PrimitiveData.get().semanticNidsForComponentOfPattern(componentNid, descPatternNid);
+                if (descriptionNids.length > 0) {
+                    return descriptionNids;
                 }
             }
-            return Lists.immutable.empty();
+        }
+        return new int[0];
+    }
+
+    /**
+     * Gathers the description nids of every component not already cached from the citation index, reads
+     * their bytes in one bulk call so the provider can visit them in storage order, and decodes them in
+     * parallel. Results for large batches are not added to the descriptions cache.
+     */
+    @Override
+    public ImmutableList<SemanticEntity>[] getDescriptionsForComponents(IntIdCollection componentNids) {
+        int[] nids = componentNids.toArray();
+        ImmutableList<SemanticEntity>[] descriptions = new ImmutableList[nids.length];
+        MutableIntList missingPositions = IntLists.mutable.empty();
+        for (int i = 0; i < nids.length; i++) {
+            descriptions[i] = descriptionsForComponentCache.getIfPresent(nids[i]);
+            if (descriptions[i] == null) {
+                missingPositions.add(i);
+            }
+        }
+        if (missingPositions.isEmpty()) {
+            return descriptions;
+        }
+        int[][] descriptionNidsForComponent = new int[missingPositions.size()][];
+        int descriptionCount = 0;
+        for (int i = 0; i < descriptionNidsForComponent.length; i++) {
+            descriptionNidsForComponent[i] = findDescriptionNidsForComponent(nids[missingPositions.get(i)]);
+            descriptionCount += descriptionNidsForComponent[i].length;
+        }
+        int[] descriptionNids = new int[descriptionCount];
+        int offset = 0;
+        for (int[] nidsForComponent : descriptionNidsForComponent) {
+            System.arraycopy(nidsForComponent, 0, descriptionNids, offset, nidsForComponent.length);
+            offset += nidsForComponent.length;
+        }
+        byte[][] descriptionBytes = PrimitiveData.get().getBytes(descriptionNids);
+        SemanticEntity[] descriptionSemantics = new SemanticEntity[descriptionCount];
+        forEachIndex(descriptionCount, i -> {
+            if (descriptionBytes[i] != null) {
+                descriptionSemantics[i] = (SemanticEntity) EntityFactory.make(descriptionBytes[i]);
+            }
         });
+        offset = 0;
+        for (int i = 0; i < descriptionNidsForComponent.length; i++) {
+            MutableList<SemanticEntity> descriptionList = Lists.mutable.ofInitialCapacity(descriptionNidsForComponent[i].length);
+            for (int j = 0; j < descriptionNidsForComponent[i].length; j++) {
+                if (descriptionSemantics[offset + j] != null) {
+                    descriptionList.add(descriptionSemantics[offset + j]);
+                }
+            }
+            offset += descriptionNidsForComponent[i].length;
+            descriptions[missingPositions.get(i)] = descriptionList.toImmutable();
+        }
+        return descriptions;
+    }
+
+    @Override
+    public void getRegularDescriptionTexts(int[] nids, String[] texts) {
+        descriptionTexts(nids, texts, false);
+    }
+
+    @Override
+    public void getFullyQualifiedNameTexts(int[] nids, String[] texts) {
+        descriptionTexts(nids, texts, true);
+    }
+
+    /**
+     * Serves what it can from the description index or the text cache, then resolves the rest from one bulk
+     * description fetch, in parallel.
+     */
+    private void descriptionTexts(int[] nids, String[] texts, boolean fullyQualified) {
+        Entity.provider().deliverPendingChanges();
+        DescriptionIndex index = this.descriptionIndex;
+        VersionedCache<String> textCache = fullyQualified ? fqnCache : preferredCache;
+        MutableIntList missingPositions = IntLists.mutable.empty();
+        for (int i = 0; i < nids.length; i++) {
+            texts[i] = index == null ? textCache.getIfPresent(nids[i]) : null;
+            if (texts[i] == null) {
+                missingPositions.add(i);
+            }
+        }
+        if (index != null) {
+            boolean[] indexed = new boolean[nids.length];
+            forEachIndex(nids.length, i -> {
+                DescriptionIndex.IndexedText indexedText = fullyQualified ? index.fullyQualifiedNameText(nids[i]) :
+                        index.regularDescriptionText(nids[i]);
+                if (indexedText.indexed()) {
+                    texts[i] = indexedText.text();
+                    indexed[i] = true;
+                }
+            });
+            missingPositions.removeIf(i -> indexed[i]);
+        }
+        if (missingPositions.isEmpty()) {
+            return;
+        }
+        int[] missingNids = new int[missingPositions.size()];
+        for (int i = 0; i < missingNids.length; i++) {
+            missingNids[i] = nids[missingPositions.get(i)];
+        }
+        ImmutableList<SemanticEntity>[] descriptions = getDescriptionsForComponents(IntIds.list.of(missingNids));
+        forEachIndex(missingNids.length, i -> {
+            Latest<SemanticEntityVersion> latestDescription = fullyQualified ?
+                    getFullyQualifiedDescription(descriptions[i]) : getRegularDescription(descriptions[i]);
+            texts[missingPositions.get(i)] = latestDescription.isPresent() ? extractText(latestDescription) : null;
+        });
+    }
+
+    /**
+     * Runs the action for each index below {@code count}, on the fork-join pool when there are enough of them.
+     */
+    private static void forEachIndex(int count, IntConsumer action) {
+        if (count < TinkExecutor.defaultParallelBatchSize()) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        try {
+            TinkExecutor.forkJoinThreadPool().submit(() -> IntStream.range(0, count).parallel().forEach(action)).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Indexes the regular name and fully qualified name description of every described component for this
+     * calculator, so that label lookups over more components than the text caches hold do not repeat the
+     * description and dialect selection. Blocks while the index is built by a parallel pass; afterwards it is
+     * kept current as descriptions change. Returns the open index if there already is one.
+     *
+     * @return the index, to be closed when no longer needed
+     */
+    public synchronized DescriptionIndex buildDescriptionIndex() {
+        DescriptionIndex index = this.descriptionIndex;
+        if (index != null && !index.isClosed()) {
+            return index;
+        }
+        index = new DescriptionIndex(this);
+        Entity.provider().addSubscriberWithWeakReference(index);
+        this.descriptionIndex = index;
+        index.build();
+        return index;
+    }
+
+    public Optional<DescriptionIndex> descriptionIndex() {
+        return Optional.ofNullable(this.descriptionIndex);
+    }
+
+    void releaseDescriptionIndex(DescriptionIndex index) {
+        synchronized (this) {
+            if (this.descriptionIndex == index) {
+                this.descriptionIndex = null;
+            }
+        }
     }
 
 
@@ -339,6 +514,14 @@ public Optional<String> getDescriptionText(int componentNid) {
 
     @Override
     public Optional<String> getRegularDescriptionText(int entityNid) {
+        Entity.provider().deliverPendingChanges();
+        DescriptionIndex index = this.descriptionIndex;
+        if (index != null) {
+            DescriptionIndex.IndexedText indexedText = index.regularDescriptionText(entityNid);
+            if (indexedText.indexed()) {
+                return indexedText.optionalText();
+            }
+        }
         return Optional.ofNullable(preferredCache.get(entityNid, nid -> {
             Latest<SemanticEntityVersion> latestDescription
                     = getRegularDescription(getDescriptionsForComponent(entityNid));
@@ -350,7 +533,7 @@ public Optional<String> getRegularDescriptionText(int entityNid) {
 
     }
 
-    private String extractText(Latest<SemanticEntityVersion> latestDescription) {
+    String extractText(Latest<SemanticEntityVersion> latestDescription) {
         SemanticEntityVersion descriptionVersion = latestDescription.get();
         PatternEntity<PatternEntityVersion> pattern = descriptionVersion.pattern();
         PatternEntityVersion patternVersion = stampCalculator.latest(pattern).get();
@@ -360,6 +543,14 @@ private String extractText(Latest<SemanticEntityVersion> latestDescription) {
 
     @Override
     public Optional<String> getFullyQualifiedNameText(int componentNid) {
+        Entity.provider().deliverPendingChanges();
+        DescriptionIndex index = this.descriptionIndex;
+        if (index != null) {
+            DescriptionIndex.IndexedText indexedText = index.fullyQualifiedNameText(componentNid);
+            if (indexedText.indexed()) {
+                return indexedText.optionalText();
+            }
+        }
         return Optional.ofNullable(fqnCache.get(componentNid, nid -> {
             Latest<SemanticEntityVersion> latestDescription
                     = getFullyQualifiedDescription(getDescriptionsForComponent(componentNid));
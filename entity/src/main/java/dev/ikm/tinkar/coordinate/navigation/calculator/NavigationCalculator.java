@@ -18,6 +18,7 @@
 import dev.ikm.tinkar.common.id.IntIdList;
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.util.text.NaturalOrder;
 import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorDelegate;
 import dev.ikm.tinkar.coordinate.navigation.NavigationCoordinateRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
@@ -27,6 +28,7 @@
 import dev.ikm.tinkar.terms.EntityFacade;
 import dev.ikm.tinkar.terms.PatternFacade;
 import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
 import org.eclipse.collections.api.list.ImmutableList;
 
 public interface NavigationCalculator extends StampCalculatorDelegate, LanguageCalculatorDelegate {
@@ -64,6 +66,42 @@ default IntIdSet ancestorsOf(ConceptFacade concept) {
 
     IntIdSet ancestorsOf(int conceptNid);
 
+    default boolean isDescendentOf(ConceptFacade descendant, ConceptFacade ancestor) {
+        return isDescendentOf(descendant.nid(), ancestor.nid());
+    }
+
+    /**
+     * @return true if {@code descendantNid} is reachable from {@code ancestorNid} through child relationships
+     */
+    default boolean isDescendentOf(int descendantNid, int ancestorNid) {
+        return descendentsOf(ancestorNid).contains(descendantNid);
+    }
+
+    /**
+     * @param maxDepth the number of levels to descend, 1 for the children only
+     * @return the descendants found within {@code maxDepth} levels, as a compressed bitmap set
+     */
+    IntIdSet descendentsOf(int conceptNid, int maxDepth);
+
+    /**
+     * @param maxDepth the number of levels to ascend, 1 for the parents only
+     * @return the ancestors found within {@code maxDepth} levels, as a compressed bitmap set
+     */
+    IntIdSet ancestorsOf(int conceptNid, int maxDepth);
+
+    /**
+     * Visits each descendant once, breadth first, with its depth below the concept, without accumulating the
+     * subtree. Levels are expanded in parallel, but the procedure is called on the calling thread, one level
+     * at a time in order of depth.
+     */
+    void forEachDescendent(int conceptNid, int maxDepth, IntIntProcedure procedure);
+
+    /**
+     * Visits each ancestor once, breadth first, with its depth above the concept. Called like
+     * {@link #forEachDescendent(int, int, IntIntProcedure)}.
+     */
+    void forEachAncestor(int conceptNid, int maxDepth, IntIntProcedure procedure);
+
     default IntIdSet kindOf(ConceptFacade concept) {
         return kindOf(concept.nid());
     }
@@ -158,6 +196,14 @@ default IntIdList toSortedList(IntIdSet inputSet) {
 
     IntIdList toSortedList(IntIdList inputList);
 
+    /**
+     * @return a key that orders the vertex among its siblings by {@link String#compareTo(String)}, computed from
+     * its description with {@link NaturalOrder#sortKey(String)}
+     */
+    default String vertexSortKey(int vertexNid) {
+        return NaturalOrder.sortKey(getDescriptionTextOrNid(vertexNid));
+    }
+
     NavigationCoordinateRecord navigationCoordinate();
 
 
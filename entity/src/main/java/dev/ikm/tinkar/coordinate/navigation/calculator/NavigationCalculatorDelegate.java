@@ -25,6 +25,7 @@
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorDelegate;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
 import org.eclipse.collections.api.list.ImmutableList;
 
 public interface NavigationCalculatorDelegate extends NavigationCalculator, LanguageCalculatorDelegate, StampCalculatorDelegate {
@@ -139,4 +140,34 @@ default IntIdSet descendentsOf(int conceptNid) {
     default IntIdSet ancestorsOf(int conceptNid) {
         return navigationCalculator().ancestorsOf(conceptNid);
     }
+
+    @Override
+    default String vertexSortKey(int vertexNid) {
+        return navigationCalculator().vertexSortKey(vertexNid);
+    }
+
+    @Override
+    default boolean isDescendentOf(int descendantNid, int ancestorNid) {
+        return navigationCalculator().isDescendentOf(descendantNid, ancestorNid);
+    }
+
+    @Override
+    default IntIdSet descendentsOf(int conceptNid, int maxDepth) {
+        return navigationCalculator().descendentsOf(conceptNid, maxDepth);
+    }
+
+    @Override
+    default IntIdSet ancestorsOf(int conceptNid, int maxDepth) {
+        return navigationCalculator().ancestorsOf(conceptNid, maxDepth);
+    }
+
+    @Override
+    default void forEachDescendent(int conceptNid, int maxDepth, IntIntProcedure procedure) {
+        navigationCalculator().forEachDescendent(conceptNid, maxDepth, procedure);
+    }
+
+    @Override
+    default void forEachAncestor(int conceptNid, int maxDepth, IntIntProcedure procedure) {
+        navigationCalculator().forEachAncestor(conceptNid, maxDepth, procedure);
+    }
 }
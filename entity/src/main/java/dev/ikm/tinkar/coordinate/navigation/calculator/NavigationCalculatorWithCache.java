@@ -20,8 +20,11 @@
 import dev.ikm.tinkar.common.id.IntIdList;
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.id.impl.IntIdSetRoaring;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinateRecord;
 import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculator;
 import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorWithCache;
@@ -32,30 +35,45 @@
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
 import dev.ikm.tinkar.coordinate.view.VertexSortNaturalOrder;
+import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.VersionedCache;
 import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
+import org.eclipse.collections.api.block.procedure.primitive.ObjIntProcedure;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
 
 /**
  * TODO: Filter vertex concepts by status values.
  * TODO: Sort based on patterns in addition to natural order
- *  TODO: add cache of descendents, ancestors, and similar.
  */
 public class NavigationCalculatorWithCache implements NavigationCalculator {
     /**
      * The Constant LOG.
      */
     private static final Logger LOG = LoggerFactory.getLogger(NavigationCalculatorWithCache.class);
+    private static final long INDEX_REBUILD_DELAY_MILLIS = 1_000;
     private static final ConcurrentReferenceHashMap<StampLangNavRecord, NavigationCalculatorWithCache> SINGLETONS =
             new ConcurrentReferenceHashMap<>(ConcurrentReferenceHashMap.ReferenceType.WEAK,
                     ConcurrentReferenceHashMap.ReferenceType.WEAK);
@@ -63,6 +81,34 @@ public class NavigationCalculatorWithCache implements NavigationCalculator {
     private final StampCalculatorWithCache vertexStampCalculator;
     private final LanguageCalculatorWithCache languageCalculator;
     private final NavigationCoordinateRecord navigationCoordinate;
+    /**
+     * Array snapshot of the navigation graph, or null until it is built and after a navigation pattern changes.
+     */
+    private volatile NavigationGraph graph;
+    /**
+     * Transitive closure of the navigation graph, or null until it is built and after navigation data changes.
+     */
+    private volatile NavigationClosure closure;
+    private volatile boolean indexRequested;
+    private final AtomicBoolean indexBuildScheduled = new AtomicBoolean();
+    /**
+     * Incremented when navigation data changes, so that a closure built across a change is discarded.
+     */
+    private final AtomicLong navigationGeneration = new AtomicLong();
+    /**
+     * Held while an index is installed and while a change is applied to the indexes, so that a change is either
+     * seen by the install as a new generation, or applied to the installed index.
+     */
+    private final Object indexLock = new Object();
+    /**
+     * Generation for which the indexes could not be built, so that they are not retried until navigation changes.
+     */
+    private volatile long unbuildableGeneration = -1;
+    /**
+     * Natural order sort keys of vertex descriptions, recomputed when a description or its acceptability changes.
+     */
+    private final VersionedCache<String> vertexSortKeyCache = new VersionedCache<>(65_536);
+    private final Subscriber<Integer> entityChangeSubscriber = this::entityChanged;
 
     public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
                                          ImmutableList<LanguageCoordinateRecord> languageCoordinateList,
@@ -71,6 +117,7 @@ public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
         this.languageCalculator = LanguageCalculatorWithCache.getCalculator(stampFilter, languageCoordinateList);
         this.navigationCoordinate = navigationCoordinate;
         this.vertexStampCalculator = StampCalculatorWithCache.getCalculator(stampFilter.withAllowedStates(navigationCoordinate.vertexStates()));
+        Entity.provider().addSubscriberWithWeakReference(this.entityChangeSubscriber);
     }
 
     /**
@@ -96,22 +143,180 @@ public LanguageCalculator languageCalculator() {
         return languageCalculator;
     }
 
-    private void addDescendents(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            childrenOf(conceptNid).forEach(childNid -> {
-                addDescendents(childNid, nidSet);
-                nidSet.add(childNid);
-            });
+    /**
+     * Collects every concept reachable from the given concept by repeatedly following the given step, without
+     * recursion so that deep hierarchies do not exhaust the stack. Used until the closure is available.
+     */
+    static IntIdSet traverse(int conceptNid, IntFunction<IntIdList> step) {
+        MutableIntSet nidSet = IntSets.mutable.empty();
+        MutableIntList stack = IntLists.mutable.of(conceptNid);
+        while (stack.notEmpty()) {
+            int nid = stack.removeAtIndex(stack.size() - 1);
+            for (int relatedNid : step.apply(nid).toArray()) {
+                if (nidSet.add(relatedNid)) {
+                    stack.add(relatedNid);
+                }
+            }
         }
+        return IntIds.set.of(nidSet.toArray());
     }
 
-    private void addAncestors(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            parentsOf(conceptNid).forEach(parentNid -> {
-                addAncestors(parentNid, nidSet);
-                nidSet.add(parentNid);
-            });
+    /**
+     * @return the closure if it covers the concept, otherwise null after making sure a build is under way
+     */
+    private NavigationClosure closureFor(int conceptNid) {
+        Entity.provider().deliverPendingChanges();
+        NavigationClosure current = this.closure;
+        if (current == null) {
+            requestIndexes();
+            return null;
+        }
+        return current.contains(conceptNid) ? current : null;
+    }
+
+    /**
+     * @return the graph snapshot if its edges for the concept are current, otherwise null after making sure
+     * a build is under way
+     */
+    private NavigationGraph graphFor(int conceptNid) {
+        Entity.provider().deliverPendingChanges();
+        NavigationGraph current = this.graph;
+        if (current == null) {
+            requestIndexes();
+            return null;
         }
+        return current.covers(conceptNid) ? current : null;
+    }
+
+    private void requestIndexes() {
+        indexRequested = true;
+        if (unbuildableGeneration != navigationGeneration.get()) {
+            scheduleIndexBuild(0);
+        }
+    }
+
+    private void scheduleIndexBuild(long delayMillis) {
+        if (indexBuildScheduled.compareAndSet(false, true)) {
+            TinkExecutor.scheduled().schedule(() -> TinkExecutor.threadPool().execute(this::buildIndexes),
+                    delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Builds the graph snapshot, installs it, then labels the closure from it. Each index is installed only if
+     * navigation has not changed since the build started.
+     */
+    private void buildIndexes() {
+        long generation = navigationGeneration.get();
+        indexBuildScheduled.set(false);
+        try {
+            NavigationGraph builtGraph = NavigationGraph.build(this);
+            synchronized (indexLock) {
+                if (navigationGeneration.get() != generation) {
+                    return;
+                }
+                this.graph = builtGraph;
+            }
+            LOG.info("Built {} for {}", builtGraph, navigationCoordinate);
+            Optional<NavigationClosure> built = NavigationClosure.build(builtGraph);
+            if (built.isEmpty()) {
+                unbuildableGeneration = generation;
+                return;
+            }
+            synchronized (indexLock) {
+                if (navigationGeneration.get() != generation) {
+                    return;
+                }
+                this.closure = built.get();
+            }
+            LOG.info("Built {} for {}", built.get(), navigationCoordinate);
+        } catch (RuntimeException e) {
+            unbuildableGeneration = generation;
+            LOG.error("Unable to build navigation indexes for " + navigationCoordinate, e);
+        }
+    }
+
+    private void entityChanged(int nid) {
+        if (!indexRequested) {
+            return;
+        }
+        if (nid == Integer.MIN_VALUE) {
+            invalidateIndexesIfNavigationChanged(nid, null);
+            return;
+        }
+        invalidateIndexesIfNavigationChanged(nid, Entity.provider().getEntityFast(nid));
+    }
+
+    /**
+     * Sort keys are versioned by the write sequence of the vertex, which a changed description, or a changed
+     * semantic on a description such as a dialect acceptability, advances.
+     */
+    @Override
+    public String vertexSortKey(int vertexNid) {
+        return vertexSortKeyCache.get(vertexNid, NavigationCalculator.super::vertexSortKey);
+    }
+
+    /**
+     * Keeps the indexes current as entities change. A changed navigation semantic or vertex is marked dirty in
+     * the graph snapshot, which then answers from the entities for it, and the closure is dropped; a changed
+     * navigation pattern or the end of a load phase drops both. Either way a rebuild is scheduled shortly
+     * after, so that a burst of edits causes one rebuild.
+     */
+    private void invalidateIndexesIfNavigationChanged(int nid, Entity<?> entity) {
+        synchronized (indexLock) {
+            NavigationGraph currentGraph = this.graph;
+            if (nid == Integer.MIN_VALUE || navigationCoordinate.navigationPatternNids().contains(nid)) {
+                this.graph = null;
+            } else if (currentGraph != null && currentGraph.indexForNid(nid) >= 0) {
+                currentGraph.markDirty(nid);
+            } else if (entity instanceof SemanticEntity<?> semanticEntity
+                    && navigationCoordinate.navigationPatternNids().contains(semanticEntity.patternNid())) {
+                if (currentGraph != null) {
+                    currentGraph.markDirty(semanticEntity.referencedComponentNid());
+                }
+            } else {
+                return;
+            }
+            navigationGeneration.incrementAndGet();
+            this.closure = null;
+        }
+        scheduleIndexBuild(INDEX_REBUILD_DELAY_MILLIS);
+    }
+
+    /**
+     * Neighbours of a vertex from the graph snapshot.
+     *
+     * @param children     children if true, otherwise parents
+     * @param patternIndex only edges of this pattern, or -1 for edges of any navigation pattern
+     * @param versioned    whether to drop neighbours whose state the vertex states do not allow
+     */
+    private IntIdList graphNeighbours(NavigationGraph current, int conceptNid, boolean children, int patternIndex, boolean versioned) {
+        int vertex = current.indexForNid(conceptNid);
+        int start = children ? current.childOffset(vertex) : current.parentOffset(vertex);
+        int end = children ? current.childEnd(vertex) : current.parentEnd(vertex);
+        MutableIntList neighbours = IntLists.mutable.empty();
+        for (int position = start; position < end; position++) {
+            if (patternIndex >= 0 && !(children ? current.childEdgeOfPattern(position, patternIndex)
+                    : current.parentEdgeOfPattern(position, patternIndex))) {
+                continue;
+            }
+            int target = children ? current.childTarget(position) : current.parentTarget(position);
+            if (!versioned || allowedVertex(current, target)) {
+                neighbours.add(current.nid(target));
+            }
+        }
+        return IntIds.list.of(neighbours.toArray());
+    }
+
+    private boolean allowedVertex(NavigationGraph current, int vertex) {
+        if (navigationCoordinate.vertexStates() == StateSet.ACTIVE_INACTIVE_AND_WITHDRAWN) {
+            return true;
+        }
+        int nid = current.nid(vertex);
+        if (current.isDirty(nid)) {
+            return vertexStampCalculator.latest(nid).isPresent();
+        }
+        return current.allowedWhenBuilt(vertex);
     }
 
     @Override
@@ -136,21 +341,111 @@ public IntIdList sortedParentsOf(int conceptNid) {
 
     @Override
     public IntIdList unsortedParentsOf(int conceptNid) {
+        NavigationGraph current = graphFor(conceptNid);
+        if (current != null) {
+            return graphNeighbours(current, conceptNid, false, -1, true);
+        }
         return getIntIdListForMeaning(conceptNid, TinkarTerm.RELATIONSHIP_ORIGIN);
     }
 
     @Override
     public IntIdSet descendentsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addDescendents(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        NavigationClosure current = closureFor(conceptNid);
+        if (current != null) {
+            return IntIds.set.of(current.descendentsOf(conceptNid));
+        }
+        return traverse(conceptNid, this::unsortedChildrenOf);
     }
 
     @Override
     public IntIdSet ancestorsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addAncestors(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        NavigationClosure current = closureFor(conceptNid);
+        if (current != null) {
+            return IntIds.set.of(current.ancestorsOf(conceptNid));
+        }
+        return traverse(conceptNid, this::unsortedParentsOf);
+    }
+
+    @Override
+    public IntIdSet descendentsOf(int conceptNid, int maxDepth) {
+        return breadthFirstSet(conceptNid, maxDepth, this::unsortedChildrenOf);
+    }
+
+    @Override
+    public IntIdSet ancestorsOf(int conceptNid, int maxDepth) {
+        return breadthFirstSet(conceptNid, maxDepth, this::unsortedParentsOf);
+    }
+
+    @Override
+    public void forEachDescendent(int conceptNid, int maxDepth, IntIntProcedure procedure) {
+        breadthFirst(conceptNid, maxDepth, this::unsortedChildrenOf, (level, depth) -> {
+            for (int nid : level) {
+                procedure.value(nid, depth);
+            }
+        });
+    }
+
+    @Override
+    public void forEachAncestor(int conceptNid, int maxDepth, IntIntProcedure procedure) {
+        breadthFirst(conceptNid, maxDepth, this::unsortedParentsOf, (level, depth) -> {
+            for (int nid : level) {
+                procedure.value(nid, depth);
+            }
+        });
+    }
+
+    private static IntIdSet breadthFirstSet(int conceptNid, int maxDepth, IntFunction<IntIdList> step) {
+        MutableIntList found = IntLists.mutable.empty();
+        breadthFirst(conceptNid, maxDepth, step, (level, depth) -> found.addAll(level));
+        return IntIdSetRoaring.newIntIdSet(found.toArray());
+    }
+
+    /**
+     * Level-synchronous breadth-first traversal: each level is expanded on the fork-join pool when it is wide
+     * enough to be worth splitting, and handed to the procedure before the next level is expanded. Only the
+     * current level and the visited bitset are held, so memory does not grow with the depth of the subtree.
+     */
+    private static void breadthFirst(int conceptNid, int maxDepth, IntFunction<IntIdList> step,
+                                     ObjIntProcedure<int[]> levelProcedure) {
+        VisitedNids visited = new VisitedNids();
+        visited.add(conceptNid);
+        int[] level = {conceptNid};
+        for (int depth = 1; depth <= maxDepth && level.length > 0; depth++) {
+            level = expand(level, step, visited);
+            if (level.length > 0) {
+                levelProcedure.value(level, depth);
+            }
+        }
+    }
+
+    private static int[] expand(int[] level, IntFunction<IntIdList> step, VisitedNids visited) {
+        if (level.length < TinkExecutor.defaultParallelBatchSize()) {
+            MutableIntList next = IntLists.mutable.empty();
+            for (int nid : level) {
+                for (int relatedNid : step.apply(nid).toArray()) {
+                    if (visited.add(relatedNid)) {
+                        next.add(relatedNid);
+                    }
+                }
+            }
+            return next.toArray();
+        }
+        try {
+            return TinkExecutor.forkJoinThreadPool().submit(() -> IntStream.of(level).parallel()
+                    .flatMap(nid -> step.apply(nid).intStream().filter(visited::add))
+                    .toArray()).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean isDescendentOf(int descendantNid, int ancestorNid) {
+        NavigationClosure current = closureFor(ancestorNid);
+        if (current != null) {
+            return current.contains(descendantNid) && current.isDescendentOf(descendantNid, ancestorNid);
+        }
+        return descendentsOf(ancestorNid).contains(descendantNid);
     }
 
     @Override
@@ -187,14 +482,26 @@ public IntIdList sortedChildrenOf(int conceptNid) {
 
     @Override
     public IntIdList unsortedChildrenOf(int conceptNid) {
+        NavigationGraph current = graphFor(conceptNid);
+        if (current != null) {
+            return graphNeighbours(current, conceptNid, true, -1, true);
+        }
         return getIntIdListForMeaning(conceptNid, TinkarTerm.RELATIONSHIP_DESTINATION);
     }
     @Override
     public IntIdList unsortedUnversionedChildrenOf(int conceptNid) {
+        NavigationGraph current = graphFor(conceptNid);
+        if (current != null) {
+            return graphNeighbours(current, conceptNid, true, -1, false);
+        }
         return getIntIdListForMeaningUnversioned(conceptNid, TinkarTerm.RELATIONSHIP_DESTINATION);
     }
     @Override
     public IntIdList unsortedUnversionedParentsOf(int conceptNid) {
+        NavigationGraph current = graphFor(conceptNid);
+        if (current != null) {
+            return graphNeighbours(current, conceptNid, false, -1, false);
+        }
         return getIntIdListForMeaningUnversioned(conceptNid, TinkarTerm.RELATIONSHIP_ORIGIN);
     }
 
@@ -211,15 +518,23 @@ public NavigationCoordinateRecord navigationCoordinate() {
 
     @Override
     public IntIdList unsortedParentsOf(int conceptNid, int patternNid) {
+        NavigationGraph current = graphFor(conceptNid);
+        if (current != null && current.patternIndex(patternNid) >= 0) {
+            return graphNeighbours(current, conceptNid, false, current.patternIndex(patternNid), true);
+        }
         return getIntIdListForMeaningFromPattern(conceptNid, TinkarTerm.RELATIONSHIP_ORIGIN, patternNid);
     }
 
     private ImmutableList<Edge> getEdges(int conceptNid, EntityProxy.Concept relationshipDirection) {
         MutableIntObjectMap<MutableEdge> edges = IntObjectMaps.mutable.empty();
+        NavigationGraph current = graphFor(conceptNid);
         for (int patternNid : navigationCoordinate.navigationPatternNids().toArray()) {
             stampCalculator.latestPatternEntityVersion(patternNid).ifPresent(patternEntityVersion -> {
                 int typeNid = patternEntityVersion.semanticMeaningNid();
-                IntIdList parents = getIntIdListForMeaningFromPattern(conceptNid, relationshipDirection, patternNid);
+                IntIdList parents = current != null && current.patternIndex(patternNid) >= 0
+                        ? graphNeighbours(current, conceptNid, relationshipDirection.nid() == TinkarTerm.RELATIONSHIP_DESTINATION.nid(),
+                        current.patternIndex(patternNid), true)
+                        : getIntIdListForMeaningFromPattern(conceptNid, relationshipDirection, patternNid);
                 for (int parentNid : parents.toArray()) {
                     edges.updateValue(parentNid, () -> new MutableEdge(IntSets.mutable.empty(), parentNid, this.languageCalculator), mutableEdge -> {
                         mutableEdge.types.add(typeNid);
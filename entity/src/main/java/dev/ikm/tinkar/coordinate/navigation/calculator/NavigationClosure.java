@@ -0,0 +1,350 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.primitive.ImmutableIntIntMap;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.impl.factory.primitive.IntIntMaps;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Transitive closure of the navigation graph of one {@link NavigationCalculatorWithCache}, answering
+ * subsumption tests in constant time and enumerating descendants in time proportional to the result.
+ * <p>
+ * Vertices are numbered in post order of a depth-first spanning forest, so that the descendants of a vertex
+ * through tree edges are a contiguous range of numbers. Each vertex is labelled with the ranges covering all
+ * of its descendants, merged bottom-up from its children's labels so that descendants reached through the
+ * extra parents of a multi-parent concept are included. Labels are usually a few ranges; when a vertex would
+ * need more ranges than a bitset of all vertices costs, its label is that bitset instead.
+ * <p>
+ * The closure is immutable. It covers only vertices allowed by the navigation coordinate's vertex states, and
+ * cannot be built for a graph with cycles.
+ */
+final class NavigationClosure {
+    private static final Logger LOG = LoggerFactory.getLogger(NavigationClosure.class);
+    /**
+     * Per thread scratch bitset of vertex indexes for {@link #ancestorsOf(int)}, cleared of the bits it set
+     * before it is returned so that a call costs time proportional to the ancestors rather than the graph.
+     */
+    private static final ThreadLocal<BitSet> SEEN = ThreadLocal.withInitial(BitSet::new);
+
+    private final ImmutableIntIntMap indexForNid;
+    private final int[] nids;
+    private final int[][] parents;
+    private final int[] postOrder;
+    private final int[] indexForPostOrder;
+    /**
+     * By vertex index: an int[] of inclusive post order ranges as lo, hi pairs, or a BitSet of post order
+     * numbers. A label includes the vertex itself.
+     */
+    private final Object[] labels;
+
+    private NavigationClosure(ImmutableIntIntMap indexForNid, int[] nids, int[][] parents, int[] postOrder,
+                              int[] indexForPostOrder, Object[] labels) {
+        this.indexForNid = indexForNid;
+        this.nids = nids;
+        this.parents = parents;
+        this.postOrder = postOrder;
+        this.indexForPostOrder = indexForPostOrder;
+        this.labels = labels;
+    }
+
+    /**
+     * Labels the allowed vertices of a navigation graph snapshot.
+     *
+     * @return the closure, or empty if the navigation graph has a cycle
+     */
+    static Optional<NavigationClosure> build(NavigationGraph graph) {
+        MutableIntList vertexNids = IntLists.mutable.empty();
+        MutableIntIntMap indexForNid = IntIntMaps.mutable.empty();
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+            if (graph.allowedWhenBuilt(vertex)) {
+                indexForNid.put(graph.nid(vertex), vertexNids.size());
+                vertexNids.add(graph.nid(vertex));
+            }
+        }
+        int[] nids = vertexNids.toArray();
+        int[][] children = new int[nids.length][];
+        for (int i = 0; i < nids.length; i++) {
+            int vertex = graph.indexForNid(nids[i]);
+            MutableIntList childIndexes = IntLists.mutable.empty();
+            for (int position = graph.childOffset(vertex); position < graph.childEnd(vertex); position++) {
+                int childIndex = indexForNid.getIfAbsent(graph.nid(graph.childTarget(position)), -1);
+                if (childIndex >= 0) {
+                    childIndexes.add(childIndex);
+                }
+            }
+            children[i] = childIndexes.toArray();
+        }
+        return label(indexForNid.toImmutable(), nids, children);
+    }
+
+    /**
+     * Labels a graph given by vertex index, without a navigation graph snapshot.
+     *
+     * @param nids     nid by vertex index
+     * @param children child vertex indexes by vertex index
+     * @return the closure, or empty if the graph has a cycle
+     */
+    static Optional<NavigationClosure> of(int[] nids, int[][] children) {
+        MutableIntIntMap indexForNid = IntIntMaps.mutable.empty();
+        for (int i = 0; i < nids.length; i++) {
+            indexForNid.put(nids[i], i);
+        }
+        return label(indexForNid.toImmutable(), nids, children);
+    }
+
+    private static Optional<NavigationClosure> label(ImmutableIntIntMap indexForNid, int[] nids, int[][] children) {
+        int vertexCount = nids.length;
+        int[][] parents = reverse(children);
+
+        // Depth-first spanning forest, numbering vertices as they finish.
+        int[] postOrder = new int[vertexCount];
+        int[] lowPostOrder = new int[vertexCount];
+        int[] indexForPostOrder = new int[vertexCount];
+        boolean[] visited = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int[] cursor = new int[vertexCount];
+        int nextPostOrder = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < vertexCount; root++) {
+                // Roots first; the second pass only reaches vertices on cycles.
+                if (visited[root] || (pass == 0 && parents[root].length > 0)) {
+                    continue;
+                }
+                int stackSize = 0;
+                visited[root] = true;
+                lowPostOrder[root] = nextPostOrder;
+                stack[stackSize++] = root;
+                while (stackSize > 0) {
+                    int vertex = stack[stackSize - 1];
+                    if (cursor[vertex] < children[vertex].length) {
+                        int child = children[vertex][cursor[vertex]++];
+                        if (!visited[child]) {
+                            visited[child] = true;
+                            lowPostOrder[child] = nextPostOrder;
+                            stack[stackSize++] = child;
+                        }
+                    } else {
+                        postOrder[vertex] = nextPostOrder;
+                        indexForPostOrder[nextPostOrder++] = vertex;
+                        stackSize--;
+                    }
+                }
+            }
+        }
+
+        // Label leaves first, then each vertex once all of its children are labelled, one level at a time.
+        int maxRanges = Math.max(4, vertexCount / 64);
+        Object[] labels = new Object[vertexCount];
+        AtomicIntegerArray unlabelledChildren = new AtomicIntegerArray(vertexCount);
+        MutableIntList level = IntLists.mutable.empty();
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            unlabelledChildren.set(vertex, children[vertex].length);
+            if (children[vertex].length == 0) {
+                level.add(vertex);
+            }
+        }
+        int labelledCount = 0;
+        while (level.notEmpty()) {
+            int[] levelVertexes = level.toArray();
+            IntStream.of(levelVertexes).parallel().forEach(vertex ->
+                    labels[vertex] = label(lowPostOrder[vertex], postOrder[vertex], children[vertex], labels, vertexCount, maxRanges));
+            labelledCount += levelVertexes.length;
+            level = IntLists.mutable.empty();
+            for (int vertex : levelVertexes) {
+                for (int parent : parents[vertex]) {
+                    if (unlabelledChildren.decrementAndGet(parent) == 0) {
+                        level.add(parent);
+                    }
+                }
+            }
+        }
+        if (labelledCount < vertexCount) {
+            LOG.warn("Navigation graph has {} vertices on or above a cycle; closure not built", vertexCount - labelledCount);
+            return Optional.empty();
+        }
+        return Optional.of(new NavigationClosure(indexForNid, nids, parents, postOrder, indexForPostOrder, labels));
+    }
+
+    private static Object label(int low, int high, int[] children, Object[] labels, int vertexCount, int maxRanges) {
+        MutableIntList ranges = IntLists.mutable.of(low, high);
+        for (int child : children) {
+            if (labels[child] instanceof int[] childRanges) {
+                ranges.addAll(childRanges);
+            } else {
+                return bitSetLabel(low, high, children, labels, vertexCount);
+            }
+        }
+        long[] sortedRanges = new long[ranges.size() / 2];
+        for (int i = 0; i < sortedRanges.length; i++) {
+            sortedRanges[i] = ((long) ranges.get(i * 2) << 32) | ranges.get(i * 2 + 1);
+        }
+        Arrays.sort(sortedRanges);
+        MutableIntList merged = IntLists.mutable.empty();
+        for (long range : sortedRanges) {
+            int rangeLow = (int) (range >>> 32);
+            int rangeHigh = (int) range;
+            int last = merged.size() - 1;
+            if (merged.notEmpty() && rangeLow <= merged.get(last) + 1) {
+                merged.set(last, Math.max(merged.get(last), rangeHigh));
+            } else {
+                merged.add(rangeLow);
+                merged.add(rangeHigh);
+            }
+        }
+        if (merged.size() / 2 > maxRanges) {
+            return bitSetLabel(low, high, children, labels, vertexCount);
+        }
+        return merged.toArray();
+    }
+
+    private static BitSet bitSetLabel(int low, int high, int[] children, Object[] labels, int vertexCount) {
+        BitSet label = new BitSet(vertexCount);
+        label.set(low, high + 1);
+        for (int child : children) {
+            if (labels[child] instanceof int[] childRanges) {
+                for (int i = 0; i < childRanges.length; i += 2) {
+                    label.set(childRanges[i], childRanges[i + 1] + 1);
+                }
+            } else {
+                label.or((BitSet) labels[child]);
+            }
+        }
+        return label;
+    }
+
+    private static int[][] reverse(int[][] edges) {
+        int[] counts = new int[edges.length];
+        for (int[] targets : edges) {
+            for (int target : targets) {
+                counts[target]++;
+            }
+        }
+        int[][] reversed = new int[edges.length][];
+        for (int i = 0; i < edges.length; i++) {
+            reversed[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int source = 0; source < edges.length; source++) {
+            for (int target : edges[source]) {
+                reversed[target][counts[target]++] = source;
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * @return true if the closure covers the concept; otherwise callers fall back to traversal
+     */
+    boolean contains(int conceptNid) {
+        return indexForNid.containsKey(conceptNid);
+    }
+
+    /**
+     * @return true if {@code descendantNid} is a proper descendant of {@code ancestorNid}; both must be covered
+     */
+    boolean isDescendentOf(int descendantNid, int ancestorNid) {
+        int ancestor = indexForNid.get(ancestorNid);
+        int descendant = indexForNid.get(descendantNid);
+        if (ancestor == descendant) {
+            return false;
+        }
+        int descendantPostOrder = postOrder[descendant];
+        if (labels[ancestor] instanceof int[] ranges) {
+            int low = 0;
+            int high = ranges.length / 2 - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (descendantPostOrder < ranges[middle * 2]) {
+                    high = middle - 1;
+                } else if (descendantPostOrder > ranges[middle * 2 + 1]) {
+                    low = middle + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ((BitSet) labels[ancestor]).get(descendantPostOrder);
+    }
+
+    /**
+     * @return nids of the proper descendants of a covered concept
+     */
+    int[] descendentsOf(int conceptNid) {
+        int vertex = indexForNid.get(conceptNid);
+        MutableIntList descendents = IntLists.mutable.empty();
+        if (labels[vertex] instanceof int[] ranges) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int position = ranges[i]; position <= ranges[i + 1]; position++) {
+                    descendents.add(nids[indexForPostOrder[position]]);
+                }
+            }
+        } else {
+            BitSet bits = (BitSet) labels[vertex];
+            for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1)) {
+                descendents.add(nids[indexForPostOrder[position]]);
+            }
+        }
+        descendents.remove(conceptNid);
+        return descendents.toArray();
+    }
+
+    /**
+     * @return nids of the proper ancestors of a covered concept
+     */
+    int[] ancestorsOf(int conceptNid) {
+        int vertex = indexForNid.get(conceptNid);
+        BitSet seen = SEEN.get();
+        MutableIntList ancestors = IntLists.mutable.empty();
+        ancestors.add(vertex);
+        for (int next = 0; next < ancestors.size(); next++) {
+            for (int parent : parents[ancestors.get(next)]) {
+                if (!seen.get(parent)) {
+                    seen.set(parent);
+                    ancestors.add(parent);
+                }
+            }
+        }
+        int[] ancestorNids = new int[ancestors.size() - 1];
+        for (int i = 1; i < ancestors.size(); i++) {
+            int ancestor = ancestors.get(i);
+            seen.clear(ancestor);
+            ancestorNids[i - 1] = nids[ancestor];
+        }
+        return ancestorNids;
+    }
+
+    int vertexCount() {
+        return nids.length;
+    }
+
+    @Override
+    public String toString() {
+        long bitSetLabels = Arrays.stream(labels).filter(label -> label instanceof BitSet).count();
+        return "NavigationClosure{" + nids.length + " vertices, " + bitSetLabels + " bitset labels}";
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.id.IntIdCollection;
+import dev.ikm.tinkar.coordinate.stamp.StateSet;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.map.primitive.ImmutableIntIntMap;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntIntMaps;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Snapshot of the navigation graph of one {@link NavigationCalculatorWithCache} in compressed sparse row form,
+ * so that browsing and graph algorithms run over primitive arrays instead of resolving navigation semantics.
+ * <p>
+ * Vertices are the concepts with navigation semantics and the concepts those semantics refer to, indexed in
+ * nid order. The children of vertex {@code v} are {@code childTargets[childOffsets[v] .. childOffsets[v + 1])},
+ * and parents are laid out the same way; both are taken as recorded in the navigation semantics. For each
+ * navigation pattern, a bitmap over edge positions records which edges that pattern asserts, and a bitmap over
+ * vertices records which are allowed by the coordinate's vertex states.
+ * <p>
+ * The arrays are immutable. Changes after the snapshot was taken are tracked in a concurrent bitmap of dirty
+ * vertices: a dirty vertex's edges, or a dirty target's allowed state, must be read from the entities instead.
+ */
+final class NavigationGraph {
+    private final ImmutableIntIntMap indexForNid;
+    private final int[] nids;
+    private final int[] childOffsets;
+    private final int[] childTargets;
+    private final int[] parentOffsets;
+    private final int[] parentTargets;
+    private final int[] patternNids;
+    private final BitSet[] childEdgesOfPattern;
+    private final BitSet[] parentEdgesOfPattern;
+    private final BitSet allowed;
+    private final AtomicLongArray dirty;
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+
+    private NavigationGraph(ImmutableIntIntMap indexForNid, int[] nids,
+                            int[] childOffsets, int[] childTargets, int[] parentOffsets, int[] parentTargets,
+                            int[] patternNids, BitSet[] childEdgesOfPattern, BitSet[] parentEdgesOfPattern,
+                            BitSet allowed) {
+        this.indexForNid = indexForNid;
+        this.nids = nids;
+        this.childOffsets = childOffsets;
+        this.childTargets = childTargets;
+        this.parentOffsets = parentOffsets;
+        this.parentTargets = parentTargets;
+        this.patternNids = patternNids;
+        this.childEdgesOfPattern = childEdgesOfPattern;
+        this.parentEdgesOfPattern = parentEdgesOfPattern;
+        this.allowed = allowed;
+        this.dirty = new AtomicLongArray((nids.length + 63) >>> 6);
+    }
+
+    /**
+     * Reads the latest navigation semantics of every navigation pattern, each pattern in parallel, and lays
+     * them out as arrays.
+     */
+    static NavigationGraph build(NavigationCalculatorWithCache calculator) {
+        StampCalculator stampCalculator = calculator.stampCalculator();
+        int[] patternNids = calculator.navigationCoordinate().navigationPatternNids().toArray();
+        ConcurrentHashMap<Integer, int[]>[] childrenForNid = new ConcurrentHashMap[patternNids.length];
+        ConcurrentHashMap<Integer, int[]>[] parentsForNid = new ConcurrentHashMap[patternNids.length];
+        MutableIntSet vertexNidSet = IntSets.mutable.empty();
+        for (int patternIndex = 0; patternIndex < patternNids.length; patternIndex++) {
+            Latest<PatternEntityVersion> latestPattern = stampCalculator.latest(patternNids[patternIndex]);
+            if (latestPattern.isAbsent()) {
+                throw new IllegalStateException("No active pattern version. " + latestPattern);
+            }
+            int indexForChildren = latestPattern.get().indexForMeaning(TinkarTerm.RELATIONSHIP_DESTINATION);
+            int indexForParents = latestPattern.get().indexForMeaning(TinkarTerm.RELATIONSHIP_ORIGIN);
+            ConcurrentHashMap<Integer, int[]> children = new ConcurrentHashMap<>();
+            ConcurrentHashMap<Integer, int[]> parents = new ConcurrentHashMap<>();
+            stampCalculator.forEachSemanticVersionOfPatternParallel(patternNids[patternIndex], (semanticVersion, patternVersion) -> {
+                int conceptNid = semanticVersion.referencedComponentNid();
+                children.merge(conceptNid, ((IntIdCollection) semanticVersion.fieldValues().get(indexForChildren)).toArray(), NavigationGraph::union);
+                parents.merge(conceptNid, ((IntIdCollection) semanticVersion.fieldValues().get(indexForParents)).toArray(), NavigationGraph::union);
+            });
+            childrenForNid[patternIndex] = children;
+            parentsForNid[patternIndex] = parents;
+            for (ConcurrentHashMap<Integer, int[]> edges : new ConcurrentHashMap[]{children, parents}) {
+                edges.forEach((nid, targets) -> {
+                    vertexNidSet.add(nid);
+                    vertexNidSet.addAll(targets);
+                });
+            }
+        }
+
+        int[] nids = vertexNidSet.toSortedArray();
+        MutableIntIntMap indexForNid = IntIntMaps.mutable.empty();
+        for (int i = 0; i < nids.length; i++) {
+            indexForNid.put(nids[i], i);
+        }
+        int[] childOffsets = new int[nids.length + 1];
+        int[] parentOffsets = new int[nids.length + 1];
+        BitSet[] childEdgesOfPattern = new BitSet[patternNids.length];
+        BitSet[] parentEdgesOfPattern = new BitSet[patternNids.length];
+        int[] childTargets = layout(nids, indexForNid, childrenForNid, childOffsets, childEdgesOfPattern);
+        int[] parentTargets = layout(nids, indexForNid, parentsForNid, parentOffsets, parentEdgesOfPattern);
+
+        BitSet allowed = new BitSet(nids.length);
+        if (calculator.navigationCoordinate().vertexStates() == StateSet.ACTIVE_INACTIVE_AND_WITHDRAWN) {
+            allowed.set(0, nids.length);
+        } else {
+            Latest<? extends EntityVersion>[] latestVertices = new Latest[nids.length];
+            calculator.vertexStampCalculator().latest(nids, latestVertices);
+            for (int i = 0; i < nids.length; i++) {
+                if (latestVertices[i].isPresent()) {
+                    allowed.set(i);
+                }
+            }
+        }
+        return new NavigationGraph(indexForNid.toImmutable(), nids, childOffsets, childTargets,
+                parentOffsets, parentTargets, patternNids, childEdgesOfPattern, parentEdgesOfPattern, allowed);
+    }
+
+    private static int[] layout(int[] nids, MutableIntIntMap indexForNid, ConcurrentHashMap<Integer, int[]>[] targetsForNid,
+                                int[] offsets, BitSet[] edgesOfPattern) {
+        int[][] targetsForVertex = new int[nids.length][];
+        int edgeCount = 0;
+        for (int i = 0; i < nids.length; i++) {
+            MutableIntSet targets = IntSets.mutable.empty();
+            for (ConcurrentHashMap<Integer, int[]> patternTargets : targetsForNid) {
+                int[] targetNids = patternTargets.get(nids[i]);
+                if (targetNids != null) {
+                    for (int targetNid : targetNids) {
+                        targets.add(indexForNid.get(targetNid));
+                    }
+                }
+            }
+            targetsForVertex[i] = targets.toSortedArray();
+            offsets[i] = edgeCount;
+            edgeCount += targetsForVertex[i].length;
+        }
+        offsets[nids.length] = edgeCount;
+        int[] edgeTargets = new int[edgeCount];
+        for (int patternIndex = 0; patternIndex < edgesOfPattern.length; patternIndex++) {
+            edgesOfPattern[patternIndex] = new BitSet(edgeCount);
+        }
+        for (int i = 0; i < nids.length; i++) {
+            System.arraycopy(targetsForVertex[i], 0, edgeTargets, offsets[i], targetsForVertex[i].length);
+            for (int patternIndex = 0; patternIndex < edgesOfPattern.length; patternIndex++) {
+                int[] targetNids = targetsForNid[patternIndex].get(nids[i]);
+                if (targetNids != null) {
+                    for (int targetNid : targetNids) {
+                        int position = Arrays.binarySearch(edgeTargets, offsets[i], offsets[i + 1], indexForNid.get(targetNid));
+                        edgesOfPattern[patternIndex].set(position);
+                    }
+                }
+            }
+        }
+        return edgeTargets;
+    }
+
+    private static int[] union(int[] first, int[] second) {
+        MutableIntSet union = IntSets.mutable.of(first);
+        union.addAll(second);
+        return union.toArray();
+    }
+
+    /**
+     * Records that the entity with this nid changed after the snapshot was taken. Nids that are not vertices
+     * are ignored: the snapshot does not cover them either way.
+     */
+    void markDirty(int nid) {
+        int vertex = indexForNid(nid);
+        if (vertex < 0) {
+            return;
+        }
+        long bit = 1L << vertex;
+        long previous = dirty.getAndUpdate(vertex >>> 6, word -> word | bit);
+        if ((previous & bit) == 0) {
+            dirtyCount.incrementAndGet();
+        }
+    }
+
+    int dirtyCount() {
+        return dirtyCount.get();
+    }
+
+    /**
+     * @return true if the snapshot's edges for the concept are current
+     */
+    boolean covers(int conceptNid) {
+        int vertex = indexForNid(conceptNid);
+        return vertex >= 0 && !isDirtyVertex(vertex);
+    }
+
+    private boolean isDirtyVertex(int vertex) {
+        return (dirty.get(vertex >>> 6) & (1L << vertex)) != 0;
+    }
+
+    int vertexCount() {
+        return nids.length;
+    }
+
+    int indexForNid(int nid) {
+        return indexForNid.getIfAbsent(nid, -1);
+    }
+
+    int nid(int vertex) {
+        return nids[vertex];
+    }
+
+    int childOffset(int vertex) {
+        return childOffsets[vertex];
+    }
+
+    int childEnd(int vertex) {
+        return childOffsets[vertex + 1];
+    }
+
+    int childTarget(int position) {
+        return childTargets[position];
+    }
+
+    int parentOffset(int vertex) {
+        return parentOffsets[vertex];
+    }
+
+    int parentEnd(int vertex) {
+        return parentOffsets[vertex + 1];
+    }
+
+    int parentTarget(int position) {
+        return parentTargets[position];
+    }
+
+    /**
+     * @return the index of the pattern in this snapshot's edge bitmaps, or -1
+     */
+    int patternIndex(int patternNid) {
+        for (int i = 0; i < patternNids.length; i++) {
+            if (patternNids[i] == patternNid) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int patternCount() {
+        return patternNids.length;
+    }
+
+    int patternNid(int patternIndex) {
+        return patternNids[patternIndex];
+    }
+
+    boolean childEdgeOfPattern(int position, int patternIndex) {
+        return childEdgesOfPattern[patternIndex].get(position);
+    }
+
+    boolean parentEdgeOfPattern(int position, int patternIndex) {
+        return parentEdgesOfPattern[patternIndex].get(position);
+    }
+
+    /**
+     * @return whether the vertex's state was allowed when the snapshot was taken; check dirtiness separately
+     */
+    boolean allowedWhenBuilt(int vertex) {
+        return allowed.get(vertex);
+    }
+
+    boolean isDirty(int nid) {
+        int vertex = indexForNid(nid);
+        return vertex >= 0 && isDirtyVertex(vertex);
+    }
+
+    @Override
+    public String toString() {
+        return "NavigationGraph{" + nids.length + " vertices, " + childTargets.length + " child edges, " +
+                parentTargets.length + " parent edges, " + dirtyCount.get() + " dirty}";
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent bitset of the nids reached by a breadth-first traversal. Several fork-join workers expanding one
+ * level can race to reach the same concept; {@link #add(int)} decides atomically which of them claims it.
+ * <p>
+ * Bits are stored in pages of {@value #PAGE_SIZE} nids that are only allocated where the traversal goes, so
+ * a narrow subtree costs a few pages however large the nid space is.
+ */
+final class VisitedNids {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int WORDS_PER_PAGE = PAGE_SIZE / 64;
+
+    private final NidPageTable<AtomicLongArray> pages = new NidPageTable<>(PAGE_BITS, AtomicLongArray[]::new,
+            () -> new AtomicLongArray(WORDS_PER_PAGE));
+
+    /**
+     * @return true if the nid was not already visited, in which case the caller owns it
+     */
+    boolean add(int nid) {
+        int slot = pages.slot(nid);
+        long bit = 1L << slot;
+        long previous = pages.pageOrCreate(nid).getAndUpdate(slot >>> 6, word -> word | bit);
+        return (previous & bit) == 0;
+    }
+}
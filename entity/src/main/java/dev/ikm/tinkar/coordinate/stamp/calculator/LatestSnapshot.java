@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityFactory;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.VersionedCache;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Materialized latest versions of every entity for one {@link StampCalculatorWithCache}, for workloads that
+ * visit far more entities than the calculator's bounded latest cache holds, such as classifier extraction,
+ * exports or a full pass over a pattern.
+ * <p>
+ * The snapshot is a nid-indexed table holding, for each entity, the index of its latest version within the
+ * entity's versions; the rare contradictions are kept as {@link Latest} objects on the side. Reading an entry
+ * still fetches the entity, but skips computing its latest version. The table is built by a parallel scan
+ * of all entities, then maintained incrementally: a changed entity's entry is forgotten and recomputed the
+ * next time it is read.
+ * <p>
+ * Table pages are allocated only until the memory budget is reached; entities that do not fit are served by
+ * the calculator as if there were no snapshot. Obtain a snapshot with
+ * {@link StampCalculatorWithCache#materializeLatest(long)} and {@link #close()} it when the work is done.
+ */
+public final class LatestSnapshot implements Subscriber<Integer>, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LatestSnapshot.class);
+
+    private static final int NOT_MATERIALIZED = 0;
+    private static final int EMPTY = 1;
+    private static final int CONTRADICTION = -1;
+    /**
+     * Entries of single latest versions are offset past the markers above.
+     */
+    private static final int VERSION_OFFSET = 2;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final long PAGE_BYTES = 16L + 4L * PAGE_SIZE;
+
+    private final StampCalculatorWithCache calculator;
+    private final long maxBytes;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Latest<EntityVersion>> contradictions = new ConcurrentHashMap<>();
+    private final LongAdder materializedCount = new LongAdder();
+    private final CountDownLatch built = new CountDownLatch(1);
+    private final NidPageTable<AtomicIntegerArray> pages = new NidPageTable<>(PAGE_BITS, AtomicIntegerArray[]::new,
+            this::newPage);
+    private volatile boolean closed;
+
+    LatestSnapshot(StampCalculatorWithCache calculator, long maxBytes) {
+        this.calculator = calculator;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Computes the latest version of every concept, pattern and semantic, on the fork-join pool. Each entity's
+     * write sequence is read before its bytes, so an entity written during the build is not recorded.
+     */
+    void build() {
+        try {
+            MutableIntList nids = IntLists.mutable.empty();
+            PrimitiveData.get().forEachConceptNid(nids::add);
+            PrimitiveData.get().forEachPatternNid(nids::add);
+            PrimitiveData.get().forEachSemanticNid(nids::add);
+            TinkExecutor.forkJoinThreadPool().submit(() -> nids.primitiveParallelStream().forEach(nid -> {
+                if (closed) {
+                    return;
+                }
+                long writeSequence = VersionedCache.writeSequence(nid);
+                byte[] bytes = PrimitiveData.get().getBytes(nid);
+                if (bytes != null) {
+                    Entity<EntityVersion> entity = EntityFactory.make(bytes);
+                    record(entity, calculator.latest(entity), writeSequence);
+                }
+            })).get();
+            LOG.info("Materialized {} latest versions using {} bytes for {}", materializedCount.sum(), allocatedBytes.get(), calculator);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            built.countDown();
+        }
+    }
+
+    /**
+     * Waits until the thread that created the snapshot has finished {@link #build() building} it.
+     */
+    void awaitBuilt() {
+        try {
+            built.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the latest version of the entity, or null if it is not materialized
+     */
+    <V extends EntityVersion> Latest<V> latest(int nid) {
+        AtomicIntegerArray page = pages.page(nid);
+        if (page == null) {
+            return null;
+        }
+        int entry = page.get(pages.slot(nid));
+        switch (entry) {
+            case NOT_MATERIALIZED:
+                return null;
+            case EMPTY:
+                return Latest.empty();
+            case CONTRADICTION:
+                return (Latest<V>) contradictions.get(nid);
+        }
+        Entity<V> entity = Entity.getFast(nid);
+        if (entity == null || entity.versions().size() <= entry - VERSION_OFFSET) {
+            return null;
+        }
+        return new Latest<>(entity.versions().get(entry - VERSION_OFFSET));
+    }
+
+    /**
+     * Records a computed latest version, unless the entity's {@link VersionedCache#writeSequence(int) write
+     * sequence} moved from {@code writeSequenceBefore}, read before the entity was fetched, the snapshot is
+     * closed, or its memory budget is spent.
+     */
+    void record(Entity<? extends EntityVersion> entity, Latest<? extends EntityVersion> latest, long writeSequenceBefore) {
+        if (closed || entity == null) {
+            return;
+        }
+        int entry;
+        if (latest.isAbsent()) {
+            entry = EMPTY;
+        } else if (latest.isContradicted()) {
+            entry = CONTRADICTION;
+        } else {
+            entry = versionIndex(entity.versions(), latest.get());
+            if (entry < 0) {
+                return;
+            }
+            entry += VERSION_OFFSET;
+        }
+        AtomicIntegerArray page = pages.pageOrCreate(entity.nid());
+        if (page == null) {
+            return;
+        }
+        int slot = pages.slot(entity.nid());
+        if (VersionedCache.writeSequence(entity.nid()) != writeSequenceBefore ||
+                !page.compareAndSet(slot, NOT_MATERIALIZED, entry)) {
+            return;
+        }
+        materializedCount.increment();
+        // Until the contradiction is stored, a reader of the entry finds none and computes the latest version itself.
+        Latest<EntityVersion> contradiction = (Latest<EntityVersion>) latest;
+        if (entry == CONTRADICTION) {
+            contradictions.put(entity.nid(), contradiction);
+        }
+        // A change that landed between the check and the compareAndSet reset the entry before it was written,
+        // so the entry may be stale: withdraw it.
+        if (VersionedCache.writeSequence(entity.nid()) != writeSequenceBefore) {
+            if (page.compareAndSet(slot, entry, NOT_MATERIALIZED)) {
+                materializedCount.decrement();
+            }
+            if (entry == CONTRADICTION) {
+                contradictions.remove(entity.nid(), contradiction);
+            }
+        }
+    }
+
+    private static int versionIndex(ImmutableList<? extends EntityVersion> versions, EntityVersion version) {
+        for (int i = 0; i < versions.size(); i++) {
+            if (versions.get(i) == version) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of entities whose latest version is currently materialized
+     */
+    public long materializedCount() {
+        return materializedCount.sum();
+    }
+
+    /**
+     * @return bytes allocated for the table, excluding contradictions
+     */
+    public long allocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases the table; the calculator returns to its bounded latest cache.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        calculator.releaseLatestSnapshot(this);
+        pages.release();
+        contradictions.clear();
+        allocatedBytes.set(0);
+        materializedCount.reset();
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (nid == Integer.MIN_VALUE) {
+            pages.clear();
+            contradictions.clear();
+            allocatedBytes.set(0);
+            materializedCount.reset();
+            return;
+        }
+        AtomicIntegerArray page = pages.page(nid);
+        if (page != null && page.getAndSet(pages.slot(nid), NOT_MATERIALIZED) != NOT_MATERIALIZED) {
+            materializedCount.decrement();
+            contradictions.remove(nid);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatestSnapshot{" + materializedCount() + " materialized, " + allocatedBytes() + "/" + maxBytes +
+                " bytes, closed=" + closed + '}';
+    }
+
+    /**
+     * Allocates a table page, unless the snapshot is closed or the page would exceed the memory budget.
+     */
+    private AtomicIntegerArray newPage() {
+        if (closed || allocatedBytes.get() + PAGE_BYTES > maxBytes) {
+            return null;
+        }
+        allocatedBytes.addAndGet(PAGE_BYTES);
+        return new AtomicIntegerArray(PAGE_SIZE);
+    }
+}
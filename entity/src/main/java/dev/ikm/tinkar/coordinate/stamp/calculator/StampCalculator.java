@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.coordinate.stamp.calculator;
 
+import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.NonExistentValue;
@@ -62,6 +63,7 @@
 import java.util.OptionalInt;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Stream;
 
 import static dev.ikm.tinkar.terms.TinkarTerm.STAMP_PATTERN;
@@ -165,6 +167,33 @@ default boolean isLatestActive(int nid) {
 
     <V extends EntityVersion> Latest<V> latest(int nid);
 
+    /**
+     * Computes the latest version of each nid, placing the result for {@code nids[i]} in {@code latestVersions[i]}.
+     * Implementations may read and decode the entities in bulk, so prefer this to calling {@link #latest(int)}
+     * in a loop when the nids are known up front.
+     *
+     * @param nids           the entities to compute
+     * @param latestVersions array to fill, at least as long as {@code nids}
+     */
+    default void latest(int[] nids, Latest<? extends EntityVersion>[] latestVersions) {
+        for (int i = 0; i < nids.length; i++) {
+            latestVersions[i] = latest(nids[i]);
+        }
+    }
+
+    /**
+     * Computes the latest version of each nid with {@link #latest(int[], Latest[])}, then passes each result and
+     * its nid to the procedure in the collection's order.
+     */
+    default <V extends EntityVersion> void forEachLatest(IntIdCollection nids, ObjIntConsumer<Latest<V>> procedure) {
+        int[] nidArray = nids.toArray();
+        Latest<? extends EntityVersion>[] latestVersions = new Latest[nidArray.length];
+        latest(nidArray, latestVersions);
+        for (int i = 0; i < nidArray.length; i++) {
+            procedure.accept((Latest<V>) latestVersions[i], nidArray[i]);
+        }
+    }
+
     <V extends EntityVersion> List<DiTreeVersion<V>> getVersionGraphList(Entity<V> chronicle);
 
     /**
@@ -43,6 +43,11 @@ default <V extends EntityVersion> Latest<V> latest(int nid) {
         return stampCalculator().latest(nid);
     }
 
+    @Override
+    default void latest(int[] nids, Latest<? extends EntityVersion>[] latestVersions) {
+        stampCalculator().latest(nids, latestVersions);
+    }
+
     @Override
     default <V extends EntityVersion> List<DiTreeVersion<V>> getVersionGraphList(Entity<V> chronicle) {
         return stampCalculator().getVersionGraphList(chronicle);
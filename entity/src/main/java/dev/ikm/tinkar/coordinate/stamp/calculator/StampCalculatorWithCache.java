@@ -51,14 +51,13 @@
  *
  */
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.ikm.tinkar.collection.ConcurrentReferenceHashMap;
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
 import dev.ikm.tinkar.common.util.functional.TriConsumer;
-import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.coordinate.PathService;
 import dev.ikm.tinkar.coordinate.stamp.StampBranchRecord;
 import dev.ikm.tinkar.coordinate.stamp.StampCoordinate;
@@ -68,7 +67,6 @@
 import dev.ikm.tinkar.coordinate.stamp.StampPosition;
 import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
-import dev.ikm.tinkar.entity.CacheInvalidationSubscriber;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityFactory;
 import dev.ikm.tinkar.entity.EntityService;
@@ -80,16 +78,21 @@
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
 import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.VersionedCache;
 import dev.ikm.tinkar.entity.graph.DiTreeVersion;
 import dev.ikm.tinkar.entity.graph.VersionVertex;
 import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.primitive.ImmutableIntObjectMap;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.api.set.ImmutableSet;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
 import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -105,10 +108,10 @@
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -125,26 +128,61 @@ public class StampCalculatorWithCache implements StampCalculator {
     private static final ConcurrentReferenceHashMap<StampCoordinateRecord, StampCalculatorWithCache> SINGLETONS =
             new ConcurrentReferenceHashMap<>(ConcurrentReferenceHashMap.ReferenceType.WEAK,
                     ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    /**
+     * Stamp order tables shared by every live calculator with the same route; held weakly so a table goes
+     * away with the last calculator that uses it.
+     */
+    private static final ConcurrentReferenceHashMap<Route, StampOrderTable> ROUTE_TABLES =
+            new ConcurrentReferenceHashMap<>(ConcurrentReferenceHashMap.ReferenceType.WEAK,
+                    ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    /**
+     * Allowed-state bits shared by every live calculator with the same allowed states.
+     */
+    private static final ConcurrentReferenceHashMap<StateSet, StampFlags> ALLOWED_STATE_FLAGS =
+            new ConcurrentReferenceHashMap<>(ConcurrentReferenceHashMap.ReferenceType.WEAK,
+                    ConcurrentReferenceHashMap.ReferenceType.WEAK);
     /**
      * The coordinate.
      */
     private final StampCoordinateRecord filter;
     private final StateSet allowedStates;
-    private final ConcurrentHashMap<Integer, ImmutableSet<StampBranchRecord>> branchMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampOnRoute = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampIsAllowedState = new ConcurrentHashMap<>();
+    /**
+     * Branches by path nid; replaced as a whole when a path is first asked for, since paths are few.
+     */
+    private volatile ImmutableIntObjectMap<ImmutableSet<StampBranchRecord>> branchMap = IntObjectMaps.immutable.empty();
+    /**
+     * Strongly held key of {@link #stampOrderTable} in {@link #ROUTE_TABLES}.
+     */
+    private final Route route;
+    /**
+     * Rank on this calculator's route and time for each stamp, so that version comparisons
+     * inside latest() do not resolve stamps or consult the segment map.
+     */
+    private final StampOrderTable stampOrderTable;
+    /**
+     * Whether each stamp's state is in {@link #allowedStates}.
+     */
+    private final StampFlags allowedStateFlags;
     /**
      * Mapping from pathNid to each segment for that pathNid. There is one entry
      * for each path reachable antecedent to the destination position of the
      * computer.
      */
-    private final ConcurrentHashMap<Integer, Segment> pathNidSegmentMap = new ConcurrentHashMap<>();
-    private final Cache<Integer, Latest<PatternEntityVersion>> patternVersionCache = Caffeine.newBuilder().maximumSize(512).build();
-    private final Cache<Long, OptionalInt> indexForMeaningCache = Caffeine.newBuilder().maximumSize(1024).build();
-    private final Cache<Long, OptionalInt> indexForPurposeCache = Caffeine.newBuilder().maximumSize(1024).build();
-    private final Cache<Integer, Latest<EntityVersion>> latestCache = Caffeine.newBuilder().maximumSize(10_240).build();
-    private final CacheInvalidationSubscriber cacheInvalidationSubscriber = new CacheInvalidationSubscriber();
-    private final CacheInvalidationIfPatternSubscriber cacheInvalidationIfPatternSubscriber = new CacheInvalidationIfPatternSubscriber();
+    private final ImmutableIntObjectMap<Segment> pathNidSegmentMap;
+    /**
+     * Number of segments on the route; a segment's rank is its distance from the end of this count.
+     */
+    private final int segmentCount;
+    private final VersionedCache<Latest<PatternEntityVersion>> patternVersionCache = new VersionedCache<>(512);
+    /**
+     * Field meanings and purposes of the latest version of each pattern, recomputed only when the pattern changes.
+     */
+    private final VersionedCache<PatternFieldIndex> patternFieldIndexCache = new VersionedCache<>(512);
+    private final VersionedCache<Latest<EntityVersion>> latestCache = new VersionedCache<>(10_240);
+    /**
+     * Opt-in table of latest versions for every entity; when present it is consulted before {@link #latestCache}.
+     */
+    private volatile LatestSnapshot latestSnapshot;
     /**
      * The error count.
      */
@@ -158,12 +196,18 @@ public class StampCalculatorWithCache implements StampCalculator {
     private StampCalculatorWithCache(StampCoordinateRecord filter) {
         //For the internal callback to populate the cache
         this.filter = filter;
-        setupPathNidSegmentMap(filter.stampPosition().toStampPositionImmutable());
+        MutableIntObjectMap<Segment> segments = IntObjectMaps.mutable.empty();
+        this.segmentCount = setupPathNidSegmentMap(filter.stampPosition().toStampPositionImmutable(), segments);
+        this.pathNidSegmentMap = segments.toImmutable();
         this.allowedStates = filter.allowedStates();
-        this.cacheInvalidationSubscriber.addCaches(patternVersionCache, latestCache);
-        Entity.provider().addSubscriberWithWeakReference(this.cacheInvalidationSubscriber);
-        this.cacheInvalidationIfPatternSubscriber.addCaches(indexForMeaningCache, indexForPurposeCache);
-        Entity.provider().addSubscriberWithWeakReference(this.cacheInvalidationIfPatternSubscriber);
+        this.route = new Route(filter.stampPosition(), filter.moduleNids(), filter.excludedModuleNids());
+        this.stampOrderTable = ROUTE_TABLES.computeIfAbsent(this.route, routeKey -> subscribe(new StampOrderTable()));
+        this.allowedStateFlags = ALLOWED_STATE_FLAGS.computeIfAbsent(this.allowedStates, states -> subscribe(new StampFlags()));
+    }
+
+    private static <S extends Subscriber<Integer>> S subscribe(S subscriber) {
+        Entity.provider().addSubscriberWithWeakReference(subscriber);
+        return subscriber;
     }
 
     /**
@@ -298,9 +342,121 @@ public Stream<Latest<SemanticEntityVersion>> streamLatestVersionForPattern(int p
 
     @Override
     public <V extends EntityVersion> Latest<V> latest(int nid) {
+        Entity.provider().deliverPendingChanges();
+        LatestSnapshot snapshot = this.latestSnapshot;
+        if (snapshot != null) {
+            Latest<V> latest = snapshot.latest(nid);
+            if (latest != null) {
+                return latest;
+            }
+            long writeSequence = VersionedCache.writeSequence(nid);
+            Entity<V> entity = Entity.getFast(nid);
+            latest = latest(entity);
+            snapshot.record(entity, latest, writeSequence);
+            return latest;
+        }
         return (Latest<V>) latestCache.get(nid, latestNid -> this.latest(Entity.getFast(latestNid)));
     }
 
+    /**
+     * Serves what it can from the snapshot or latest cache, then reads the remaining entities' bytes in one bulk
+     * call, which the provider may order by storage location, and decodes them on the fork-join pool.
+     */
+    @Override
+    public void latest(int[] nids, Latest<? extends EntityVersion>[] latestVersions) {
+        if (latestVersions.length < nids.length) {
+            throw new IllegalArgumentException("Results array of length " + latestVersions.length +
+                    " is shorter than " + nids.length + " nids");
+        }
+        Entity.provider().deliverPendingChanges();
+        LatestSnapshot snapshot = this.latestSnapshot;
+        MutableIntList missingPositions = IntLists.mutable.empty();
+        for (int i = 0; i < nids.length; i++) {
+            latestVersions[i] = snapshot != null ? snapshot.latest(nids[i]) : latestCache.getIfPresent(nids[i]);
+            if (latestVersions[i] == null) {
+                missingPositions.add(i);
+            }
+        }
+        if (missingPositions.isEmpty()) {
+            return;
+        }
+        int[] missingNids = new int[missingPositions.size()];
+        long[] writeSequences = new long[missingNids.length];
+        for (int i = 0; i < missingNids.length; i++) {
+            missingNids[i] = nids[missingPositions.get(i)];
+            writeSequences[i] = VersionedCache.writeSequence(missingNids[i]);
+        }
+        byte[][] missingBytes = PrimitiveData.get().getBytes(missingNids);
+        IntStream positions = IntStream.range(0, missingNids.length);
+        if (missingNids.length < TinkExecutor.defaultParallelBatchSize()) {
+            positions.forEach(i -> latestVersions[missingPositions.get(i)] =
+                    decodeLatest(missingNids[i], missingBytes[i], snapshot, writeSequences[i]));
+            return;
+        }
+        try {
+            TinkExecutor.forkJoinThreadPool().submit(() -> positions.parallel().forEach(i ->
+                    latestVersions[missingPositions.get(i)] =
+                            decodeLatest(missingNids[i], missingBytes[i], snapshot, writeSequences[i]))).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Latest<EntityVersion> decodeLatest(int nid, byte[] bytes, LatestSnapshot snapshot, long writeSequence) {
+        if (bytes == null) {
+            return Latest.empty();
+        }
+        Entity<EntityVersion> entity = EntityFactory.make(bytes);
+        Latest<EntityVersion> latest = latest(entity);
+        if (snapshot != null) {
+            snapshot.record(entity, latest, writeSequence);
+        } else {
+            latestCache.put(nid, writeSequence, latest);
+        }
+        return latest;
+    }
+
+    /**
+     * Materializes the latest version of every entity for this calculator, so that passes over more entities
+     * than the latest cache holds do not recompute them. Blocks while the snapshot is built by a parallel scan;
+     * afterwards it is kept current as entities change. Returns the open snapshot if there already is one.
+     *
+     * @param maxBytes memory budget for the snapshot's table; entities beyond it are not materialized
+     * @return the snapshot, to be closed when no longer needed
+     */
+    public LatestSnapshot materializeLatest(long maxBytes) {
+        LatestSnapshot snapshot;
+        boolean created = false;
+        synchronized (this) {
+            snapshot = this.latestSnapshot;
+            if (snapshot == null || snapshot.isClosed()) {
+                snapshot = new LatestSnapshot(this, maxBytes);
+                Entity.provider().addSubscriberWithWeakReference(snapshot);
+                this.latestSnapshot = snapshot;
+                created = true;
+            }
+        }
+        // Build outside the monitor, so that other uses of the calculator are not held up by the scan.
+        if (created) {
+            snapshot.build();
+        } else {
+            snapshot.awaitBuilt();
+        }
+        return snapshot;
+    }
+
+    public Optional<LatestSnapshot> latestSnapshot() {
+        return Optional.ofNullable(this.latestSnapshot);
+    }
+
+    void releaseLatestSnapshot(LatestSnapshot snapshot) {
+        synchronized (this) {
+            if (this.latestSnapshot == snapshot) {
+                this.latestSnapshot = null;
+            }
+        }
+    }
+
     public <V extends EntityVersion> List<DiTreeVersion<V>> getVersionGraphList(Entity<V> chronicle) {
         return getVersionGraphList(chronicle.versions());
     }
@@ -317,24 +473,18 @@ public <V extends EntityVersion> Latest<V> latest(Entity<V> chronicle) {
             return Latest.empty();
         }
 
-        chronicle.versions()
-                .stream()
-                .filter((newVersionToTest) -> (newVersionToTest.stamp() != null && newVersionToTest.stamp().time() > Long.MIN_VALUE))
-                .filter((newVersionToTest) -> (onRoute(newVersionToTest.stamp())))
-                .forEach((newVersionToTest) -> {
-                    if (latestVersionSet.isEmpty()) {
-                        latestVersionSet.add(newVersionToTest);
-                    } else {
-                        handlePart(latestVersionSet, newVersionToTest);
-                    }
-                });
-
-        final HashSet<EntityVersion> versionsWithoutSpecifiedStates = new HashSet<>();
+        for (V newVersionToTest : chronicle.versions()) {
+            int stampNid = newVersionToTest.stampNid();
+            if (StampOrderTable.onRoute(stampEntry(stampNid)) && stampOrderTable.time(stampNid) > Long.MIN_VALUE) {
+                if (latestVersionSet.isEmpty()) {
+                    latestVersionSet.add(newVersionToTest);
+                } else {
+                    handlePart(latestVersionSet, newVersionToTest);
+                }
+            }
+        }
 
-        latestVersionSet.stream()
-                .filter((version) -> (!allowedStates.contains(version.state())))
-                .forEach(versionsWithoutSpecifiedStates::add);
-        latestVersionSet.removeAll(versionsWithoutSpecifiedStates);
+        latestVersionSet.removeIf(version -> !isAllowedState(version.stampNid()));
 
         final List<EntityVersion> latestVersionList = new ArrayList<>(latestVersionSet);
 
@@ -385,11 +535,12 @@ public void forEachSemanticVersionOfPatternParallel(int patternNid, BiConsumer<S
             int[] semanticNidsOfPattern = PrimitiveData.get().semanticNidsOfPattern(patternNid);
             PrimitiveData.get().forEachParallel(IntLists.immutable.of(semanticNidsOfPattern), (byte[] bytes, int nid) -> {
 
-                Latest<? extends EntityVersion> latestSemanticVersion =
-                        latestCache.get(nid, integer -> {
-                            Entity<EntityVersion> semanticRecord = EntityFactory.make(bytes);
-                            return latest(semanticRecord);
-                        });
+                // The bytes may predate the nid's current write sequence, so a result computed from them is not cached.
+                Latest<? extends EntityVersion> latestSemanticVersion = latestCache.getIfPresent(nid);
+                if (latestSemanticVersion == null) {
+                    Entity<EntityVersion> semanticRecord = EntityFactory.make(bytes);
+                    latestSemanticVersion = latest(semanticRecord);
+                }
                 latestSemanticVersion.ifPresent(semanticVersion -> procedure.accept((SemanticEntityVersion) semanticVersion, patternEntityVersion));
             });
         });
@@ -438,40 +589,21 @@ public Latest<PatternEntityVersion> latestPatternEntityVersion(int patternNid) {
 
     @Override
     public OptionalInt getIndexForMeaning(int patternNid, int meaningNid) {
-        long patternMeaningKey = IntsInLong.ints2Long(patternNid, meaningNid);
-        indexForMeaningCache.invalidateAll();
-        return indexForMeaningCache.get(patternMeaningKey, key -> {
-            Latest<PatternEntityVersion> latestPatternVersion = latestPatternEntityVersion(patternNid);
-            if (latestPatternVersion.isPresent()) {
-                OptionalInt optionalIndexForMeaning;
-                int indexForMeaning = latestPatternVersion.get().indexForMeaning(meaningNid);
-                if (indexForMeaning < 0) {
-                    optionalIndexForMeaning = OptionalInt.empty();
-                } else {
-                    optionalIndexForMeaning = OptionalInt.of(indexForMeaning);
-                }
-                return optionalIndexForMeaning;
-            }
-            return OptionalInt.empty();
-        });
+        return PatternFieldIndex.indexOf(patternFieldIndex(patternNid).meaningNids(), meaningNid);
     }
 
     @Override
     public OptionalInt getIndexForPurpose(int patternNid, int purposeNid) {
-        long patternMeaningKey = IntsInLong.ints2Long(patternNid, purposeNid);
-        return indexForPurposeCache.get(patternMeaningKey, key -> {
+        return PatternFieldIndex.indexOf(patternFieldIndex(patternNid).purposeNids(), purposeNid);
+    }
+
+    private PatternFieldIndex patternFieldIndex(int patternNid) {
+        return patternFieldIndexCache.get(patternNid, nid -> {
             Latest<PatternEntityVersion> latestPatternVersion = latestPatternEntityVersion(patternNid);
             if (latestPatternVersion.isPresent()) {
-                OptionalInt optionalIndexForMeaning;
-                int indexForPurpose = latestPatternVersion.get().indexForPurpose(purposeNid);
-                if (indexForPurpose < 0) {
-                    optionalIndexForMeaning = OptionalInt.empty();
-                } else {
-                    optionalIndexForMeaning = OptionalInt.of(indexForPurpose);
-                }
-                return optionalIndexForMeaning;
+                return PatternFieldIndex.of(latestPatternVersion.get());
             }
-            return OptionalInt.empty();
+            return PatternFieldIndex.EMPTY;
         });
     }
 
@@ -523,11 +655,60 @@ public <T> Latest<Field<T>> getFieldForSemantic(int componentNid, int criterionN
      * @return true, if successful
      */
     public boolean onRoute(int stampNid) {
-        if (stampOnRoute.containsKey(stampNid)) {
-            return stampOnRoute.get(stampNid);
+        return StampOrderTable.onRoute(stampEntry(stampNid));
+    }
+
+    /**
+     * Returns the stamp order table entry for the stamp, computing and recording it on first use. An entry
+     * computed from a stamp that was rewritten during the computation is withdrawn again, so that the next
+     * use recomputes it from the rewritten stamp.
+     */
+    private int stampEntry(int stampNid) {
+        int entry = stampOrderTable.entry(stampNid);
+        if (entry != StampOrderTable.UNKNOWN) {
+            return entry;
         }
+        long writeSequence = VersionedCache.writeSequence(stampNid);
         StampEntity stamp = Entity.getStamp(stampNid);
-        return onRoute(stamp);
+        if (stamp == null) {
+            // Not (yet) stored; do not record so that a later write is seen.
+            return StampOrderTable.entry(0);
+        }
+        int rank = 0;
+        final Segment seg = this.pathNidSegmentMap.get(stamp.pathNid());
+        if (seg != null && seg.containsPosition(stamp.pathNid(), stamp.moduleNid(), stamp.time())) {
+            rank = segmentCount - seg.segmentSequence;
+        }
+        entry = StampOrderTable.entry(rank);
+        if (stampOrderTable.putIfUnknown(stampNid, entry, stamp.time()) &&
+                VersionedCache.writeSequence(stampNid) != writeSequence) {
+            stampOrderTable.withdraw(stampNid, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Relative position of two stamps from the stamp order table: stamps on an earlier route segment precede
+     * stamps on a later one, and stamps on the same segment are ordered by time.
+     */
+    private RelativePosition tableRelativePosition(int stampNid1, int stampNid2) {
+        int rank1 = StampOrderTable.rank(stampEntry(stampNid1));
+        int rank2 = StampOrderTable.rank(stampEntry(stampNid2));
+        if (rank1 == 0 || rank2 == 0) {
+            return RelativePosition.UNREACHABLE;
+        }
+        if (rank1 != rank2) {
+            return rank1 < rank2 ? RelativePosition.BEFORE : RelativePosition.AFTER;
+        }
+        long time1 = stampOrderTable.time(stampNid1);
+        long time2 = stampOrderTable.time(stampNid2);
+        if (time1 < time2) {
+            return RelativePosition.BEFORE;
+        }
+        if (time1 > time2) {
+            return RelativePosition.AFTER;
+        }
+        return RelativePosition.EQUAL;
     }
 
     /**
@@ -539,26 +720,11 @@ public boolean onRoute(int stampNid) {
      */
     public RelativePosition fastRelativePosition(int stampNid1,
                                                  int stampNid2) {
-        StampEntity stamp1 = Entity.getStamp(stampNid1);
-        StampEntity stamp2 = Entity.getStamp(stampNid2);
-
-        return getRelativePosition(stamp1, stamp2);
+        return tableRelativePosition(stampNid1, stampNid2);
     }
 
     public boolean onRoute(StampEntity stamp) {
-        if (stampOnRoute.containsKey(stamp.nid())) {
-            return stampOnRoute.get(stamp.nid());
-        }
-        final Segment seg = this.pathNidSegmentMap.get(stamp.pathNid());
-        boolean returnValue = false;
-        if (seg != null) {
-            returnValue = seg.containsPosition(
-                    stamp.pathNid(),
-                    stamp.moduleNid(),
-                    stamp.time());
-        }
-        stampOnRoute.put(stamp.pathNid(), returnValue);
-        return returnValue;
+        return onRoute(stamp.nid());
     }
 
     /**
@@ -631,9 +797,7 @@ private void handlePart(HashSet<EntityVersion> partsForPosition, EntityVersion p
      */
     public RelativePosition fastRelativePosition(EntityVersion v1,
                                                  EntityVersion v2) {
-        StampEntity v1Stamp = v1.stamp();
-        StampEntity v2Stamp = v2.stamp();
-        return getRelativePosition(v1Stamp, v2Stamp);
+        return tableRelativePosition(v1.stampNid(), v2.stampNid());
     }
 
     public RelativePosition getRelativePosition(StampEntity stamp1, StampEntity stamp2) {
@@ -823,7 +987,14 @@ private RelativePosition traverseForks(int stampPathNid, StampBranchRecord stamp
     }
 
     public ImmutableSet<StampBranchRecord> getBranches(int pathConceptNid) {
-        return branchMap.computeIfAbsent(pathConceptNid, (pathNid) -> PathService.get().getPathBranches(pathConceptNid));
+        ImmutableSet<StampBranchRecord> branches = branchMap.get(pathConceptNid);
+        if (branches == null) {
+            branches = PathService.get().getPathBranches(pathConceptNid);
+            synchronized (this) {
+                branchMap = branchMap.newWithKeyValue(pathConceptNid, branches);
+            }
+        }
+        return branches;
     }
 
     public StampCoordinateRecord filter() {
@@ -866,7 +1037,8 @@ public String toString() {
     // recursively called method
     private void addOriginsToPathNidSegmentMap(StampPositionRecord destination,
                                                AtomicInteger segmentSequence,
-                                               ConcurrentSkipListSet<Integer> precedingSegments) {
+                                               MutableIntSet precedingSegments,
+                                               MutableIntObjectMap<Segment> pathNidSegmentMap) {
         final Segment segment = new Segment(
                 segmentSequence.getAndIncrement(),
                 destination.getPathForPositionNid(),
@@ -887,7 +1059,8 @@ private void addOriginsToPathNidSegmentMap(StampPositionRecord destination,
                         addOriginsToPathNidSegmentMap(
                                 origin,
                                 segmentSequence,
-                                precedingSegments)
+                                precedingSegments,
+                                pathNidSegmentMap)
                 );
     }
 
@@ -895,19 +1068,22 @@ private void addOriginsToPathNidSegmentMap(StampPositionRecord destination,
      * Setup path nid segment map.
      *
      * @param destination the destination
-     * @return the open int object hash map
+     * @param pathNidSegmentMap the map to populate
+     * @return the number of segments
      */
-    private void setupPathNidSegmentMap(StampPositionRecord destination) {
+    private int setupPathNidSegmentMap(StampPositionRecord destination, MutableIntObjectMap<Segment> pathNidSegmentMap) {
         final AtomicInteger segmentSequence = new AtomicInteger(0);
 
         // the sequence of the preceding segments is set in the recursive
         // call.
-        final ConcurrentSkipListSet<Integer> precedingSegments = new ConcurrentSkipListSet<>();
+        final MutableIntSet precedingSegments = IntSets.mutable.empty();
 
         // call to recursive method...
         addOriginsToPathNidSegmentMap(destination,
                 segmentSequence,
-                precedingSegments);
+                precedingSegments,
+                pathNidSegmentMap);
+        return segmentSequence.get();
     }
 
     /**
@@ -1035,12 +1211,16 @@ private int[] getResults(MutableIntSet stampsForPosition) {
     }
 
     private boolean isAllowedState(int stampNid) {
-        if (stampIsAllowedState.containsKey(stampNid)) {
-            return stampIsAllowedState.get(stampNid);
+        int flag = allowedStateFlags.get(stampNid);
+        if (flag != StampFlags.UNKNOWN) {
+            return flag == StampFlags.TRUE;
         }
         StampEntity stamp = Entity.getStamp(stampNid);
+        if (stamp == null) {
+            return false;
+        }
         boolean allowed = this.allowedStates.contains(State.fromConceptNid(stamp.stateNid()));
-        stampIsAllowedState.put(stampNid, allowed);
+        allowedStateFlags.set(stampNid, allowed);
         return allowed;
     }
 
@@ -1063,7 +1243,7 @@ public <V extends EntityVersion> Latest<V> latestIfPattern(int nid, int patternN
         Entity entity = EntityService.get().getEntityFast(nid);
         if (entity instanceof SemanticEntity semanticEntity) {
             if (semanticEntity.patternNid() == patternNid) {
-                return (Latest<V>) latestCache.get(nid, latestNid -> this.latest(Entity.getFast(latestNid)));
+                return latest(nid);
             }
         }
         return Latest.empty();
@@ -1077,6 +1257,40 @@ public void reset() {
         }
     }
 
+    /**
+     * Meaning and purpose nid of each field of a pattern version, by field index. Patterns have a handful
+     * of fields, so a scan of the array is cheaper than any hashed lookup.
+     */
+    private record PatternFieldIndex(int[] meaningNids, int[] purposeNids) {
+        static final PatternFieldIndex EMPTY = new PatternFieldIndex(new int[0], new int[0]);
+
+        static PatternFieldIndex of(PatternEntityVersion patternVersion) {
+            int fieldCount = patternVersion.fieldDefinitions().size();
+            int[] meaningNids = new int[fieldCount];
+            int[] purposeNids = new int[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                meaningNids[i] = patternVersion.fieldDefinitions().get(i).meaningNid();
+                purposeNids[i] = patternVersion.fieldDefinitions().get(i).purposeNid();
+            }
+            return new PatternFieldIndex(meaningNids, purposeNids);
+        }
+
+        static OptionalInt indexOf(int[] nids, int nid) {
+            for (int i = 0; i < nids.length; i++) {
+                if (nids[i] == nid) {
+                    return OptionalInt.of(i);
+                }
+            }
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Everything about a stamp coordinate that decides whether and where a stamp falls on its route.
+     */
+    private record Route(StampPositionRecord stampPosition, IntIdSet moduleNids, IntIdSet excludedModuleNids) {
+    }
+
     private static class VersionWithDistance<V extends EntityVersion> implements Comparable<VersionWithDistance> {
         final BigInteger computedDistance;
         final V version;
@@ -1117,7 +1331,7 @@ private class Segment {
         /**
          * The preceding segments.
          */
-        ConcurrentSkipListSet<Integer> precedingSegments;
+        ImmutableIntSet precedingSegments;
 
         /**
          * Instantiates a new segment.
@@ -1127,11 +1341,11 @@ private class Segment {
          * @param endTime           the end time
          * @param precedingSegments the preceding segments
          */
-        private Segment(int segmentSequence, int pathConceptNid, long endTime, ConcurrentSkipListSet<Integer> precedingSegments) {
+        private Segment(int segmentSequence, int pathConceptNid, long endTime, MutableIntSet precedingSegments) {
             this.segmentSequence = segmentSequence;
             this.pathConceptNid = pathConceptNid;
             this.endTime = endTime;
-            this.precedingSegments = precedingSegments.clone();
+            this.precedingSegments = precedingSegments.toImmutable();
         }
 
         /**
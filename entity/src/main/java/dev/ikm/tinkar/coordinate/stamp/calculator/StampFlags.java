@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent bitset holding one memoized boolean per stamp nid as two bits: whether the value is known,
+ * and the value itself. Used in place of a {@code ConcurrentHashMap<Integer, Boolean>} so that lookups in
+ * the innermost loop of latest-version computation neither box nor hash.
+ * <p>
+ * Bits are stored in pages of {@value #PAGE_SIZE} nids that are only allocated where stamps exist. The set
+ * subscribes to entity changes and forgets a stamp when it is rewritten.
+ * <p>
+ * {@link StampCalculatorWithCache} keeps one set per {@link dev.ikm.tinkar.coordinate.stamp.StateSet} for
+ * whether a stamp's state is allowed, shared by every calculator with those allowed states.
+ */
+final class StampFlags implements Subscriber<Integer> {
+    static final int UNKNOWN = 0;
+    static final int FALSE = 0b01;
+    static final int TRUE = 0b11;
+
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /**
+     * Two bits per stamp, 32 stamps per long.
+     */
+    private static final int WORDS_PER_PAGE = PAGE_SIZE / 32;
+
+    private final NidPageTable<AtomicLongArray> pages = new NidPageTable<>(PAGE_BITS, AtomicLongArray[]::new,
+            () -> new AtomicLongArray(WORDS_PER_PAGE));
+
+    /**
+     * @return {@link #UNKNOWN}, {@link #FALSE} or {@link #TRUE}
+     */
+    int get(int stampNid) {
+        AtomicLongArray page = pages.page(stampNid);
+        if (page == null) {
+            return UNKNOWN;
+        }
+        int slot = pages.slot(stampNid);
+        return (int) (page.get(slot >>> 5) >>> shift(slot)) & TRUE;
+    }
+
+    void set(int stampNid, boolean value) {
+        update(pages.pageOrCreate(stampNid), pages.slot(stampNid), value ? TRUE : FALSE);
+    }
+
+    void invalidate(int stampNid) {
+        AtomicLongArray page = pages.page(stampNid);
+        if (page != null) {
+            update(page, pages.slot(stampNid), UNKNOWN);
+        }
+    }
+
+    void invalidateAll() {
+        pages.clear();
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (nid == Integer.MIN_VALUE) {
+            invalidateAll();
+        } else {
+            invalidate(nid);
+        }
+    }
+
+    private static void update(AtomicLongArray page, int slot, int bits) {
+        int shift = shift(slot);
+        long mask = (long) TRUE << shift;
+        long value = (long) bits << shift;
+        page.getAndUpdate(slot >>> 5, word -> (word & ~mask) | value);
+    }
+
+    private static int shift(int slot) {
+        return (slot & 31) << 1;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-route table, indexed by stamp nid, of everything a {@link StampCalculatorWithCache} needs to order
+ * two versions: an int entry holding the stamp's rank on the coordinate's route, plus the stamp's time.
+ * <p>
+ * The route of a stamp coordinate is a chain of path segments, and every stamp on an earlier segment precedes
+ * every stamp on a later one. Rank is therefore the segment position counted from the oldest origin, so two
+ * stamps on the route compare by rank, then by time, without resolving either stamp. A rank of zero means the
+ * stamp is not on the route.
+ * <p>
+ * Entries are computed on first use and stored in pages of {@value #PAGE_SIZE} nids that are only allocated
+ * where stamps exist. An entry is only published into an unknown slot, so a computation never overwrites an
+ * invalidation or a concurrent result. The table subscribes to entity changes and forgets a stamp when it is
+ * rewritten, for example when an uncommitted stamp receives its commit time.
+ * <p>
+ * Nothing in the table depends on allowed states, so calculators whose coordinates differ only in allowed
+ * states share one table; see {@link StampFlags} for the allowed-state bits.
+ */
+final class StampOrderTable implements Subscriber<Integer> {
+    static final int UNKNOWN = 0;
+    /**
+     * Slot reserved by the thread publishing an entry, while it writes the time. Read as unknown.
+     */
+    private static final int CLAIMED = 1;
+    private static final int KNOWN = 1 << 31;
+    private static final int RANK_MASK = KNOWN - 1;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private record Page(AtomicIntegerArray entries, AtomicLongArray times) {
+        Page() {
+            this(new AtomicIntegerArray(PAGE_SIZE), new AtomicLongArray(PAGE_SIZE));
+        }
+    }
+
+    private final NidPageTable<Page> pages = new NidPageTable<>(PAGE_BITS, Page[]::new, Page::new);
+
+    static int entry(int rank) {
+        if (rank < 0) {
+            throw new IllegalArgumentException("Rank out of range: " + rank);
+        }
+        return KNOWN | rank;
+    }
+
+    static int rank(int entry) {
+        return entry & RANK_MASK;
+    }
+
+    static boolean onRoute(int entry) {
+        return (entry & RANK_MASK) != 0;
+    }
+
+    /**
+     * @return the entry for the stamp, or {@link #UNKNOWN} if it has not been computed
+     */
+    int entry(int stampNid) {
+        Page page = pages.page(stampNid);
+        if (page == null) {
+            return UNKNOWN;
+        }
+        int entry = page.entries().get(pages.slot(stampNid));
+        return (entry & KNOWN) != 0 ? entry : UNKNOWN;
+    }
+
+    /**
+     * @return the time recorded with the stamp's entry; only meaningful once the entry is known
+     */
+    long time(int stampNid) {
+        Page page = pages.page(stampNid);
+        return page == null ? Long.MIN_VALUE : page.times().get(pages.slot(stampNid));
+    }
+
+    /**
+     * Publishes the entry and time if the stamp's entry is unknown and no other thread is publishing one.
+     *
+     * @return true if the entry was published
+     */
+    boolean putIfUnknown(int stampNid, int entry, long time) {
+        Page page = pages.pageOrCreate(stampNid);
+        int slot = pages.slot(stampNid);
+        if (!page.entries().compareAndSet(slot, UNKNOWN, CLAIMED)) {
+            return false;
+        }
+        // Write the time while the slot is claimed; the entry write publishes it. An invalidation in between
+        // resets the claim, and the entry is then not published.
+        page.times().set(slot, time);
+        return page.entries().compareAndSet(slot, CLAIMED, entry);
+    }
+
+    /**
+     * Withdraws a published entry that may be stale, unless it has already been invalidated or replaced.
+     */
+    void withdraw(int stampNid, int entry) {
+        Page page = pages.page(stampNid);
+        if (page != null) {
+            page.entries().compareAndSet(pages.slot(stampNid), entry, UNKNOWN);
+        }
+    }
+
+    void invalidate(int stampNid) {
+        Page page = pages.page(stampNid);
+        if (page != null) {
+            page.entries().set(pages.slot(stampNid), UNKNOWN);
+        }
+    }
+
+    void invalidateAll() {
+        pages.clear();
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (nid == Integer.MIN_VALUE) {
+            invalidateAll();
+        } else {
+            invalidate(nid);
+        }
+    }
+}
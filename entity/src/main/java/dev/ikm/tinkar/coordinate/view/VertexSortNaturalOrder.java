@@ -22,7 +22,6 @@
 import dev.ikm.tinkar.common.binary.Encoder;
 import dev.ikm.tinkar.common.binary.EncoderOutput;
 import dev.ikm.tinkar.common.service.PrimitiveData;
-import dev.ikm.tinkar.common.util.text.NaturalOrder;
 import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculator;
 import dev.ikm.tinkar.coordinate.navigation.calculator.Edge;
 import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculator;
@@ -30,8 +29,8 @@
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.impl.factory.primitive.IntLists;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 public class VertexSortNaturalOrder implements VertexSort, Encodable {
@@ -75,9 +74,16 @@ public final int[] sortVertexes(int[] vertexConceptNids, NavigationCalculator na
             return vertexConceptNids;
         }
 
-        return IntLists.immutable.of(vertexConceptNids).primitiveStream().mapToObj(vertexConceptNid ->
-                        new VertexItem(vertexConceptNid, navigationCalculator.getDescriptionTextOrNid(vertexConceptNid)))
-                .sorted().mapToInt(value -> value.nid).toArray();
+        VertexItem[] items = new VertexItem[vertexConceptNids.length];
+        for (int i = 0; i < vertexConceptNids.length; i++) {
+            items[i] = new VertexItem(vertexConceptNids[i], navigationCalculator.vertexSortKey(vertexConceptNids[i]));
+        }
+        Arrays.sort(items);
+        int[] sortedNids = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            sortedNids[i] = items[i].nid;
+        }
+        return sortedNids;
     }
 
     @Override
@@ -88,7 +94,7 @@ public final ImmutableList<Edge> sortEdges(ImmutableCollection<Edge> edges, Navi
         }
 
         MutableList<Edge> edgesToSort = Lists.mutable.ofAll(edges);
-        edgesToSort.sort((o1, o2) -> NaturalOrder.compareStrings(o1.comparisonString(), o2.comparisonString()));
+        edgesToSort.sortThisBy(edge -> navigationCalculator.vertexSortKey(edge.destinationNid()));
 
         return edgesToSort.toImmutable();
     }
@@ -119,16 +125,16 @@ public void encode(EncoderOutput out) {
 
     private static class VertexItem implements Comparable<VertexItem> {
         private final int nid;
-        private final String description;
+        private final String sortKey;
 
-        public VertexItem(int nid, String description) {
+        public VertexItem(int nid, String sortKey) {
             this.nid = nid;
-            this.description = description;
+            this.sortKey = sortKey;
         }
 
         @Override
         public int compareTo(VertexItem o) {
-            return NaturalOrder.compareStrings(this.description, o.description);
+            return this.sortKey.compareTo(o.sortKey);
         }
     }
 }
@@ -16,16 +16,20 @@
 package dev.ikm.tinkar.entity;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.common.util.broadcast.BatchSubscriber;
+import org.eclipse.collections.api.list.primitive.IntList;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Remove objects from a cache based on
+ * Remove objects from a cache based on the nids of changed entities. Changes arrive in batches after the
+ * write that caused them, so the owner of the caches calls {@link #ensureCurrent()} before reading them.
  */
-public class CacheInvalidationSubscriber implements Subscriber<Integer> {
+public class CacheInvalidationSubscriber implements BatchSubscriber {
     CopyOnWriteArrayList<Cache<Integer, ? extends Object>> cachesToManage = new CopyOnWriteArrayList<>();
+    private volatile long generation;
 
 
     public void addCaches(Cache<Integer, ? extends Object>... caches) {
@@ -47,4 +51,29 @@ public void onNext(Integer nid) {
             }
         }
     }
+
+    @Override
+    public void onNextBatch(IntList nids, long generation) {
+        List<Integer> keys = new ArrayList<>(nids.size());
+        nids.forEach(keys::add);
+        for (Cache<Integer, ?> cache : cachesToManage) {
+            if (nids.contains(Integer.MIN_VALUE)) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidateAll(keys);
+            }
+        }
+        this.generation = generation;
+    }
+
+    /**
+     * Delivers pending change batches when writes have been made since the last batch this subscriber
+     * received, so that the managed caches never serve a value invalidated by a completed write.
+     */
+    public void ensureCurrent() {
+        EntityService entityService = Entity.provider();
+        if (generation < entityService.writeGeneration()) {
+            entityService.deliverPendingChanges();
+        }
+    }
 }
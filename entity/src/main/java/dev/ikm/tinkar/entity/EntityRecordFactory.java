@@ -23,6 +23,7 @@
 import dev.ikm.tinkar.common.id.PublicIdSet;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
+import dev.ikm.tinkar.common.util.text.StringPool;
 import dev.ikm.tinkar.component.Chronology;
 import dev.ikm.tinkar.component.Component;
 import dev.ikm.tinkar.component.Concept;
@@ -631,7 +632,7 @@ public static Object readFieldData(ByteBuf readBuf, FieldDataType dataType, byte
             case FLOAT -> readBuf.readFloat();
             case BYTE_ARRAY -> readBytes(readBuf);
             case INTEGER -> readBuf.readInt();
-            case STRING -> new String(readBytes(readBuf), UTF_8);
+            case STRING -> StringPool.decode(readBytes(readBuf));
             case DITREE -> DiTreeEntity.make(readBuf, formatVersion);
             case DIGRAPH -> DiGraphEntity.make(readBuf, formatVersion);
             case CONCEPT -> EntityProxy.Concept.make(readBuf.readInt());
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.entity;
 
+import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.IntIdList;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
@@ -25,8 +26,10 @@
 import dev.ikm.tinkar.component.ChronologyService;
 import dev.ikm.tinkar.component.Component;
 import dev.ikm.tinkar.component.Version;
+import dev.ikm.tinkar.entity.aggregator.ModifiedSinceEntityAggregator;
 import dev.ikm.tinkar.entity.export.ExportEntitiesToProtobufFile;
 import dev.ikm.tinkar.entity.internal.EntityServiceFinder;
+import dev.ikm.tinkar.entity.load.LoadChangeSetsFromDirectory;
 import dev.ikm.tinkar.entity.load.LoadEntitiesFromProtobufFile;
 import dev.ikm.tinkar.entity.transaction.Transaction;
 import dev.ikm.tinkar.terms.ComponentWithNid;
@@ -68,6 +71,21 @@ default CompletableFuture<EntityCountSummary> temporalExport(File file, long fro
         }, TinkExecutor.ioThreadPool());
     }
 
+    /**
+     * Exports every chronology written after the given write sequence, using the provider's modification log.
+     * Pass the {@link dev.ikm.tinkar.common.service.PrimitiveData#writeSequence()} recorded at the previous export.
+     */
+    default CompletableFuture<EntityCountSummary> modifiedSinceExport(File file, long sinceWriteSequence) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return TinkExecutor.ioThreadPool().submit(new ExportEntitiesToProtobufFile(file,
+                        ModifiedSinceEntityAggregator.sinceWriteSequence(sinceWriteSequence))).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }, TinkExecutor.ioThreadPool());
+    }
+
     default CompletableFuture<EntityCountSummary> membershipExport(File file, List<PublicId> membershipTags) {
         return CompletableFuture.supplyAsync(() -> {
             try {
@@ -88,6 +106,19 @@ default CompletableFuture<EntityCountSummary> loadData(File file) {
         }, TinkExecutor.ioThreadPool());
     }
 
+    /**
+     * Replays every change set file in the directory that has not already been applied to this data store.
+     */
+    default CompletableFuture<EntityCountSummary> loadChangeSets(File changeSetDirectory) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return TinkExecutor.ioThreadPool().submit(new LoadChangeSetsFromDirectory(changeSetDirectory)).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }, TinkExecutor.ioThreadPool());
+    }
+
     @Override
     default <T extends Chronology<V>, V extends Version> Optional<T> getChronology(UUID... uuids) {
         return getChronology(nidForUuids(uuids));
@@ -123,6 +154,43 @@ default <T extends Entity<V>, V extends EntityVersion> Optional<T> getEntity(int
 
     <T extends Entity<V>, V extends EntityVersion> T getEntityFast(int nid);
 
+    /**
+     * Fetches many entities at once; {@code entities[i]} receives what {@link #getEntityFast(int)} would return
+     * for {@code nids[i]}. Providers may read the entities' bytes in one pass in storage order and decode them
+     * in parallel.
+     *
+     * @param nids the entities to fetch
+     * @param entities receives the entities, and must be at least as long as {@code nids}
+     */
+    default void getEntitiesFast(int[] nids, Entity[] entities) {
+        if (entities.length < nids.length) {
+            throw new IllegalArgumentException("Results array of length " + entities.length +
+                    " is shorter than " + nids.length + " nids");
+        }
+        for (int i = 0; i < nids.length; i++) {
+            entities[i] = getEntityFast(nids[i]);
+        }
+    }
+
+    /**
+     * Passes each entity of the collection that exists, canceled or not, to the action in the collection's
+     * order, fetching them in batches with {@link #getEntitiesFast(int[], Entity[])}.
+     */
+    default void forEachEntity(IntIdCollection nids, Consumer<Entity<? extends EntityVersion>> action) {
+        int[] allNids = nids.toArray();
+        int batchSize = Math.min(allNids.length, 4096);
+        Entity[] entities = new Entity[batchSize];
+        for (int start = 0; start < allNids.length; start += batchSize) {
+            int[] batchNids = Arrays.copyOfRange(allNids, start, Math.min(start + batchSize, allNids.length));
+            getEntitiesFast(batchNids, entities);
+            for (int i = 0; i < batchNids.length; i++) {
+                if (entities[i] != null) {
+                    action.accept(entities[i]);
+                }
+            }
+        }
+    }
+
     default <T extends Entity<V>, V extends EntityVersion> Optional<T> getEntity(ImmutableList<UUID> uuidList) {
         return getEntity(nidForUuids(uuidList));
     }
@@ -280,6 +348,36 @@ default void addSortedUuids(List<UUID> uuidList, int... nids) throws NoSuchEleme
 
     void notifyRefreshRequired(Transaction transaction);
 
+    /**
+     * Change notifications are delivered to subscribers in batches, after the writes that publish them.
+     *
+     * @return the number of change notifications published so far, which subscribers compare with
+     * the generation of the last batch they received
+     */
+    default long writeGeneration() {
+        return 0L;
+    }
+
+    /**
+     * Delivers, on the calling thread, any change notifications published but not yet delivered
+     * to subscribers.
+     */
+    default void deliverPendingChanges() {
+    }
+
+    /**
+     * The write sequence of a component advances each time it, or a semantic chained to it, is written,
+     * and each time a transaction including it is committed or canceled. A value derived from the component
+     * is current while the sequence read before computing it is unchanged.
+     *
+     * @param nid the component
+     * @return the write sequence of the most recent change affecting the component
+     * @see VersionedCache
+     */
+    default long writeSequence(int nid) {
+        return writeGeneration();
+    }
+
     boolean isLoadPhase();
 
     void endLoadPhase();
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.function.IntFunction;
+
+/**
+ * A nid-keyed cache of values derived from components, in which each value records the
+ * {@link EntityService#writeSequence(int) write sequence} of its nid at the time it was computed. A value is
+ * served only while that sequence is unchanged, so validating an entry on read is a single comparison, and
+ * writes and commits never need to invalidate the cache. Superseded values are replaced on their next read,
+ * or evicted.
+ *
+ * @param <V> the type of the cached values
+ */
+public final class VersionedCache<V> {
+    private record Versioned<V>(long writeSequence, V value) {
+    }
+
+    private final Cache<Integer, Versioned<V>> cache;
+
+    public VersionedCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * @return the current write sequence of the nid, to be read before computing a value for {@link #put}
+     */
+    public static long writeSequence(int nid) {
+        return Entity.provider().writeSequence(nid);
+    }
+
+    /**
+     * Returns the cached value if it is current, otherwise computes it with the loader. A null result is
+     * returned but not cached.
+     */
+    public V get(int nid, IntFunction<? extends V> loader) {
+        long writeSequence = writeSequence(nid);
+        Versioned<V> versioned = cache.getIfPresent(nid);
+        if (versioned != null && versioned.writeSequence() == writeSequence) {
+            return versioned.value();
+        }
+        V value = loader.apply(nid);
+        if (value != null) {
+            cache.put(nid, new Versioned<>(writeSequence, value));
+        }
+        return value;
+    }
+
+    /**
+     * @return the cached value if it is current, otherwise null
+     */
+    public V getIfPresent(int nid) {
+        Versioned<V> versioned = cache.getIfPresent(nid);
+        if (versioned != null && versioned.writeSequence() == writeSequence(nid)) {
+            return versioned.value();
+        }
+        return null;
+    }
+
+    /**
+     * @param writeSequence the {@link #writeSequence(int)} of the nid read before the value was computed
+     */
+    public void put(int nid, long writeSequence, V value) {
+        cache.put(nid, new Versioned<>(writeSequence, value));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.entity.aggregator;
 
+import dev.ikm.tinkar.common.id.IntIds;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.component.FieldDataType;
@@ -22,6 +23,7 @@
 import dev.ikm.tinkar.entity.EntityCountSummary;
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.SemanticEntity;
 
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -51,8 +53,8 @@ public EntityCountSummary aggregate(IntConsumer nidConsumer) {
             Entity<? extends EntityVersion> patternEntity = EntityService.get().getEntityFast(patternNid);
             patternEntity.stampNids().forEach(stampNidSet::add);
 
-            EntityService.get().forEachSemanticOfPattern(patternNid, (semanticEntityOfPattern) -> {
-                int referencedComponentNid = semanticEntityOfPattern.referencedComponentNid();
+            EntityService.get().forEachEntity(IntIds.list.of(EntityService.get().semanticNidsOfPattern(patternNid)), (entity) -> {
+                int referencedComponentNid = ((SemanticEntity<?>) entity).referencedComponentNid();
 
                 if (referencedComponentNid != patternNid) {
                     // Aggregate Concept and Stamps
@@ -72,7 +74,7 @@ public EntityCountSummary aggregate(IntConsumer nidConsumer) {
                 Queue<Integer> queue = new LinkedList<>();
                 queue.add(referencedComponentNid);
                 while (!queue.isEmpty()) {
-                    EntityService.get().forEachSemanticForComponent(queue.remove(), (semanticEntity) -> {
+                    EntityService.get().forEachEntity(IntIds.list.of(EntityService.get().semanticNidsForComponent(queue.remove())), (semanticEntity) -> {
                         queue.add(semanticEntity.nid());
                         semanticsAggregatedCount.incrementAndGet();
                         nidConsumer.accept(semanticEntity.nid());
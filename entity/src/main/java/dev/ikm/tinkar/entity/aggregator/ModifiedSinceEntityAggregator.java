@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.aggregator;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.component.FieldDataType;
+import dev.ikm.tinkar.entity.EntityCountSummary;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Aggregates every chronology written after a given write sequence, read from the provider's modification
+ * log rather than by scanning the whole store. Stamps referenced by the aggregated chronologies are
+ * included so the export can be loaded on its own.
+ * <p>
+ * Capture {@link PrimitiveData#writeSequence()} before each export starts and pass it to
+ * {@link #sinceWriteSequence(long)} for the next one, so that writes made while the export runs are picked up
+ * again rather than lost. Entities written during the export may then be exported twice, which is harmless
+ * because loading an export is idempotent. Use {@link #sinceEpochMillis(long)} when only the time of the last
+ * synchronization is known.
+ */
+public class ModifiedSinceEntityAggregator extends EntityAggregator {
+    private final long sinceWriteSequence;
+
+    private ModifiedSinceEntityAggregator(long sinceWriteSequence) {
+        this.sinceWriteSequence = sinceWriteSequence;
+    }
+
+    public static ModifiedSinceEntityAggregator sinceWriteSequence(long writeSequence) {
+        return new ModifiedSinceEntityAggregator(writeSequence);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the provider does not keep a modification log
+     */
+    public static ModifiedSinceEntityAggregator sinceEpochMillis(long epochMillis) {
+        return new ModifiedSinceEntityAggregator(PrimitiveData.get().writeSequenceAt(epochMillis)
+                .orElseThrow(() -> new UnsupportedOperationException(PrimitiveData.get().name() +
+                        " does not keep a modification log. Use TemporalEntityAggregator instead.")));
+    }
+
+    public long sinceWriteSequence() {
+        return sinceWriteSequence;
+    }
+
+    @Override
+    public EntityCountSummary aggregate(IntConsumer nidConsumer) {
+        initCounts();
+        MutableIntList conceptNids = IntLists.mutable.empty();
+        MutableIntList semanticNids = IntLists.mutable.empty();
+        MutableIntList patternNids = IntLists.mutable.empty();
+        MutableIntSet stampsToExport = IntSets.mutable.empty();
+
+        boolean supported = PrimitiveData.get().forEachNidModifiedSince(sinceWriteSequence, nid -> {
+            byte[] bytes = PrimitiveData.get().getBytes(nid);
+            if (bytes == null) {
+                return;
+            }
+            switch (FieldDataType.fromToken(bytes[9])) {
+                case CONCEPT_CHRONOLOGY -> conceptNids.add(nid);
+                case SEMANTIC_CHRONOLOGY -> semanticNids.add(nid);
+                case PATTERN_CHRONOLOGY -> patternNids.add(nid);
+                case STAMP -> stampsToExport.add(nid);
+                default -> {
+                    return;
+                }
+            }
+            StampNidScanner.forEachStampNid(bytes, stampsToExport::add);
+        });
+        if (!supported) {
+            throw new UnsupportedOperationException(PrimitiveData.get().name() +
+                    " cannot report modifications since write sequence " + sinceWriteSequence +
+                    ". Use TemporalEntityAggregator instead.");
+        }
+
+        conceptNids.sortThis().forEach(nidConsumer::accept);
+        conceptsAggregatedCount.set(conceptNids.size());
+        semanticNids.sortThis().forEach(nidConsumer::accept);
+        semanticsAggregatedCount.set(semanticNids.size());
+        patternNids.sortThis().forEach(nidConsumer::accept);
+        patternsAggregatedCount.set(patternNids.size());
+
+        int[] stampNids = stampsToExport.toSortedArray();
+        for (int stampNid : stampNids) {
+            nidConsumer.accept(stampNid);
+        }
+        stampsAggregatedCount.set(stampNids.length);
+
+        return summarize();
+    }
+}
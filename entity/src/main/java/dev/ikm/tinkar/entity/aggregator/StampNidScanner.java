@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.aggregator;
+
+import org.eclipse.collections.api.set.primitive.IntSet;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Reads version stamp nids directly from serialized entity bytes without decoding the entity.
+ * <p>
+ * Entity bytes are an int array count followed by length-prefixed arrays. The first array is the
+ * chronology; each remaining array is a version that starts with a type token byte and the stamp nid.
+ */
+final class StampNidScanner {
+    private StampNidScanner() {
+    }
+
+    /**
+     * @return true if any version of the serialized entity has a stamp nid in stampNids
+     */
+    static boolean anyStampIn(byte[] bytes, IntSet stampNids) {
+        int arrayCount = readInt(bytes, 0);
+        // Skip the chronology array.
+        int position = 8 + readInt(bytes, 4);
+        for (int i = 1; i < arrayCount; i++) {
+            if (stampNids.contains(readInt(bytes, position + 5))) {
+                return true;
+            }
+            position += 4 + readInt(bytes, position);
+        }
+        return false;
+    }
+
+    static void forEachStampNid(byte[] bytes, IntConsumer stampNidConsumer) {
+        int arrayCount = readInt(bytes, 0);
+        int position = 8 + readInt(bytes, 4);
+        for (int i = 1; i < arrayCount; i++) {
+            stampNidConsumer.accept(readInt(bytes, position + 5));
+            position += 4 + readInt(bytes, position);
+        }
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return ((bytes[position] & 0xFF) << 24) |
+                ((bytes[position + 1] & 0xFF) << 16) |
+                ((bytes[position + 2] & 0xFF) << 8) |
+                (bytes[position + 3] & 0xFF);
+    }
+}
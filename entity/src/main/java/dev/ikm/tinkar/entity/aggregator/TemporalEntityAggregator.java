@@ -16,16 +16,25 @@
 package dev.ikm.tinkar.entity.aggregator;
 
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.component.FieldDataType;
 import dev.ikm.tinkar.entity.EntityCountSummary;
 import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.StampEntity;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 import java.util.function.IntConsumer;
 
+/**
+ * Aggregates every chronology with at least one version whose stamp time falls within
+ * [fromEpochMillis, toEpochMillis], together with all stamps referenced by those chronologies.
+ * <p>
+ * Stamps in the window are resolved once into a primitive nid set. Concepts, semantics and patterns
+ * are then matched with a parallel scan over the raw entity bytes that reads only the stamp nid of
+ * each version, so chronologies outside the window are never decoded.
+ */
 public class TemporalEntityAggregator extends EntityAggregator {
     private final long fromEpochMillis;
     private final long toEpochMillis;
@@ -39,61 +48,56 @@ public TemporalEntityAggregator(long fromEpochMillis, long toEpochMillis) {
     public EntityCountSummary aggregate(IntConsumer nidConsumer) {
         initCounts();
         // Filter Stamp Nids based on the supplied time span
-        Set<Integer> filteredStampNids = new HashSet<>();
-        PrimitiveData.get().forEachStampNid((stampNid) -> {
-            EntityService.get().getStamp(stampNid).ifPresent((stampEntity) -> {
-                if (fromEpochMillis <= stampEntity.time() && stampEntity.time() <= toEpochMillis) {
-                    filteredStampNids.add(stampEntity.nid());
-                }
-            });
+        MutableIntSet windowStampNids = IntSets.mutable.empty();
+        PrimitiveData.get().forEachStampNid(stampNid -> {
+            StampEntity<?> stampEntity = EntityService.get().getStampFast(stampNid);
+            if (stampEntity != null &&
+                    fromEpochMillis <= stampEntity.time() && stampEntity.time() <= toEpochMillis) {
+                windowStampNids.add(stampNid);
+            }
         });
+        if (windowStampNids.isEmpty()) {
+            return summarize();
+        }
 
-        List<Integer> stampsToExport = new ArrayList<>();
-
-        // Aggregate concepts with a filtered stamp
-        PrimitiveData.get().forEachConceptNid((conceptNid) -> {
-            EntityService.get().getEntity(conceptNid).ifPresent((conceptEntity) -> {
-                Set<Integer> conceptStampNidList = conceptEntity.stampNids().mapToSet(i->i);
-                // Write whole chronology if ANY of the stamps satisfy conditions
-                if (!Collections.disjoint(filteredStampNids, conceptStampNidList)) {
-                    conceptsAggregatedCount.incrementAndGet();
-                    nidConsumer.accept(conceptNid);
-                    stampsToExport.addAll(conceptStampNidList);
-                }
-            });
-        });
+        MutableIntList conceptNids = IntLists.mutable.empty().asSynchronized();
+        MutableIntList semanticNids = IntLists.mutable.empty().asSynchronized();
+        MutableIntList patternNids = IntLists.mutable.empty().asSynchronized();
+        MutableIntSet stampsToExport = IntSets.mutable.empty().asSynchronized();
 
-        // Aggregate semantics with a filtered stamp
-        PrimitiveData.get().forEachSemanticNid((semanticNid) -> {
-            EntityService.get().getEntity(semanticNid).ifPresent((semanticEntity) -> {
-                Set<Integer> semanticStampNidList = semanticEntity.stampNids().mapToSet(i->i);
-                // Write whole chronology if ANY of the stamps satisfy conditions
-                if (!Collections.disjoint(filteredStampNids, semanticStampNidList)) {
-                    semanticsAggregatedCount.incrementAndGet();
-                    nidConsumer.accept(semanticNid);
-                    stampsToExport.addAll(semanticStampNidList);
-                }
-            });
+        // Write whole chronology if ANY of the stamps satisfy conditions
+        PrimitiveData.get().forEachParallel((bytes, nid) -> {
+            MutableIntList target = switch (FieldDataType.fromToken(bytes[9])) {
+                case CONCEPT_CHRONOLOGY -> conceptNids;
+                case SEMANTIC_CHRONOLOGY -> semanticNids;
+                case PATTERN_CHRONOLOGY -> patternNids;
+                default -> null;
+            };
+            if (target != null && StampNidScanner.anyStampIn(bytes, windowStampNids)) {
+                target.add(nid);
+                StampNidScanner.forEachStampNid(bytes, stampsToExport::add);
+            }
         });
 
-        // Aggregate patterns with a filtered stamp
-        PrimitiveData.get().forEachPatternNid((patternNid) -> {
-            EntityService.get().getEntity(patternNid).ifPresent((patternEntity) -> {
-                Set<Integer> patternStampNidList = patternEntity.stampNids().mapToSet(i->i);
-                // Write whole chronology if ANY of the stamps satisfy conditions
-                if (!Collections.disjoint(filteredStampNids, patternStampNidList)) {
-                    patternsAggregatedCount.incrementAndGet();
-                    nidConsumer.accept(patternNid);
-                    stampsToExport.addAll(patternStampNidList);
-                }
-            });
-        });
+        emit(conceptNids, nidConsumer);
+        conceptsAggregatedCount.set(conceptNids.size());
+        emit(semanticNids, nidConsumer);
+        semanticsAggregatedCount.set(semanticNids.size());
+        emit(patternNids, nidConsumer);
+        patternsAggregatedCount.set(patternNids.size());
 
-        // Deduplicate and Export Aggregated stamps
-        Set<Integer> deduplicatedStampsToExport = new HashSet<>(stampsToExport);
-        stampsAggregatedCount.set(deduplicatedStampsToExport.size());
-        deduplicatedStampsToExport.forEach(nidConsumer::accept);
+        // Export aggregated stamps, already deduplicated by the set
+        int[] stampNids = stampsToExport.toSortedArray();
+        for (int stampNid : stampNids) {
+            nidConsumer.accept(stampNid);
+        }
+        stampsAggregatedCount.set(stampNids.length);
 
         return summarize();
     }
+
+    private static void emit(MutableIntList nids, IntConsumer nidConsumer) {
+        // Sort so repeated exports of the same window produce the same ordering.
+        nids.sortThis().forEach(nidConsumer::accept);
+    }
 }
@@ -18,6 +18,7 @@
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.service.TrackingCallable;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityCountSummary;
@@ -31,6 +32,8 @@
 import dev.ikm.tinkar.entity.transform.EntityToTinkarSchemaTransformer;
 import dev.ikm.tinkar.schema.TinkarMsg;
 import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,16 +42,24 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -58,16 +69,37 @@ public class ExportEntitiesToProtobufFile extends TrackingCallable<EntityCountSu
     private final File protobufFile;
     private final EntityToTinkarSchemaTransformer entityTransformer =
             EntityToTinkarSchemaTransformer.getInstance();
-    private final Set<PublicId> moduleList = new HashSet<>();
-    private final Set<PublicId> authorList = new HashSet<>();
+    /**
+     * Minimum number of entities in a chunk entry, so that small entity types are not split into tiny entries.
+     */
+    private static final int MIN_CHUNK_SIZE = 10_000;
+    private final Set<PublicId> moduleList = ConcurrentHashMap.newKeySet();
+    private final Set<PublicId> authorList = ConcurrentHashMap.newKeySet();
     private final EntityAggregator entityAggregator;
+    private final int chunkCount;
 
 
     public ExportEntitiesToProtobufFile(File file, EntityAggregator entityAggregator) {
+        this(file, entityAggregator, 1);
+    }
+
+    /**
+     * @param file the zip file to export to
+     * @param entityAggregator the aggregator selecting the entities to export
+     * @param chunkCount the maximum number of zip entries to split each entity type into. A value of 1 writes all
+     *                   entities to a single entry. Larger values write a chunked export, with entries split by
+     *                   entity type and nid range (see {@link ExportEntryType}), transformed and compressed in
+     *                   parallel, and loadable in parallel.
+     */
+    public ExportEntitiesToProtobufFile(File file, EntityAggregator entityAggregator, int chunkCount) {
         super(false, true);
+        if (chunkCount < 1) {
+            throw new IllegalArgumentException("chunkCount must be positive. Found: " + chunkCount);
+        }
         this.protobufFile = file;
         LOG.info("Exporting entities to: " + file);
         this.entityAggregator = entityAggregator;
+        this.chunkCount = chunkCount;
         if (getTitle()==null || getTitle().isBlank()) {
             updateTitle("Export to Protobuf");
         }
@@ -78,6 +110,11 @@ public ExportEntitiesToProtobufFile(File file) {
         updateTitle("Full Export to Protobuf");
     }
 
+    public ExportEntitiesToProtobufFile(File file, int chunkCount) {
+        this(file, new DefaultEntityAggregator(), chunkCount);
+        updateTitle("Full Chunked Export to Protobuf");
+    }
+
     public ExportEntitiesToProtobufFile(File file, long fromEpochMillis, long toEpochMillis) {
         this(file, new TemporalEntityAggregator(fromEpochMillis, toEpochMillis));
         updateTitle("Time-Based Export to Protobuf");
@@ -90,6 +127,9 @@ public ExportEntitiesToProtobufFile(File file, List<PublicId> membershipTags) {
 
     @Override
     public EntityCountSummary compute() {
+        if (chunkCount > 1) {
+            return computeChunked();
+        }
         updateMessage("Analyzing Entities...");
         updateProgress(-1, 1);
 
@@ -160,11 +200,153 @@ public EntityCountSummary compute() {
         return entityCountSummary;
     }
 
+    private EntityCountSummary computeChunked() {
+        updateMessage("Analyzing Entities...");
+        updateProgress(-1, 1);
+
+        EntityCountSummary entityCountSummary = null;
+        List<ExportChunk> chunks = new ArrayList<>();
+        try {
+            // Partition the aggregated nids by entity type, using the type token of the stored bytes rather than decoding
+            EnumMap<ExportEntryType, MutableIntList> nidsByType = new EnumMap<>(ExportEntryType.class);
+            for (ExportEntryType entryType : ExportEntryType.values()) {
+                nidsByType.put(entryType, IntLists.mutable.empty());
+            }
+            entityCountSummary = entityAggregator.aggregate(nid -> {
+                byte[] bytes = PrimitiveData.get().getBytes(nid);
+                // bytes starts with number of arrays (int = 4 bytes), then size of first array (int = 4 bytes), then entity format version then type token...
+                nidsByType.get(ExportEntryType.fromToken(bytes[9])).add(nid);
+            });
+
+            updateMessage("Exporting Entities...");
+            addToTotalWork(entityCountSummary.getTotalCount());
+
+            // Transform and compress each chunk in parallel to a temporary file
+            for (ExportEntryType entryType : ExportEntryType.values()) {
+                int[] nids = nidsByType.get(entryType).toSortedArray();
+                int chunksForType = Math.max(1, Math.min(chunkCount, nids.length / MIN_CHUNK_SIZE));
+                int chunkSize = Math.max(1, (nids.length + chunksForType - 1) / chunksForType);
+                int chunkIndex = 0;
+                for (int offset = 0; offset < nids.length; offset += chunkSize) {
+                    int[] chunkNids = Arrays.copyOfRange(nids, offset, Math.min(nids.length, offset + chunkSize));
+                    File chunkFile = File.createTempFile("tinkar-export-", ExportEntryType.CHUNK_SUFFIX,
+                            protobufFile.getAbsoluteFile().getParentFile());
+                    Future<Long> chunkCrc = TinkExecutor.threadPool().submit(() -> writeChunk(chunkNids, chunkFile));
+                    chunks.add(new ExportChunk(entryType.entryName(chunkIndex++), chunkNids.length, chunkFile, chunkCrc));
+                }
+            }
+
+            try (FileOutputStream fos = new FileOutputStream(protobufFile);
+                 BufferedOutputStream bos = new BufferedOutputStream(fos);
+                 ZipOutputStream zos = new ZipOutputStream(bos)) {
+
+                // Chunks are already compressed, so they are copied into stored entries in load order
+                for (ExportChunk chunk : chunks) {
+                    long crc = chunk.crc().get();
+                    ZipEntry chunkEntry = new ZipEntry(chunk.entryName());
+                    chunkEntry.setMethod(ZipEntry.STORED);
+                    chunkEntry.setSize(chunk.file().length());
+                    chunkEntry.setCompressedSize(chunk.file().length());
+                    chunkEntry.setCrc(crc);
+                    zos.putNextEntry(chunkEntry);
+                    Files.copy(chunk.file().toPath(), zos);
+                    zos.closeEntry();
+                    Files.delete(chunk.file().toPath());
+                }
+
+                // Write Manifest File
+                StringBuilder chunkAttributes = new StringBuilder();
+                chunkAttributes.append("Chunk-Count: ").append(chunks.size()).append("\n");
+                for (int i = 0; i < chunks.size(); i++) {
+                    ExportChunk chunk = chunks.get(i);
+                    // Entry name and entity count, verified by the loader after reading the entry
+                    chunkAttributes.append(String.format("Chunk-%04d: ", i))
+                            .append(chunk.entryName()).append(",")
+                            .append(chunk.entityCount()).append("\n");
+                }
+                ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
+                zos.putNextEntry(manifestEntry);
+                zos.write(generateManifestContent(entityCountSummary.getTotalCount(),
+                        entityCountSummary.conceptsCount(),
+                        entityCountSummary.semanticsCount(),
+                        entityCountSummary.patternsCount(),
+                        entityCountSummary.stampsCount(),
+                        chunkAttributes.toString(),
+                        moduleList,
+                        authorList
+                ).getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+                zos.flush();
+
+                // Cleanup
+                zos.finish();
+            }
+        } catch (Throwable e) {
+            LOG.error("Caught " + e + " while Exporting Entities");
+            chunks.forEach(chunk -> {
+                chunk.crc().cancel(true);
+                chunk.file().delete();
+            });
+            if (!(e instanceof RuntimeException rx && rx.getCause() instanceof InterruptedException)) {
+                AlertStreams.dispatchToRoot(e);
+                throw new RuntimeException(e);
+            }
+        } finally {
+            updateMessage("In " + durationString());
+            updateProgress(1,1);
+        }
+
+        logCounts(entityCountSummary);
+        return entityCountSummary;
+    }
+
+    /**
+     * Writes the gzip compressed, length delimited messages for the nids of one chunk.
+     * @return the CRC-32 of the compressed chunk, as required for a stored zip entry
+     */
+    private long writeChunk(int[] nids, File chunkFile) throws IOException {
+        EntityToTinkarSchemaTransformer chunkTransformer = EntityToTinkarSchemaTransformer.getIndependentInstance();
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream cos = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(chunkFile)), crc);
+             GZIPOutputStream gzos = new GZIPOutputStream(cos, 65536)) {
+            for (int nid : nids) {
+                Entity<? extends EntityVersion> entity = EntityService.get().getEntityFast(nid);
+                // Store Module & Author Dependencies for Manifest
+                if (entity instanceof StampEntity stampEntity) {
+                    moduleList.add(stampEntity.module().publicId());
+                    authorList.add(stampEntity.author().publicId());
+                }
+                chunkTransformer.transform(entity).writeDelimitedTo(gzos);
+                completedUnitOfWork();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private record ExportChunk(String entryName, int entityCount, File file, Future<Long> crc) {
+    }
+
+    public static String generateManifestContent(long entityCount,
+                                           long conceptsCount,
+                                           long semanticsCount,
+                                           long patternsCount,
+                                           long stampsCount,
+                                           Set<PublicId> moduleList,
+                                           Set<PublicId> authorList){
+        return generateManifestContent(entityCount, conceptsCount, semanticsCount, patternsCount, stampsCount,
+                "", moduleList, authorList);
+    }
+
+    /**
+     * @param additionalMainAttributes manifest main section lines, each terminated by a new line, added after the counts
+     */
     public static String generateManifestContent(long entityCount,
                                            long conceptsCount,
                                            long semanticsCount,
                                            long patternsCount,
                                            long stampsCount,
+                                           String additionalMainAttributes,
                                            Set<PublicId> moduleList,
                                            Set<PublicId> authorList){
         StringBuilder manifestContent = new StringBuilder()
@@ -176,6 +358,7 @@ public static String generateManifestContent(long entityCount,
                 .append("Semantic-Count: ").append(semanticsCount).append("\n")
                 .append("Pattern-Count: ").append(patternsCount).append("\n")
                 .append("Stamp-Count: ").append(stampsCount).append("\n")
+                .append(additionalMainAttributes)
                 .append(idsToManifestEntry(moduleList))
                 .append(idsToManifestEntry(authorList))
                 .append("\n"); // Final new line necessary per Manifest spec
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.export;
+
+import dev.ikm.tinkar.component.FieldDataType;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The entity type held by each data entry of a chunked protobuf export. Constants are declared in the order
+ * entries are written and must be loaded: stamps, then concepts, then patterns, then semantics.
+ * <p>
+ * Chunk entries are named {@code <ordinal>-<type>-<chunk index>.pb.gz}, and hold the gzip compressed,
+ * length delimited {@link dev.ikm.tinkar.schema.TinkarMsg}s of one nid range of one entity type.
+ */
+public enum ExportEntryType {
+    STAMP(FieldDataType.STAMP),
+    CONCEPT(FieldDataType.CONCEPT_CHRONOLOGY),
+    PATTERN(FieldDataType.PATTERN_CHRONOLOGY),
+    SEMANTIC(FieldDataType.SEMANTIC_CHRONOLOGY);
+
+    public static final String CHUNK_SUFFIX = ".pb.gz";
+
+    public final FieldDataType dataType;
+
+    ExportEntryType(FieldDataType dataType) {
+        this.dataType = dataType;
+    }
+
+    public String entryName(int chunkIndex) {
+        return String.format("%d-%s-%04d%s", ordinal(), name().toLowerCase(Locale.ROOT), chunkIndex, CHUNK_SUFFIX);
+    }
+
+    /**
+     * @param entryName the name of a zip entry
+     * @return the entry type if the name is that of a chunk entry, otherwise empty
+     */
+    public static Optional<ExportEntryType> fromEntryName(String entryName) {
+        if (entryName.endsWith(CHUNK_SUFFIX)) {
+            for (ExportEntryType entryType : values()) {
+                if (entryName.startsWith(entryType.ordinal() + "-" + entryType.name().toLowerCase(Locale.ROOT) + "-")) {
+                    return Optional.of(entryType);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param token the entity type token of entity bytes (bytes[9])
+     * @return the entry type for the token
+     */
+    public static ExportEntryType fromToken(byte token) {
+        for (ExportEntryType entryType : values()) {
+            if (entryType.dataType.token == token) {
+                return entryType;
+            }
+        }
+        throw new IllegalStateException("Unexpected entity type token: " + token);
+    }
+}
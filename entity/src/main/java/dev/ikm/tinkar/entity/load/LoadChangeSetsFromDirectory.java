@@ -0,0 +1,327 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.load;
+
+import com.google.protobuf.CodedInputStream;
+import dev.ikm.tinkar.common.alert.AlertStreams;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.service.TrackingCallable;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityCountSummary;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transform.TinkarSchemaToEntityTransformer;
+import dev.ikm.tinkar.schema.TinkarMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Replays every change set file in a directory, such as the {@code changeSets/src/main/resources} folder
+ * written by the change set writer, into the current data store.
+ * <p>
+ * Replay proceeds in three steps:
+ * <p> - Each {@code ike-cs.zip} file is hashed with SHA-256, and skipped if a file with the same hash was
+ *       applied by an earlier replay or appears earlier in this one. Applied hashes are kept in a ledger file
+ *       in the data store root.
+ * <p> - Within a single load phase, the remaining files are streamed twice, in parallel: the first pass
+ *       stores their stamps, the second pass the entities that reference them. The data store is saved once,
+ *       committing the search index once for the whole batch, before the new hashes are recorded.
+ * <p> - Each pass decodes and stores entities in batches of at most {@value #STORE_BATCH_SIZE}, so memory
+ *       use is bounded by the batches in flight rather than by the size of the change sets.
+ * <p>
+ * Because merging versions is order independent, files may be read and stored in any order; only the
+ * stamps-first ordering is needed so that versions never reference a stamp that is not yet stored.
+ */
+public class LoadChangeSetsFromDirectory extends TrackingCallable<EntityCountSummary> {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadChangeSetsFromDirectory.class);
+
+    public static final String CHANGE_SET_SUFFIX = "ike-cs.zip";
+    public static final String APPLIED_LEDGER_NAME = "appliedChangeSets.txt";
+    private static final String MANIFEST_RELPATH = "META-INF/MANIFEST.MF";
+    private static final int STORE_BATCH_SIZE = 1024;
+
+    private final File changeSetDirectory;
+    private final File appliedLedger;
+    private final AtomicLong importConceptCount = new AtomicLong();
+    private final AtomicLong importSemanticCount = new AtomicLong();
+    private final AtomicLong importPatternCount = new AtomicLong();
+    private final AtomicLong importStampCount = new AtomicLong();
+
+    /**
+     * Replays the change sets in the directory, recording applied files in the data store root.
+     */
+    public LoadChangeSetsFromDirectory(File changeSetDirectory) {
+        this(changeSetDirectory, new File(ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT, changeSetDirectory),
+                APPLIED_LEDGER_NAME));
+    }
+
+    /**
+     * @param changeSetDirectory directory searched recursively for change set files
+     * @param appliedLedger      file listing the SHA-256 hashes of change sets already applied
+     */
+    public LoadChangeSetsFromDirectory(File changeSetDirectory, File appliedLedger) {
+        super(false, true);
+        this.changeSetDirectory = changeSetDirectory;
+        this.appliedLedger = appliedLedger;
+    }
+
+    /**
+     * A change set file that has not been applied yet.
+     */
+    private record ChangeSetToReplay(Path file, String hash) {
+    }
+
+    @FunctionalInterface
+    private interface ChangeSetTask<T, R> {
+        R apply(T changeSet) throws Exception;
+    }
+
+    @Override
+    public EntityCountSummary compute() throws Exception {
+        initCounts();
+        updateTitle("Replay change sets from " + changeSetDirectory.getName());
+        updateProgress(-1, 1);
+        try {
+            updateMessage("Scanning for change sets...");
+            List<Path> changeSetFiles = findChangeSetFiles();
+            Set<String> seenHashes = ConcurrentHashMap.newKeySet();
+            seenHashes.addAll(readLedger());
+
+            updateMessage("Hashing " + changeSetFiles.size() + " change sets...");
+            addToTotalWork(changeSetFiles.size());
+            List<ChangeSetToReplay> changeSetsToReplay = forEachChangeSet(changeSetFiles,
+                    changeSetFile -> hashIfNotSeen(changeSetFile, seenHashes));
+            LOG.info("Replaying {} of {} change sets from {}", changeSetsToReplay.size(), changeSetFiles.size(),
+                    changeSetDirectory);
+            if (changeSetsToReplay.isEmpty()) {
+                return summarize();
+            }
+
+            addToTotalWork(changeSetsToReplay.size() * 2L);
+            EntityService.get().beginLoadPhase();
+            try {
+                updateMessage("Storing stamps of " + changeSetsToReplay.size() + " change sets...");
+                forEachChangeSet(changeSetsToReplay, changeSet -> replay(changeSet.file(), true));
+                updateMessage("Storing entities of " + changeSetsToReplay.size() + " change sets...");
+                forEachChangeSet(changeSetsToReplay, changeSet -> replay(changeSet.file(), false));
+            } finally {
+                EntityService.get().endLoadPhase();
+            }
+            PrimitiveData.save();
+            appendToLedger(changeSetsToReplay);
+            return summarize();
+        } catch (Exception e) {
+            updateTitle("Failed: Replay change sets from " + changeSetDirectory.getName());
+            AlertStreams.dispatchToRoot(e);
+            throw e;
+        } finally {
+            updateMessage("In " + durationString());
+            updateProgress(1, 1);
+        }
+    }
+
+    private List<Path> findChangeSetFiles() throws IOException {
+        if (!changeSetDirectory.isDirectory()) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(changeSetDirectory.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(CHANGE_SET_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Runs the task for each change set in parallel, one unit of work each.
+     *
+     * @return the non-null results, in the order of the change sets
+     */
+    private <T, R> List<R> forEachChangeSet(List<T> changeSets, ChangeSetTask<T, R> task) throws Exception {
+        List<Future<R>> futures = new ArrayList<>(changeSets.size());
+        for (T changeSet : changeSets) {
+            futures.add(TinkExecutor.threadPool().submit(() -> {
+                try {
+                    return task.apply(changeSet);
+                } finally {
+                    completedUnitOfWork();
+                }
+            }));
+        }
+        List<R> results = new ArrayList<>(changeSets.size());
+        for (Future<R> future : futures) {
+            R result = future.get();
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hashes the file, streaming it rather than reading it into memory.
+     *
+     * @return the change set to replay, or null if a file with the same hash has already been seen
+     */
+    private static ChangeSetToReplay hashIfNotSeen(Path changeSetFile, Set<String> seenHashes) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(Files.newInputStream(changeSetFile), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        if (!seenHashes.add(hash)) {
+            LOG.debug("Skipping previously applied change set: {}", changeSetFile);
+            return null;
+        }
+        return new ChangeSetToReplay(changeSetFile, hash);
+    }
+
+    /**
+     * Streams the messages of the file, decoding and storing either only its stamps or only its other
+     * entities, in batches of at most {@value #STORE_BATCH_SIZE}.
+     *
+     * @return null, so the pass collects no results
+     */
+    private Void replay(Path changeSetFile, boolean stamps) throws Exception {
+        TinkarSchemaToEntityTransformer entityTransformer = TinkarSchemaToEntityTransformer.getInstance();
+        List<Entity<? extends EntityVersion>> batch = new ArrayList<>(STORE_BATCH_SIZE);
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(changeSetFile), 65536))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                if (zipEntry.isDirectory() || zipEntry.getName().equals(MANIFEST_RELPATH)) {
+                    continue;
+                }
+                readMessages(zis, changeSetFile, messageBytes -> {
+                    TinkarMsg pbTinkarMsg = TinkarMsg.parseFrom(messageBytes);
+                    if ((pbTinkarMsg.getValueCase() == TinkarMsg.ValueCase.STAMP_CHRONOLOGY) != stamps) {
+                        return;
+                    }
+                    entityTransformer.transform(pbTinkarMsg, batch::add, stampEntity -> {});
+                    if (batch.size() >= STORE_BATCH_SIZE) {
+                        store(batch);
+                        batch.clear();
+                    }
+                });
+            }
+        }
+        if (!batch.isEmpty()) {
+            store(batch);
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface MessageConsumer {
+        void accept(byte[] messageBytes) throws Exception;
+    }
+
+    private static void readMessages(InputStream in, Path changeSetFile, MessageConsumer messageConsumer) throws Exception {
+        int firstByte;
+        while ((firstByte = in.read()) != -1) {
+            int messageSize = CodedInputStream.readRawVarint32(firstByte, in);
+            byte[] messageBytes = in.readNBytes(messageSize);
+            if (messageBytes.length != messageSize) {
+                throw new EOFException("Truncated message in " + changeSetFile + ". Expected " +
+                        messageSize + " bytes, but found " + messageBytes.length);
+            }
+            messageConsumer.accept(messageBytes);
+        }
+    }
+
+    private void store(List<Entity<? extends EntityVersion>> entities) throws Exception {
+        TinkExecutor.forkJoinThreadPool().submit(() -> entities.parallelStream().forEach(entity -> {
+            EntityService.get().putEntityQuietly(entity, DataActivity.LOADING_CHANGE_SET);
+            updateCounts(entity);
+        })).get();
+    }
+
+    private Set<String> readLedger() throws IOException {
+        if (!appliedLedger.exists()) {
+            return Set.of();
+        }
+        try (Stream<String> lines = Files.lines(appliedLedger.toPath(), StandardCharsets.UTF_8)) {
+            return lines.map(String::strip).filter(line -> !line.isEmpty()).collect(Collectors.toSet());
+        }
+    }
+
+    private void appendToLedger(List<ChangeSetToReplay> changeSetsToReplay) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (ChangeSetToReplay changeSet : changeSetsToReplay) {
+            sb.append(changeSet.hash()).append('\n');
+        }
+        Files.writeString(appliedLedger.toPath(), sb, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void updateCounts(Entity<? extends EntityVersion> entity) {
+        switch (entity) {
+            case ConceptEntity ignored -> importConceptCount.incrementAndGet();
+            case SemanticEntity ignored -> importSemanticCount.incrementAndGet();
+            case PatternEntity ignored -> importPatternCount.incrementAndGet();
+            case StampEntity ignored -> importStampCount.incrementAndGet();
+            default -> throw new IllegalStateException("Unexpected value: " + entity);
+        }
+    }
+
+    public EntityCountSummary summarize() {
+        return new EntityCountSummary(
+                importConceptCount.get(),
+                importSemanticCount.get(),
+                importPatternCount.get(),
+                importStampCount.get()
+        );
+    }
+
+    private void initCounts() {
+        importConceptCount.set(0);
+        importSemanticCount.set(0);
+        importPatternCount.set(0);
+        importStampCount.set(0);
+    }
+}
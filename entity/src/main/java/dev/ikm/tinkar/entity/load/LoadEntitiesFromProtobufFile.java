@@ -15,12 +15,15 @@
  */
 package dev.ikm.tinkar.entity.load;
 
+import com.google.protobuf.CodedInputStream;
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.TrackingCallable;
+import dev.ikm.tinkar.common.util.io.CountingInputStream;
+import dev.ikm.tinkar.common.util.thread.NamedThreadFactory;
 import dev.ikm.tinkar.entity.ConceptEntity;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityCountSummary;
@@ -29,32 +32,67 @@
 import dev.ikm.tinkar.entity.PatternEntity;
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.export.ExportEntryType;
 import dev.ikm.tinkar.entity.transform.TinkarSchemaToEntityTransformer;
 import dev.ikm.tinkar.schema.TinkarMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipFile;
 
 /**
  * The purpose of this class is to successfully load all Protobuf messages from a protobuf file and transform them into entities.
+ * <p>
+ * Loading is performed as a pipeline with bounded queues between the stages:
+ * <p> - a reader stage that splits each zip entry into length delimited message byte slices, reading the
+ *       entries of a chunked export concurrently,
+ * <p> - transform workers that parse the slices into {@link TinkarMsg}s and transform them into entities, and
+ * <p> - store workers that write batches of entities with {@link EntityService#putEntityQuietly(Entity, DataActivity)}.
+ * <p>
+ * The whole pipeline runs within a single load phase, so index builds are deferred until the load completes.
  */
 public class LoadEntitiesFromProtobufFile extends TrackingCallable<EntityCountSummary> {
 
     protected static final Logger LOG = LoggerFactory.getLogger(LoadEntitiesFromProtobufFile.class.getName());
 
+    private static final String MANIFEST_RELPATH = "META-INF/MANIFEST.MF";
+    /**
+     * Number of messages (or entities) handed from one pipeline stage to the next at a time.
+     */
+    private static final int BATCH_SIZE = 256;
+    private static final List<byte[]> END_OF_MESSAGES = new ArrayList<>(0);
+    private static final List<Entity<? extends EntityVersion>> END_OF_ENTITIES = new ArrayList<>(0);
+
     private final TinkarSchemaToEntityTransformer entityTransformer =
             TinkarSchemaToEntityTransformer.getInstance();
-    private static final String MANIFEST_RELPATH = "META-INF/MANIFEST.MF";
     private final File importFile;
+    private final int transformThreadCount;
+    private final int storeThreadCount;
+    private final AtomicReference<Throwable> pipelineFailure = new AtomicReference<>();
+    /**
+     * Entity counts of the chunk entries of a chunked export, by entry name, as listed in the manifest.
+     */
+    private final Map<String, Long> expectedChunkCounts = new HashMap<>();
     private final AtomicLong importCount = new AtomicLong();
     private final AtomicLong importConceptCount = new AtomicLong();
     private final AtomicLong importSemanticCount = new AtomicLong();
@@ -62,11 +100,30 @@ public class LoadEntitiesFromProtobufFile extends TrackingCallable<EntityCountSu
     private final AtomicLong importStampCount = new AtomicLong();
 
     public LoadEntitiesFromProtobufFile(File importFile) {
+        this(importFile, defaultThreadCount(), defaultThreadCount());
+    }
+
+    /**
+     * @param importFile the protobuf zip file to load
+     * @param transformThreadCount number of threads parsing and transforming messages into entities
+     * @param storeThreadCount number of threads writing entities to the entity service
+     */
+    public LoadEntitiesFromProtobufFile(File importFile, int transformThreadCount, int storeThreadCount) {
         super(false, true);
+        if (transformThreadCount < 1 || storeThreadCount < 1) {
+            throw new IllegalArgumentException("Thread counts must be positive. Found transform: " +
+                    transformThreadCount + " store: " + storeThreadCount);
+        }
         this.importFile = importFile;
+        this.transformThreadCount = transformThreadCount;
+        this.storeThreadCount = storeThreadCount;
         LOG.info("Loading entities from: " + importFile.getAbsolutePath());
     }
 
+    private static int defaultThreadCount() {
+        return Math.max(1, (Runtime.getRuntime().availableProcessors() - 1) / 2);
+    }
+
     /**
      * This purpose of this method is to process all protobuf messages and call the entity transformer.
      * @return EntityCountSummary count of all entities/protobuf messages loaded/exported
@@ -78,54 +135,40 @@ public EntityCountSummary compute() {
         updateProgress(-1, 1);
         updateMessage("Analyzing Import File...");
 
-        // Analyze Manifest and update tracking callable
-        long expectedImports = analyzeManifest();
-        LOG.info(expectedImports + " Entities to process...");
-        updateProgress(0, expectedImports);
-        updateMessage("Importing Protobuf Data...");
-
-        // Process Protobuf Entry
-        EntityService.get().beginLoadPhase();
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(importFile))) {
-            // Consumer to be run for each transformed Entity
-            Consumer<Entity<? extends  EntityVersion>> entityConsumer = entity -> {
-                EntityService.get().putEntityQuietly(entity, DataActivity.LOADING_CHANGE_SET);
-				updateCounts(entity);
-            };
-
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    continue;
+        long expectedImports = -1;
+        try (ZipFile zipFile = new ZipFile(importFile)) {
+            // Analyze Manifest and update tracking callable
+            expectedImports = analyzeManifest(zipFile);
+            LOG.info(expectedImports + " Entities to process...");
+            List<ZipEntry> dataEntries = dataEntries(zipFile);
+            for (String chunkEntryName : expectedChunkCounts.keySet()) {
+                if (zipFile.getEntry(chunkEntryName) == null) {
+                    throw new IllegalStateException("Import Failed: Manifest lists chunk " + chunkEntryName +
+                            ", but " + importFile.getName() + " does not contain it");
                 }
-                while (zis.available() > 0) {
-                    // zis.available returns 1 until AFTER EOF has been reached
-                    // Protobuf parser reads the data UP TO EOF, so zis.available
-                    // will return 1 when the only thing left is EOF
-                    // pbTinkarMsg should be null for this last entry
-                    TinkarMsg pbTinkarMsg = TinkarMsg.parseDelimitedFrom(zis);
-                    if (pbTinkarMsg == null) {
-                        continue;
-                    }
-
-                    // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
-                    entityTransformer.transform(pbTinkarMsg, entityConsumer, (stampEntity) -> {});
+            }
+            long totalBytes = 0;
+            for (ZipEntry dataEntry : dataEntries) {
+                totalBytes += Math.max(0, dataEntry.getSize());
+            }
+            updateProgress(0, totalBytes);
+            updateMessage("Importing Protobuf Data...");
 
-                    // Batch progress updates to prevent hanging the UI thread
-                    if (importCount.incrementAndGet() % 1000 == 0) {
-                        updateProgress(importCount.get(), expectedImports);
-                    }
+            // Process Protobuf Entries
+            EntityService.get().beginLoadPhase();
+            try {
+                runPipeline(zipFile, dataEntries, totalBytes);
+            } finally {
+                try {
+                    EntityService.get().endLoadPhase();
+                } catch (Exception e) {
+                    LOG.error("Encountered exception {}", e.getMessage());
                 }
             }
         } catch (Exception e) {
             updateTitle("Failed: Import Protobuf data from " + importFile.getName());
             AlertStreams.dispatchToRoot(e);
         } finally {
-            try {
-                EntityService.get().endLoadPhase();
-            } catch (Exception e) {
-                LOG.error("Encountered exception {}", e.getMessage());
-            }
             updateMessage("In " + durationString());
             updateProgress(1,1);
         }
@@ -138,6 +181,207 @@ public EntityCountSummary compute() {
         return summarize();
     }
 
+    private static List<ZipEntry> dataEntries(ZipFile zipFile) {
+        List<ZipEntry> dataEntries = new ArrayList<>();
+        zipFile.stream()
+                .filter(zipEntry -> !zipEntry.isDirectory() && !zipEntry.getName().equals(MANIFEST_RELPATH))
+                .forEach(dataEntries::add);
+        return dataEntries;
+    }
+
+    /**
+     * Groups the data entries into load phases. Chunk entries of a chunked export are grouped by entity type,
+     * in {@link ExportEntryType} order, so that stamps are loaded before the concepts, patterns and semantics
+     * that reference them. Any other entry (such as the single entry of a non-chunked export) is loaded in a
+     * final phase.
+     */
+    private static List<List<ZipEntry>> loadPhases(List<ZipEntry> dataEntries) {
+        List<List<ZipEntry>> phases = new ArrayList<>();
+        for (int i = 0; i <= ExportEntryType.values().length; i++) {
+            phases.add(new ArrayList<>());
+        }
+        for (ZipEntry dataEntry : dataEntries) {
+            int phaseIndex = ExportEntryType.fromEntryName(dataEntry.getName())
+                    .map(Enum::ordinal)
+                    .orElse(ExportEntryType.values().length);
+            phases.get(phaseIndex).add(dataEntry);
+        }
+        phases.removeIf(List::isEmpty);
+        return phases;
+    }
+
+    /**
+     * Runs the reader stage on one or more threads per load phase, while transform and store workers run on a
+     * dedicated executor that is shut down when the load completes or fails. Each phase is fully stored before
+     * the next phase starts.
+     */
+    private void runPipeline(ZipFile zipFile, List<ZipEntry> dataEntries, long totalBytes) throws Exception {
+        pipelineFailure.set(null);
+        AtomicLong bytesRead = new AtomicLong();
+        List<List<ZipEntry>> phases = loadPhases(dataEntries);
+        int readerThreadCount = 1;
+        for (List<ZipEntry> phase : phases) {
+            readerThreadCount = Math.max(readerThreadCount, Math.min(phase.size(), transformThreadCount));
+        }
+        ExecutorService pipelineExecutor = Executors.newFixedThreadPool(
+                readerThreadCount + transformThreadCount + storeThreadCount,
+                new NamedThreadFactory("Tinkar-Import-thread", true));
+        try {
+            for (List<ZipEntry> phase : phases) {
+                runPhase(zipFile, phase, pipelineExecutor, bytesRead, totalBytes);
+            }
+        } finally {
+            pipelineExecutor.shutdownNow();
+        }
+    }
+
+    private void runPhase(ZipFile zipFile, List<ZipEntry> phaseEntries, ExecutorService pipelineExecutor,
+                          AtomicLong bytesRead, long totalBytes) throws Exception {
+        BlockingQueue<List<byte[]>> messageQueue = new ArrayBlockingQueue<>(transformThreadCount * 2);
+        BlockingQueue<List<Entity<? extends EntityVersion>>> entityQueue = new ArrayBlockingQueue<>(storeThreadCount * 2);
+        List<Future<?>> transformFutures = new ArrayList<>(transformThreadCount);
+        for (int i = 0; i < transformThreadCount; i++) {
+            transformFutures.add(pipelineExecutor.submit(() -> {
+                transformMessages(messageQueue, entityQueue);
+                return null;
+            }));
+        }
+        List<Future<?>> storeFutures = new ArrayList<>(storeThreadCount);
+        for (int i = 0; i < storeThreadCount; i++) {
+            storeFutures.add(pipelineExecutor.submit(() -> {
+                storeEntities(entityQueue);
+                return null;
+            }));
+        }
+
+        List<Future<?>> readerFutures = new ArrayList<>(phaseEntries.size());
+        for (ZipEntry dataEntry : phaseEntries) {
+            readerFutures.add(pipelineExecutor.submit(() -> {
+                readEntry(zipFile, dataEntry, messageQueue, bytesRead, totalBytes);
+                return null;
+            }));
+        }
+        for (Future<?> readerFuture : readerFutures) {
+            readerFuture.get();
+        }
+
+        for (int i = 0; i < transformThreadCount; i++) {
+            enqueue(messageQueue, END_OF_MESSAGES);
+        }
+        for (Future<?> transformFuture : transformFutures) {
+            transformFuture.get();
+        }
+        for (int i = 0; i < storeThreadCount; i++) {
+            enqueue(entityQueue, END_OF_ENTITIES);
+        }
+        for (Future<?> storeFuture : storeFutures) {
+            storeFuture.get();
+        }
+    }
+
+    /**
+     * Reader stage: splits the entry into the byte slices of the length delimited messages, without parsing them.
+     * Chunk entries are gzip compressed, and are decompressed by the reader, and their message count is checked
+     * against the count the manifest lists for the chunk. Progress is reported in stored (possibly compressed)
+     * bytes read.
+     */
+    private void readEntry(ZipFile zipFile, ZipEntry dataEntry, BlockingQueue<List<byte[]>> messageQueue,
+                           AtomicLong bytesRead, long totalBytes) throws Exception {
+        LOG.info("Importing zip entry: " + dataEntry.getName());
+        try (CountingInputStream countingInputStream = new CountingInputStream(zipFile.getInputStream(dataEntry));
+             InputStream messageStream = new BufferedInputStream(dataEntry.getName().endsWith(ExportEntryType.CHUNK_SUFFIX) ?
+                     new GZIPInputStream(countingInputStream, 65536) : countingInputStream, 65536)) {
+            long bytesReported = 0;
+            List<byte[]> messageBatch = new ArrayList<>(BATCH_SIZE);
+            long messageCount = 0;
+            int firstByte;
+            while ((firstByte = messageStream.read()) != -1) {
+                int messageSize = CodedInputStream.readRawVarint32(firstByte, messageStream);
+                byte[] messageBytes = messageStream.readNBytes(messageSize);
+                if (messageBytes.length != messageSize) {
+                    throw new EOFException("Truncated message in " + dataEntry.getName() + ". Expected " +
+                            messageSize + " bytes, but found " + messageBytes.length);
+                }
+                messageBatch.add(messageBytes);
+                messageCount++;
+                if (messageBatch.size() == BATCH_SIZE) {
+                    enqueue(messageQueue, messageBatch);
+                    messageBatch = new ArrayList<>(BATCH_SIZE);
+                    // Batch progress updates to prevent hanging the UI thread
+                    long bytesReadNow = countingInputStream.getBytesRead();
+                    updateProgress(bytesRead.addAndGet(bytesReadNow - bytesReported), totalBytes);
+                    bytesReported = bytesReadNow;
+                }
+            }
+            if (!messageBatch.isEmpty()) {
+                enqueue(messageQueue, messageBatch);
+            }
+            Long expectedCount = expectedChunkCounts.get(dataEntry.getName());
+            if (expectedCount != null && expectedCount != messageCount) {
+                throw new IllegalStateException("Import Failed: Expected " + expectedCount + " Entities in " +
+                        dataEntry.getName() + ", but read " + messageCount);
+            }
+            updateProgress(bytesRead.addAndGet(countingInputStream.getBytesRead() - bytesReported), totalBytes);
+        } catch (Throwable t) {
+            pipelineFailure.compareAndSet(null, t);
+            throw t;
+        }
+    }
+
+    /**
+     * Transform stage: parses message byte slices and transforms them into entities.
+     */
+    private void transformMessages(BlockingQueue<List<byte[]>> messageQueue,
+                                   BlockingQueue<List<Entity<? extends EntityVersion>>> entityQueue) throws Exception {
+        try {
+            List<byte[]> messageBatch;
+            while ((messageBatch = messageQueue.take()) != END_OF_MESSAGES) {
+                List<Entity<? extends EntityVersion>> entityBatch = new ArrayList<>(messageBatch.size());
+                for (byte[] messageBytes : messageBatch) {
+                    TinkarMsg pbTinkarMsg = TinkarMsg.parseFrom(messageBytes);
+                    // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
+                    entityTransformer.transform(pbTinkarMsg, entityBatch::add, (stampEntity) -> {});
+                }
+                enqueue(entityQueue, entityBatch);
+            }
+        } catch (Throwable t) {
+            pipelineFailure.compareAndSet(null, t);
+            throw t;
+        }
+    }
+
+    /**
+     * Store stage: writes batches of transformed entities.
+     */
+    private void storeEntities(BlockingQueue<List<Entity<? extends EntityVersion>>> entityQueue) throws Exception {
+        try {
+            List<Entity<? extends EntityVersion>> entityBatch;
+            while ((entityBatch = entityQueue.take()) != END_OF_ENTITIES) {
+                for (Entity<? extends EntityVersion> entity : entityBatch) {
+                    EntityService.get().putEntityQuietly(entity, DataActivity.LOADING_CHANGE_SET);
+                    updateCounts(entity);
+                }
+                importCount.addAndGet(entityBatch.size());
+            }
+        } catch (Throwable t) {
+            pipelineFailure.compareAndSet(null, t);
+            throw t;
+        }
+    }
+
+    /**
+     * Puts a batch on a bounded queue, giving up if another stage of the pipeline has failed,
+     * so that a failed stage does not leave its producers blocked on a full queue.
+     */
+    private <T> void enqueue(BlockingQueue<T> queue, T batch) throws InterruptedException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            Throwable failure = pipelineFailure.get();
+            if (failure != null) {
+                throw new IllegalStateException("Import pipeline failed", failure);
+            }
+        }
+    }
+
     private void updateCounts(Entity entity){
         switch (entity) {
             case ConceptEntity ignored -> importConceptCount.incrementAndGet();
@@ -166,30 +410,36 @@ protected void initCounts() {
         importStampCount.set(0);
     }
 
-    private long analyzeManifest() {
+    private long analyzeManifest(ZipFile zipFile) throws IOException {
         long expectedImports = -1;
         Map<PublicId, String> manifestEntryData = new HashMap<>();
+        expectedChunkCounts.clear();
 
         // Read Manifest from Zip
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(importFile))) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    Manifest manifest = new Manifest(zis);
-                    expectedImports = Long.parseLong(manifest.getMainAttributes().getValue("Total-Count"));
-                    // Get Dependent Module / Author PublicIds and Descriptions
-                    manifest.getEntries().keySet().forEach((publicIdKey) -> {
-                        PublicId publicId = PublicIds.of(publicIdKey.split(","));
-                        String description = manifest.getEntries().get(publicIdKey).getValue("Description");
-                        manifestEntryData.put(publicId, description);
-                    });
+        ZipEntry manifestEntry = zipFile.getEntry(MANIFEST_RELPATH);
+        if (manifestEntry != null) {
+            Manifest manifest;
+            try (InputStream manifestStream = zipFile.getInputStream(manifestEntry)) {
+                manifest = new Manifest(manifestStream);
+            }
+            expectedImports = Long.parseLong(manifest.getMainAttributes().getValue("Total-Count"));
+            // Get the entry name and entity count of each chunk of a chunked export
+            String chunkCount = manifest.getMainAttributes().getValue("Chunk-Count");
+            if (chunkCount != null) {
+                for (int i = 0; i < Integer.parseInt(chunkCount); i++) {
+                    String[] chunk = manifest.getMainAttributes().getValue(String.format("Chunk-%04d", i)).split(",");
+                    expectedChunkCounts.put(chunk[0], Long.parseLong(chunk[1]));
                 }
-                zis.closeEntry();
-                LOG.info(zipEntry.getName() + " zip entry size: " + zipEntry.getSize());
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            // Get Dependent Module / Author PublicIds and Descriptions
+            manifest.getEntries().keySet().forEach((publicIdKey) -> {
+                PublicId publicId = PublicIds.of(publicIdKey.split(","));
+                String description = manifest.getEntries().get(publicIdKey).getValue("Description");
+                manifestEntryData.put(publicId, description);
+            });
         }
+        zipFile.stream().forEach(zipEntry ->
+                LOG.info(zipEntry.getName() + " zip entry size: " + zipEntry.getSize()));
 
         manifestEntryData.keySet().forEach((publicId) -> {
             if (!PrimitiveData.get().hasPublicId(publicId)) {
@@ -36,8 +36,8 @@
 import dev.ikm.tinkar.terms.ConceptFacade;
 import dev.ikm.tinkar.terms.EntityFacade;
 import dev.ikm.tinkar.terms.State;
-import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -48,6 +48,7 @@
 import java.io.UncheckedIOException;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -61,10 +62,15 @@ public class Transaction implements Comparable<Transaction>, Encodable {
     private static final int marshalVersion = 1;
 
     private static ConcurrentHashSet<Transaction> activeTransactions = new ConcurrentHashSet<>();
+    /**
+     * The active transaction of each stamp, so that finding the transaction of a stamp or version does not
+     * probe every active transaction.
+     */
+    private static final ConcurrentHashMap<Integer, Transaction> activeTransactionForStampNid = new ConcurrentHashMap<>();
     private final UUID transactionUuid;
     private final String transactionName;
     ConcurrentHashSet<UUID> stampsInTransaction = new ConcurrentHashSet<>();
-    ConcurrentHashSet<Integer> componentsInTransaction = new ConcurrentHashSet<>();
+    final MutableIntSet componentsInTransaction = IntSets.mutable.empty().asSynchronized();
     private long commitTime = Long.MAX_VALUE;
 
     /**
@@ -123,6 +129,9 @@ public static Optional<Transaction> forStamp(PublicId stampId) {
         if (stampId.asUuidArray().length > 1) {
             throw new IllegalStateException("Can only handle one UUID for stamp. Found: " + stampId);
         }
+        if (stampId instanceof EntityFacade stampFacade) {
+            return forStamp(stampFacade.nid());
+        }
         return forStamp(stampId.asUuidArray()[0]);
     }
 
@@ -133,12 +142,20 @@ public static Optional<Transaction> forStamp(PublicId stampId) {
      * @return an Optional containing the transaction if found, or an empty Optional if no transaction contains the given stamp UUID
      */
     public static Optional<Transaction> forStamp(UUID stampUuid) {
-        for (Transaction transaction : activeTransactions) {
-            if (transaction.stampsInTransaction.contains(stampUuid)) {
-                return Optional.of(transaction);
-            }
+        if (!PrimitiveData.get().hasUuid(stampUuid)) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        return forStamp(PrimitiveData.nid(stampUuid));
+    }
+
+    /**
+     * Finds the active transaction that contains the stamp with the specified nid.
+     *
+     * @param stampNid the nid of the stamp to search for in active transactions
+     * @return an Optional containing the transaction if found, or an empty Optional if no active transaction contains the stamp
+     */
+    public static Optional<Transaction> forStamp(int stampNid) {
+        return Optional.ofNullable(activeTransactionForStampNid.get(stampNid));
     }
 
     /**
@@ -148,17 +165,9 @@ public static Optional<Transaction> forStamp(UUID stampUuid) {
      * @return an Optional containing the associated transaction if found, otherwise an empty Optional
      */
     public static Optional<Transaction> forVersion(EntityVersion version) {
-        StampEntity stamp = version.stamp();
-        UUID[] stampUuids = stamp.asUuidArray();
-        if (stampUuids.length > 1) {
-            throw new IllegalStateException("Can only handle one UUID for stamp. Found: " + version);
-        }
-        for (Transaction transaction : activeTransactions) {
-            if (transaction.stampsInTransaction.contains(stampUuids[0])) {
-                if (transaction.componentsInTransaction.contains(version.nid())) {
-                    return Optional.of(transaction);
-                }
-            }
+        Transaction transaction = activeTransactionForStampNid.get(version.stampNid());
+        if (transaction != null && transaction.componentsInTransaction.contains(version.nid())) {
+            return Optional.of(transaction);
         }
         return Optional.empty();
     }
@@ -281,7 +290,9 @@ public StampEntity getStamp(State state, long time, PublicId authorId, PublicId
         checkState(state, time, authorId == null, moduleId == null, pathId == null);
         UUID stampUuid = UuidT5Generator.forTransaction(transactionUuid, state.publicId(), time, authorId, moduleId, pathId);
         stampsInTransaction.add(stampUuid);
-        Optional<StampEntity> optionalStamp = Entity.get(PrimitiveData.nid(stampUuid));
+        int stampNid = PrimitiveData.nid(stampUuid);
+        activeTransactionForStampNid.put(stampNid, this);
+        Optional<StampEntity> optionalStamp = Entity.get(stampNid);
         if (optionalStamp.isEmpty()) {
             StampEntity stamp = StampRecord.make(stampUuid, state, time, authorId, moduleId, pathId);
             Entity.provider().putEntity(stamp);
@@ -409,7 +420,7 @@ public long commitTime() {
     public int commit() {
         AtomicInteger stampCount = new AtomicInteger();
         this.commitTime = System.currentTimeMillis();
-        activeTransactions.remove(this);
+        deactivate();
         forEachStampInTransaction(stampUuid -> {
             commitStamp(stampUuid, this.commitTime);
             stampCount.incrementAndGet();
@@ -459,7 +470,10 @@ private void commitStamp(UUID stampUuid, long commitTime) {
      *               The action consumes an integer, which represents a component nid.
      */
     public void forEachComponentInTransaction(Consumer<? super Integer> action) {
-        componentsInTransaction.forEach(action);
+        // A snapshot, so that the set is not locked while the action runs.
+        for (int componentNid : componentsInTransaction.toArray()) {
+            action.accept(componentNid);
+        }
     }
 
     /**
@@ -491,11 +505,20 @@ public int cancel() {
 //        for (TransactionImpl childTransaction : transaction.getChildren()) {
 //            processTransaction(uncommittedStamp, stampSequence, childTransaction);
 //        }
-        activeTransactions.remove(this);
+        deactivate();
         Entity.provider().notifyRefreshRequired(this);
         return stampCount.get();
     }
 
+    /**
+     * Removes this transaction from the active transactions, and from the index of their stamps.
+     */
+    private void deactivate() {
+        activeTransactions.remove(this);
+        forEachStampInTransaction(stampUuid ->
+                activeTransactionForStampNid.remove(PrimitiveData.nid(stampUuid), this));
+    }
+
     /**
      * Decodes a serialized Transaction object from the provided {@code DecoderInput}.
      * The method reads the transaction's data, including its marshal version, UUID, name,
@@ -516,7 +539,9 @@ public static Transaction decode(DecoderInput in) {
                 Transaction transaction = new Transaction(in.readUuid(), in.readString(), in.readLong());
                 int stampsInTransactionCount = in.readInt();
                 for (int i = 0; i < stampsInTransactionCount; i++) {
-                    transaction.stampsInTransaction.add(in.readUuid());
+                    UUID stampUuid = in.readUuid();
+                    transaction.stampsInTransaction.add(stampUuid);
+                    activeTransactionForStampNid.put(PrimitiveData.nid(stampUuid), transaction);
                 }
                 int componentsInTransactionCount = in.readInt();
                 for (int i = 0; i < componentsInTransactionCount; i++) {
@@ -547,8 +572,9 @@ public void encode(EncoderOutput out) {
         for (UUID stampUuid : stampsInTransaction) {
             out.writeUuid(stampUuid);
         }
-        out.writeInt(componentsInTransaction.size());
-        for (int componentNid : componentsInTransaction) {
+        int[] componentNids = componentsInTransaction.toArray();
+        out.writeInt(componentNids.length);
+        for (int componentNid : componentNids) {
             out.writeInt(componentNid);
         }
     }
@@ -585,10 +611,7 @@ public static void save() {
             try (DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(transactionFile))) {
                 outputStream.writeInt(activeTransactions.size());
                 for (Transaction transaction : activeTransactions) {
-                    ByteBuf buf = ByteBufPool.allocate(1024);
-                    EncoderOutput encoder = new EncoderOutput(buf);
-                    transaction.encode(encoder);
-                    byte[] bytes = buf.array();
+                    byte[] bytes = transaction.toBytes();
                     outputStream.writeInt(bytes.length);
                     outputStream.write(bytes);
                 }
@@ -629,12 +652,14 @@ public static void restore() {
         if (configuredRoot.isPresent()) {
             File transactionFile = new File(configuredRoot.get(), "transactions.encoded");
             if (transactionFile.exists()) {
-                try (DataInputStream dis = new DataInputStream(new FileInputStream(configuredRoot.get()))) {
+                try (DataInputStream dis = new DataInputStream(new FileInputStream(transactionFile))) {
                     int transactionCount = dis.readInt();
-                    byte[] data = new byte[(int) transactionFile.length() - 4];
-                    dis.readFully(data);
-                    DecoderInput decoder = new DecoderInput(data);
                     for (int i = 0; i < transactionCount; i++) {
+                        byte[] bytes = new byte[dis.readInt()];
+                        dis.readFully(bytes);
+                        DecoderInput decoder = new DecoderInput(bytes);
+                        // Skip the class name that toBytes() writes ahead of the transaction.
+                        decoder.readString();
                         Transaction transaction = Transaction.decode(decoder);
                         activeTransactions.add(transaction);
                     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.common.id.IntIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the closure answers the same as the traversal {@link NavigationCalculatorWithCache} falls back to
+ * while the closure is not built.
+ */
+public class NavigationClosureTest {
+    private static final int NID_BASE = -2_000_000;
+
+    @Test
+    public void diamondMatchesTraversal() {
+        // 0 -> 1, 2; 1 -> 3; 2 -> 3; 3 -> 4
+        int[][] children = {{1, 2}, {3}, {3}, {4}, {}};
+        assertClosureMatchesTraversal(children);
+    }
+
+    @Test
+    public void forestMatchesTraversal() {
+        int[][] children = {{1}, {}, {3, 4}, {}, {5}, {}};
+        assertClosureMatchesTraversal(children);
+    }
+
+    @Test
+    public void randomMultiParentGraphsMatchTraversal() {
+        Random random = new Random(20261019L);
+        for (int graph = 0; graph < 20; graph++) {
+            int[][] children = randomDag(random, 50 + random.nextInt(400), 1 + random.nextInt(4));
+            NavigationClosure closure = assertClosureMatchesTraversal(children);
+            assertEquals(children.length, closure.vertexCount());
+        }
+    }
+
+    @Test
+    public void fragmentedLabelsUseBitSetsAndMatchTraversal() {
+        // Vertex 0 is the tree parent of 200 leaves; vertex 1 is the other parent of every second leaf, so its
+        // descendants are 100 separate post order ranges, more than a range label holds.
+        int leafCount = 200;
+        int[][] children = new int[leafCount + 2][0];
+        children[0] = new int[leafCount];
+        children[1] = new int[leafCount / 2];
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            children[0][leaf] = leaf + 2;
+            if (leaf % 2 == 0) {
+                children[1][leaf / 2] = leaf + 2;
+            }
+        }
+        NavigationClosure closure = assertClosureMatchesTraversal(children);
+        assertFalse(closure.toString().contains(" 0 bitset labels"), closure.toString());
+    }
+
+    @Test
+    public void ancestorsAreIndependentAcrossCallsAndThreads() throws Exception {
+        int[][] children = randomDag(new Random(11L), 300, 3);
+        NavigationClosure closure = NavigationClosure.of(nids(children.length), children).orElseThrow();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int task = 0; task < futures.length; task++) {
+                futures[task] = executor.submit(() -> {
+                    for (int round = 0; round < 3; round++) {
+                        for (int vertex = children.length - 1; vertex >= 0; vertex--) {
+                            int nid = NID_BASE + vertex;
+                            assertArrayEquals(sorted(traverse(children, nid, false).toArray()),
+                                    sorted(closure.ancestorsOf(nid)), "ancestors of " + vertex);
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cycleIsNotLabelled() {
+        int[][] children = {{1}, {2}, {0}, {}};
+        assertFalse(NavigationClosure.of(nids(children.length), children).isPresent());
+    }
+
+    private static NavigationClosure assertClosureMatchesTraversal(int[][] children) {
+        NavigationClosure closure = NavigationClosure.of(nids(children.length), children).orElseThrow();
+        for (int vertex = 0; vertex < children.length; vertex++) {
+            int nid = NID_BASE + vertex;
+            assertTrue(closure.contains(nid));
+            IntIdSet descendents = traverse(children, nid, true);
+            IntIdSet ancestors = traverse(children, nid, false);
+            assertArrayEquals(sorted(descendents.toArray()), sorted(closure.descendentsOf(nid)), "descendents of " + vertex);
+            assertArrayEquals(sorted(ancestors.toArray()), sorted(closure.ancestorsOf(nid)), "ancestors of " + vertex);
+            for (int other = 0; other < children.length; other++) {
+                int otherNid = NID_BASE + other;
+                assertEquals(descendents.contains(otherNid), closure.isDescendentOf(otherNid, nid),
+                        other + " descendent of " + vertex);
+            }
+        }
+        assertFalse(closure.contains(NID_BASE - 1));
+        return closure;
+    }
+
+    private static IntIdSet traverse(int[][] children, int nid, boolean down) {
+        int[][] edges = down ? children : parents(children);
+        return NavigationCalculatorWithCache.traverse(nid, related -> IntIds.list.of(nids(edges[related - NID_BASE])));
+    }
+
+    /**
+     * Vertices only have children with higher indexes, so the graph is acyclic; extra parents make it a DAG
+     * rather than a tree.
+     */
+    private static int[][] randomDag(Random random, int vertexCount, int maxParents) {
+        int[][] parents = new int[vertexCount][];
+        parents[0] = new int[0];
+        for (int vertex = 1; vertex < vertexCount; vertex++) {
+            parents[vertex] = random.ints(1 + random.nextInt(maxParents), 0, vertex).distinct().toArray();
+        }
+        return parents(parents);
+    }
+
+    private static int[][] parents(int[][] children) {
+        int[][] parents = new int[children.length][0];
+        for (int vertex = 0; vertex < children.length; vertex++) {
+            for (int child : children[vertex]) {
+                parents[child] = Arrays.copyOf(parents[child], parents[child].length + 1);
+                parents[child][parents[child].length - 1] = vertex;
+            }
+        }
+        return parents;
+    }
+
+    private static int[] nids(int vertexCount) {
+        int[] nids = new int[vertexCount];
+        Arrays.setAll(nids, vertex -> NID_BASE + vertex);
+        return nids;
+    }
+
+    private static int[] nids(int[] vertexes) {
+        return Arrays.stream(vertexes).map(vertex -> NID_BASE + vertex).toArray();
+    }
+
+    private static int[] sorted(int[] values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VisitedNidsTest {
+
+    @Test
+    public void firstAddClaimsNid() {
+        VisitedNids visited = new VisitedNids();
+        int[] nids = {PrimitiveDataService.FIRST_NID, PrimitiveDataService.FIRST_NID + 63,
+                PrimitiveDataService.FIRST_NID + 64, PrimitiveDataService.FIRST_NID + (1 << 16),
+                PrimitiveDataService.FIRST_NID + 40 * (1 << 16) + 5, -1, 0, Integer.MAX_VALUE};
+        for (int nid : nids) {
+            assertTrue(visited.add(nid), "first add of " + nid);
+        }
+        for (int nid : nids) {
+            assertFalse(visited.add(nid), "second add of " + nid);
+        }
+        assertTrue(visited.add(PrimitiveDataService.FIRST_NID + 1));
+    }
+
+    @Test
+    public void concurrentAddsClaimEachNidOnce() throws Exception {
+        int threadCount = 8;
+        int nidCount = 200_000;
+        VisitedNids visited = new VisitedNids();
+        AtomicIntegerArray claims = new AtomicIntegerArray(nidCount);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            Future<?>[] futures = new Future<?>[threadCount];
+            for (int thread = 0; thread < threadCount; thread++) {
+                int offset = thread;
+                futures[thread] = executor.submit(() -> {
+                    start.await();
+                    // Threads walk the same nids from different starting points, spread over several pages.
+                    for (int i = 0; i < nidCount; i++) {
+                        int index = (i + offset * 7_919) % nidCount;
+                        if (visited.add(PrimitiveDataService.FIRST_NID + index * 3)) {
+                            claims.incrementAndGet(index);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int index = 0; index < nidCount; index++) {
+            assertEquals(1, claims.get(index), "claims of nid index " + index);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.coordinate;
+
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.language.calculator.DescriptionIndex;
+import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorWithCache;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.EntityFacade;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * The batch description methods of {@link LanguageCalculatorWithCache} must answer, position by position, what
+ * the single-nid methods answer. The nids mix described concepts with a concept whose only names are fully
+ * qualified, so that preferred texts fall back to them, and with patterns and semantics that have no
+ * descriptions. Batches below {@link TinkExecutor#defaultParallelBatchSize()} run inline and larger ones on the
+ * fork-join pool.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BatchDescriptionTextsIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            BatchDescriptionTextsIT.class);
+
+    private StampCalculatorWithCache stampCalculator;
+    private LanguageCalculatorWithCache languageCalculator;
+    private int fullyQualifiedOnlyNid;
+    private int[] smallBatch;
+    private int[] largeBatch;
+
+    @BeforeAll
+    void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        stampCalculator = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest());
+        languageCalculator = LanguageCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+        fullyQualifiedOnlyNid = makeFullyQualifiedOnlyConcept();
+
+        MutableIntList conceptNids = IntLists.mutable.empty();
+        PrimitiveData.get().forEachConceptNid(conceptNids::add);
+        int[] patternNids = PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid());
+        int[] undescribedNids = {TinkarTerm.DESCRIPTION_PATTERN.nid(), TinkarTerm.US_DIALECT_PATTERN.nid(),
+                patternNids[0], patternNids[patternNids.length - 1]};
+
+        int smallSize = TinkExecutor.defaultParallelBatchSize() - 1;
+        Assertions.assertTrue(conceptNids.size() > 2 * smallSize, "Too few concepts: " + conceptNids.size());
+        smallBatch = withNids(conceptNids.toArray(), 0, smallSize - 1 - undescribedNids.length, undescribedNids);
+        largeBatch = withNids(conceptNids.toArray(), smallSize, conceptNids.size(), undescribedNids);
+        Assertions.assertTrue(smallBatch.length < TinkExecutor.defaultParallelBatchSize());
+        Assertions.assertTrue(largeBatch.length >= TinkExecutor.defaultParallelBatchSize());
+    }
+
+    @AfterAll
+    void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    @Order(1)
+    void fullyQualifiedOnlyConceptFallsBack() {
+        Assertions.assertTrue(languageCalculator.getRegularDescriptionText(fullyQualifiedOnlyNid).isEmpty());
+        String fullyQualifiedName = languageCalculator.getFullyQualifiedNameText(fullyQualifiedOnlyNid).orElseThrow();
+        Assertions.assertEquals(fullyQualifiedName,
+                languageCalculator.getPreferredDescriptionTextWithFallbackOrNid(fullyQualifiedOnlyNid));
+    }
+
+    @Test
+    @Order(2)
+    void descriptionsForComponentsMatchSingleComponent() {
+        for (int[] batch : new int[][]{smallBatch, largeBatch}) {
+            ImmutableList<SemanticEntity>[] descriptions = languageCalculator.getDescriptionsForComponents(IntIds.list.of(batch));
+            Assertions.assertEquals(batch.length, descriptions.length);
+            for (int i = 0; i < batch.length; i++) {
+                Assertions.assertEquals(nids(languageCalculator.getDescriptionsForComponent(batch[i])),
+                        nids(descriptions[i]), "Descriptions of nid at " + i);
+            }
+        }
+    }
+
+    @Test
+    @Order(3)
+    void regularDescriptionTextsMatchSingleNid() {
+        assertTextsMatchSingleNid(false);
+    }
+
+    @Test
+    @Order(4)
+    void preferredDescriptionTextsMatchSingleNid() {
+        assertTextsMatchSingleNid(true);
+    }
+
+    @Test
+    @Order(5)
+    void textsFromDescriptionIndexMatchSingleNid() {
+        try (DescriptionIndex ignored = languageCalculator.buildDescriptionIndex()) {
+            assertTextsMatchSingleNid(false);
+            assertTextsMatchSingleNid(true);
+        }
+    }
+
+    /**
+     * Checks each batch before the single-nid calls fill the text caches, and again once they have.
+     */
+    private void assertTextsMatchSingleNid(boolean preferred) {
+        for (int[] batch : new int[][]{smallBatch, largeBatch}) {
+            String[] uncached = batchTexts(batch, preferred);
+            String[] expected = new String[batch.length];
+            for (int i = 0; i < batch.length; i++) {
+                expected[i] = preferred ? languageCalculator.getPreferredDescriptionTextWithFallbackOrNid(batch[i]) :
+                        languageCalculator.getRegularDescriptionText(batch[i]).orElse(null);
+            }
+            Assertions.assertArrayEquals(expected, uncached);
+            Assertions.assertArrayEquals(expected, batchTexts(batch, preferred));
+        }
+    }
+
+    private String[] batchTexts(int[] batch, boolean preferred) {
+        String[] texts = new String[batch.length];
+        if (preferred) {
+            languageCalculator.getPreferredDescriptionTexts(batch, texts);
+        } else {
+            languageCalculator.getRegularDescriptionTexts(batch, texts);
+        }
+        return texts;
+    }
+
+    private int[] withNids(int[] conceptNids, int from, int to, int[] undescribedNids) {
+        int[] batch = Arrays.copyOfRange(conceptNids, from, to + undescribedNids.length + 1);
+        System.arraycopy(undescribedNids, 0, batch, to - from, undescribedNids.length);
+        batch[batch.length - 1] = fullyQualifiedOnlyNid;
+        return batch;
+    }
+
+    private static MutableList<Integer> nids(ImmutableList<SemanticEntity> descriptions) {
+        return descriptions.collect(SemanticEntity::nid).toList();
+    }
+
+    /**
+     * Finds a concept with exactly one regular name and at least one fully qualified name, and commits a version
+     * of the regular name that makes it a fully qualified name.
+     */
+    private int makeFullyQualifiedOnlyConcept() {
+        int typeIndex = descriptionPattern().indexForMeaning(TinkarTerm.DESCRIPTION_TYPE);
+        for (int descriptionNid : PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid())) {
+            SemanticRecord description = Entity.getFast(descriptionNid);
+            int conceptNid = description.referencedComponentNid();
+            int regularNid = 0;
+            int regularCount = 0;
+            int fullyQualifiedCount = 0;
+            for (SemanticEntity candidate : languageCalculator.getDescriptionsForComponent(conceptNid)) {
+                Latest<SemanticEntityVersion> latest = stampCalculator.latest(candidate.nid());
+                if (latest.isAbsent() || latest.isContradicted()) {
+                    continue;
+                }
+                int typeNid = ((EntityFacade) latest.get().fieldValues().get(typeIndex)).nid();
+                if (typeNid == TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE.nid()) {
+                    regularNid = candidate.nid();
+                    regularCount++;
+                } else if (typeNid == TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE.nid()) {
+                    fullyQualifiedCount++;
+                }
+            }
+            if (regularCount == 1 && fullyQualifiedCount > 0 &&
+                    languageCalculator.getFullyQualifiedNameText(conceptNid).isPresent()) {
+                Transaction transaction = new Transaction("fullyQualifiedOnly");
+                StampEntity stamp = transaction.getStamp(State.ACTIVE, System.currentTimeMillis(), TinkarTerm.USER.nid(),
+                        TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+                SemanticRecord regular = Entity.getFast(regularNid);
+                MutableList<Object> fields = stampCalculator.<SemanticEntityVersion>latest(regularNid).get().fieldValues().toList();
+                fields.set(typeIndex, TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE);
+                Entity.provider().putEntity(regular.with(new SemanticVersionRecord(regular, stamp.nid(), fields.toImmutable())).build());
+                transaction.addComponent(regularNid);
+                transaction.commit();
+                return conceptNid;
+            }
+        }
+        return Assertions.fail("No concept with one regular name and a fully qualified name in the starter data");
+    }
+
+    private PatternEntityVersion descriptionPattern() {
+        return stampCalculator.<PatternEntityVersion>latest(TinkarTerm.DESCRIPTION_PATTERN.nid()).get();
+    }
+}
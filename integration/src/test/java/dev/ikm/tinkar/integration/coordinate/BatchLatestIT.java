@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.coordinate;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The bulk reads behind {@link StampCalculatorWithCache#latest(int[], Latest[])} must return, position by
+ * position, what the per-nid reads return. Each case uses its own range of nids, so that batches smaller than
+ * {@link TinkExecutor#defaultParallelBatchSize()} take the inline path and larger ones the fork-join path
+ * without being served from the latest cache.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BatchLatestIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            BatchLatestIT.class);
+
+    private StampCalculatorWithCache stampCalculator;
+    private int[] shuffledNids;
+    private int smallBatchSize;
+    private int largeBatchSize;
+
+    @BeforeAll
+    void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        stampCalculator = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest());
+
+        MutableIntList nids = IntLists.mutable.empty();
+        PrimitiveData.get().forEachConceptNid(nids::add);
+        PrimitiveData.get().forEachPatternNid(nids::add);
+        PrimitiveData.get().forEachSemanticNid(nids::add);
+        // Shuffle, so that a bulk read that reorders nids by storage location must restore the caller's order
+        shuffledNids = nids.toSortedArray();
+        Random random = new Random(36);
+        for (int i = shuffledNids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int nid = shuffledNids[i];
+            shuffledNids[i] = shuffledNids[j];
+            shuffledNids[j] = nid;
+        }
+        smallBatchSize = TinkExecutor.defaultParallelBatchSize() - 1;
+        largeBatchSize = TinkExecutor.defaultParallelBatchSize() * 4 + 1;
+        Assertions.assertTrue(shuffledNids.length >= 2 * (smallBatchSize + largeBatchSize),
+                "Starter data has too few entities: " + shuffledNids.length);
+    }
+
+    @AfterAll
+    void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    @Order(1)
+    void getBytesMatchesPerNidReads() {
+        int[] nids = Arrays.copyOfRange(shuffledNids, 0, largeBatchSize);
+        // A nid requested twice is returned at both positions
+        nids[nids.length - 1] = nids[0];
+        byte[][] bytes = PrimitiveData.get().getBytes(nids);
+        Assertions.assertEquals(nids.length, bytes.length);
+        for (int i = 0; i < nids.length; i++) {
+            Assertions.assertArrayEquals(PrimitiveData.get().getBytes(nids[i]), bytes[i], "Bytes of nid at " + i);
+        }
+        Assertions.assertEquals(0, PrimitiveData.get().getBytes(new int[0]).length);
+    }
+
+    @Test
+    @Order(2)
+    void latestOfSmallBatchMatchesPerNidLatest() {
+        assertBatchMatchesPerNid(Arrays.copyOfRange(shuffledNids, 0, smallBatchSize));
+    }
+
+    @Test
+    @Order(3)
+    void latestOfLargeBatchMatchesPerNidLatest() {
+        assertBatchMatchesPerNid(Arrays.copyOfRange(shuffledNids, smallBatchSize, smallBatchSize + largeBatchSize));
+    }
+
+    @Test
+    @Order(4)
+    void latestOfPartlyCachedBatchMatchesPerNidLatest() {
+        // Half the nids were cached by the small and large batches, the other half are read in bulk
+        int cachedStart = smallBatchSize + largeBatchSize - largeBatchSize / 2;
+        assertBatchMatchesPerNid(Arrays.copyOfRange(shuffledNids, cachedStart, cachedStart + largeBatchSize));
+    }
+
+    /**
+     * Checks the batch twice: once as computed, and once as served from the latest cache it filled.
+     */
+    private void assertBatchMatchesPerNid(int[] nids) {
+        for (int pass = 0; pass < 2; pass++) {
+            Latest<? extends EntityVersion>[] latestVersions = new Latest[nids.length + 1];
+            stampCalculator.latest(nids, latestVersions);
+            for (int i = 0; i < nids.length; i++) {
+                assertSameLatest(stampCalculator.latest(Entity.getFast(nids[i])), latestVersions[i],
+                        "Pass " + pass + ", nid at " + i);
+            }
+            Assertions.assertNull(latestVersions[nids.length], "Slot past the nids is left untouched");
+        }
+    }
+
+    /**
+     * Versions decoded by different reads are different objects, so they are compared by stamp.
+     */
+    private static void assertSameLatest(Latest<? extends EntityVersion> expected,
+                                         Latest<? extends EntityVersion> actual, String message) {
+        Assertions.assertNotNull(actual, message);
+        Assertions.assertEquals(expected.isPresent(), actual.isPresent(), message);
+        if (expected.isPresent()) {
+            Assertions.assertEquals(expected.get().nid(), actual.get().nid(), message);
+            Assertions.assertEquals(expected.get().stampNid(), actual.get().stampNid(), message);
+        }
+        Assertions.assertEquals(expected.contradictions().collect(EntityVersion::stampNid),
+                actual.contradictions().collect(EntityVersion::stampNid), message);
+    }
+}
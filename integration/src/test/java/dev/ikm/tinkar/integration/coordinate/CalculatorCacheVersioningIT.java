@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.coordinate;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.text.NaturalOrder;
+import dev.ikm.tinkar.coordinate.Calculators;
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorWithCache;
+import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculatorWithCache;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.EntityFacade;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Calculator caches are versioned by the write sequence of each nid rather than invalidated. Each case warms
+ * the cached label, latest version and sort key of a concept, changes the data underneath them, and checks
+ * that the next reads reflect the change.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CalculatorCacheVersioningIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            CalculatorCacheVersioningIT.class);
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private StampCalculatorWithCache stampCalculator;
+    private LanguageCalculatorWithCache languageCalculator;
+    private NavigationCalculatorWithCache navigationCalculator;
+    private int conceptNid;
+    private int regularNid;
+    private int fullyQualifiedNid;
+    private int regularDialectNid;
+    private int fullyQualifiedDialectNid;
+
+    @BeforeAll
+    void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        CLOCK.set(System.currentTimeMillis());
+        stampCalculator = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest());
+        languageCalculator = LanguageCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+        navigationCalculator = Calculators.Navigation.inferred(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+        chooseConcept();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    /**
+     * Finds a concept with distinct regular and fully qualified names, each with one US dialect semantic, the
+     * regular name's preferred.
+     */
+    private void chooseConcept() {
+        for (int descriptionNid : PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid())) {
+            SemanticRecord description = Entity.getFast(descriptionNid);
+            int candidateNid = description.referencedComponentNid();
+            Latest<SemanticEntityVersion> regular = languageCalculator.getRegularDescription(candidateNid);
+            Latest<SemanticEntityVersion> fullyQualified = languageCalculator.getFullyQualifiedDescription(candidateNid);
+            if (regular.isAbsent() || fullyQualified.isAbsent() || regular.isContradicted()
+                    || regular.get().nid() == fullyQualified.get().nid()
+                    || !(descriptionType(regular.get()) == TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE.nid())
+                    || text(regular.get()).equals(text(fullyQualified.get()))) {
+                continue;
+            }
+            int[] regularDialects = PrimitiveData.get().semanticNidsForComponentOfPattern(regular.get().nid(),
+                    TinkarTerm.US_DIALECT_PATTERN.nid());
+            int[] fullyQualifiedDialects = PrimitiveData.get().semanticNidsForComponentOfPattern(fullyQualified.get().nid(),
+                    TinkarTerm.US_DIALECT_PATTERN.nid());
+            if (regularDialects.length == 1 && fullyQualifiedDialects.length == 1
+                    && acceptability(regularDialects[0]) == TinkarTerm.PREFERRED.nid()) {
+                conceptNid = candidateNid;
+                regularNid = regular.get().nid();
+                fullyQualifiedNid = fullyQualified.get().nid();
+                regularDialectNid = regularDialects[0];
+                fullyQualifiedDialectNid = fullyQualifiedDialects[0];
+                return;
+            }
+        }
+        Assertions.fail("No concept with distinct regular and fully qualified names in the starter data");
+    }
+
+    @Test
+    @Order(1)
+    void descriptionEditInvalidatesCachedValues() {
+        String before = warmCaches();
+        Latest<SemanticEntityVersion> latestBefore = stampCalculator.latest(regularNid);
+
+        String edited = before + " edited";
+        Transaction transaction = new Transaction("descriptionEdit");
+        StampEntity stamp = committedStamp(transaction);
+        addVersion(transaction, stamp, regularNid,
+                fields -> fields.set(descriptionPattern().indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION), edited));
+        transaction.commit();
+
+        Assertions.assertEquals(stamp.nid(), stampCalculator.latest(regularNid).get().stampNid());
+        Assertions.assertNotEquals(latestBefore.get().stampNid(), stampCalculator.latest(regularNid).get().stampNid());
+        assertLabel(edited);
+    }
+
+    @Test
+    @Order(2)
+    void dialectChangeInvalidatesCachedValues() {
+        // Make the fully qualified name a second, acceptable, regular name...
+        String alternate = text(stampCalculator.<SemanticEntityVersion>latest(fullyQualifiedNid).get()) + " alternate";
+        Transaction setup = new Transaction("dialectSetup");
+        StampEntity setupStamp = committedStamp(setup);
+        PatternEntityVersion descriptionPattern = descriptionPattern();
+        addVersion(setup, setupStamp, fullyQualifiedNid, fields -> {
+            fields.set(descriptionPattern.indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION), alternate);
+            fields.set(descriptionPattern.indexForMeaning(TinkarTerm.DESCRIPTION_TYPE), TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE);
+        });
+        addVersion(setup, setupStamp, fullyQualifiedDialectNid, fields -> fields.set(acceptabilityIndex(), TinkarTerm.ACCEPTABLE));
+        setup.commit();
+        String preferred = warmCaches();
+        Assertions.assertNotEquals(alternate, preferred);
+        Latest<SemanticEntityVersion> dialectBefore = stampCalculator.latest(regularDialectNid);
+
+        // ...then swap which of the two is preferred.
+        Transaction transaction = new Transaction("dialectChange");
+        StampEntity stamp = committedStamp(transaction);
+        addVersion(transaction, stamp, regularDialectNid, fields -> fields.set(acceptabilityIndex(), TinkarTerm.ACCEPTABLE));
+        addVersion(transaction, stamp, fullyQualifiedDialectNid, fields -> fields.set(acceptabilityIndex(), TinkarTerm.PREFERRED));
+        transaction.commit();
+
+        Assertions.assertNotEquals(dialectBefore.get().stampNid(), stampCalculator.latest(regularDialectNid).get().stampNid());
+        Assertions.assertEquals(stamp.nid(), stampCalculator.latest(fullyQualifiedDialectNid).get().stampNid());
+        Assertions.assertEquals(fullyQualifiedNid, languageCalculator.getRegularDescription(conceptNid).get().nid());
+        assertLabel(alternate);
+    }
+
+    @Test
+    @Order(3)
+    void commitInvalidatesCachedValues() {
+        int descriptionNid = languageCalculator.getRegularDescription(conceptNid).get().nid();
+        String before = warmCaches();
+        String edited = before + " committed";
+        Transaction transaction = new Transaction("commit");
+        StampEntity stamp = transaction.getStamp(State.ACTIVE, TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        addVersion(transaction, stamp, descriptionNid,
+                fields -> fields.set(descriptionPattern().indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION), edited));
+        warmCaches();
+        Latest<SemanticEntityVersion> latestBeforeCommit = stampCalculator.latest(descriptionNid);
+        long descriptionSequence = Entity.provider().writeSequence(descriptionNid);
+        long conceptSequence = Entity.provider().writeSequence(conceptNid);
+
+        transaction.commit();
+
+        Assertions.assertTrue(Entity.provider().writeSequence(descriptionNid) > descriptionSequence);
+        Assertions.assertTrue(Entity.provider().writeSequence(conceptNid) > conceptSequence);
+        Latest<SemanticEntityVersion> latestAfterCommit = stampCalculator.latest(descriptionNid);
+        Assertions.assertNotSame(latestBeforeCommit, latestAfterCommit);
+        Assertions.assertEquals(stamp.nid(), latestAfterCommit.get().stampNid());
+        Assertions.assertEquals(transaction.commitTime(), latestAfterCommit.get().stamp().time());
+        assertLabel(edited);
+    }
+
+    /**
+     * Reads the label, description text and sort key of the concept so that each calculator caches them.
+     *
+     * @return the regular name
+     */
+    private String warmCaches() {
+        String label = languageCalculator.getRegularDescriptionText(conceptNid).orElseThrow();
+        Assertions.assertEquals(label, languageCalculator.getDescriptionText(conceptNid).orElseThrow());
+        Assertions.assertEquals(NaturalOrder.sortKey(label), navigationCalculator.vertexSortKey(conceptNid));
+        return label;
+    }
+
+    private void assertLabel(String expected) {
+        Assertions.assertEquals(expected, languageCalculator.getRegularDescriptionText(conceptNid).orElseThrow());
+        Assertions.assertEquals(expected, languageCalculator.getDescriptionText(conceptNid).orElseThrow());
+        Assertions.assertEquals(NaturalOrder.sortKey(expected), navigationCalculator.vertexSortKey(conceptNid));
+    }
+
+    private StampEntity committedStamp(Transaction transaction) {
+        return transaction.getStamp(State.ACTIVE, CLOCK.addAndGet(1_000), TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+    }
+
+    /**
+     * Writes a version of the semantic, edited from its latest version, as a component of the transaction.
+     */
+    private void addVersion(Transaction transaction, StampEntity stamp, int semanticNid, Consumer<MutableList<Object>> edit) {
+        SemanticRecord semantic = Entity.getFast(semanticNid);
+        MutableList<Object> fields = stampCalculator.<SemanticEntityVersion>latest(semanticNid).get().fieldValues().toList();
+        edit.accept(fields);
+        Entity.provider().putEntity(semantic.with(new SemanticVersionRecord(semantic, stamp.nid(), fields.toImmutable())).build());
+        transaction.addComponent(semanticNid);
+    }
+
+    private PatternEntityVersion descriptionPattern() {
+        return stampCalculator.<PatternEntityVersion>latest(TinkarTerm.DESCRIPTION_PATTERN.nid()).get();
+    }
+
+    private int acceptabilityIndex() {
+        return stampCalculator.<PatternEntityVersion>latest(TinkarTerm.US_DIALECT_PATTERN.nid()).get()
+                .indexForPurpose(TinkarTerm.DESCRIPTION_ACCEPTABILITY);
+    }
+
+    private int acceptability(int dialectNid) {
+        Latest<SemanticEntityVersion> dialect = stampCalculator.latest(dialectNid);
+        return dialect.isPresent() && dialect.get().fieldValues().get(acceptabilityIndex()) instanceof EntityFacade acceptability
+                ? acceptability.nid() : 0;
+    }
+
+    private int descriptionType(SemanticEntityVersion description) {
+        return ((EntityFacade) description.fieldValues().get(descriptionPattern().indexForMeaning(TinkarTerm.DESCRIPTION_TYPE))).nid();
+    }
+
+    private String text(SemanticEntityVersion description) {
+        return (String) description.fieldValues().get(descriptionPattern().indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION));
+    }
+}
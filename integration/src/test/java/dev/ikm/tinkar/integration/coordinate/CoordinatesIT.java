@@ -16,25 +16,34 @@
 package dev.ikm.tinkar.integration.coordinate;
 
 import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIds;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.coordinate.Calculators;
 import dev.ikm.tinkar.coordinate.Coordinates;
 import dev.ikm.tinkar.coordinate.PathService;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinateRecord;
+import dev.ikm.tinkar.coordinate.language.calculator.DescriptionIndex;
 import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorWithCache;
 import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
 import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.coordinate.stamp.calculator.LatestSnapshot;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
 import dev.ikm.tinkar.coordinate.view.calculator.ViewCalculator;
 import dev.ikm.tinkar.entity.ConceptEntity;
 import dev.ikm.tinkar.entity.ConceptEntityVersion;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.EntityVersion;
 import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
 import dev.ikm.tinkar.integration.TestConstants;
 import dev.ikm.tinkar.integration.helper.DataStore;
 import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.set.ImmutableSet;
@@ -183,4 +192,130 @@ void sortedNavigate() {
         sb.append("]\n");
         LOG.info(sb.toString());
     }
+
+    @Test
+    @Order(8)
+    void materializedLatest() {
+        StampCalculatorWithCache calculator = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest());
+        int[] descriptionNids = PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid());
+        try (LatestSnapshot snapshot = calculator.materializeLatest(64L * 1024 * 1024)) {
+            Assertions.assertTrue(snapshot.materializedCount() > descriptionNids.length);
+            for (int descriptionNid : descriptionNids) {
+                Latest<EntityVersion> fromSnapshot = calculator.latest(descriptionNid);
+                Latest<EntityVersion> computed = calculator.latest(Entity.getFast(descriptionNid));
+                Assertions.assertEquals(computed.isPresent(), fromSnapshot.isPresent());
+                if (computed.isPresent()) {
+                    Assertions.assertEquals(computed.get().stampNid(), fromSnapshot.get().stampNid());
+                }
+            }
+        }
+        Assertions.assertTrue(calculator.latestSnapshot().isEmpty());
+    }
+
+    @Test
+    @Order(9)
+    void descriptionIndex() {
+        LanguageCalculatorWithCache calculator = LanguageCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+        int[] descriptionNids = PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid());
+        int[] componentNids = new int[Math.min(500, descriptionNids.length)];
+        String[] regularTexts = new String[componentNids.length];
+        String[] fqnTexts = new String[componentNids.length];
+        for (int i = 0; i < componentNids.length; i++) {
+            SemanticEntity descriptionSemantic = Entity.getFast(descriptionNids[i]);
+            componentNids[i] = descriptionSemantic.referencedComponentNid();
+            regularTexts[i] = calculator.getRegularDescriptionText(componentNids[i]).orElse(null);
+            fqnTexts[i] = calculator.getFullyQualifiedNameText(componentNids[i]).orElse(null);
+        }
+        try (DescriptionIndex index = calculator.buildDescriptionIndex()) {
+            Assertions.assertSame(index, calculator.descriptionIndex().get());
+            for (int i = 0; i < componentNids.length; i++) {
+                Assertions.assertEquals(regularTexts[i], calculator.getRegularDescriptionText(componentNids[i]).orElse(null));
+                Assertions.assertEquals(fqnTexts[i], calculator.getFullyQualifiedNameText(componentNids[i]).orElse(null));
+            }
+        }
+        Assertions.assertTrue(calculator.descriptionIndex().isEmpty());
+    }
+
+    @Test
+    @Order(10)
+    void latestOnBranchedPath() {
+        SemanticRecord description = Entity.getFast(PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid())[0]);
+        long time = System.currentTimeMillis();
+        Transaction transaction = new Transaction("latestOnBranchedPath");
+        StampEntity developmentStamp = transaction.getStamp(State.ACTIVE, time, TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        StampEntity masterStamp = transaction.getStamp(State.ACTIVE, time + 1, TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.MASTER_PATH.nid());
+        StampEntity laterDevelopmentStamp = transaction.getStamp(State.ACTIVE, time + 2, TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        SemanticRecord edited = addVersions(description, developmentStamp, masterStamp, laterDevelopmentStamp);
+        transaction.commit();
+
+        StampCalculatorWithCache development = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest());
+        StampCalculatorWithCache master = StampCalculatorWithCache.getCalculator(Coordinates.Stamp.MasterLatest());
+        // The master path branches from development, so it is not on the development route...
+        Assertions.assertFalse(development.onRoute(masterStamp.nid()));
+        Assertions.assertEquals(laterDevelopmentStamp.nid(), development.latest(edited).get().stampNid());
+        // ...while on the master route a master version follows every version on its origins, whatever their time.
+        Assertions.assertTrue(master.onRoute(masterStamp.nid()));
+        Assertions.assertEquals(masterStamp.nid(), master.latest(edited).get().stampNid());
+        Assertions.assertEquals(masterStamp.nid(), master.latest(edited.nid()).get().stampNid());
+        assertTableMatchesSegments(development, edited);
+        assertTableMatchesSegments(master, edited);
+    }
+
+    @Test
+    @Order(11)
+    void latestOnModuleExcludedRoute() {
+        SemanticRecord description = Entity.getFast(PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid())[1]);
+        long time = System.currentTimeMillis();
+        Transaction transaction = new Transaction("latestOnModuleExcludedRoute");
+        StampEntity includedStamp = transaction.getStamp(State.ACTIVE, time, TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        StampEntity excludedStamp = transaction.getStamp(State.ACTIVE, time + 1, TinkarTerm.USER.nid(),
+                TinkarTerm.TEST_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        SemanticRecord edited = addVersions(description, includedStamp, excludedStamp);
+        transaction.commit();
+
+        StampCoordinateRecord allModules = Coordinates.Stamp.DevelopmentLatest();
+        StampCoordinateRecord excludingTestModule = allModules.withExcludedModuleNids(IntIds.set.of(TinkarTerm.TEST_MODULE.nid()));
+        StampCalculatorWithCache allModulesCalculator = StampCalculatorWithCache.getCalculator(allModules);
+        StampCalculatorWithCache excludingCalculator = StampCalculatorWithCache.getCalculator(excludingTestModule);
+        Assertions.assertEquals(excludedStamp.nid(), allModulesCalculator.latest(edited).get().stampNid());
+        // Excluded modules change the route, so the calculators must not share stamp order entries.
+        Assertions.assertTrue(allModulesCalculator.onRoute(excludedStamp.nid()));
+        Assertions.assertFalse(excludingCalculator.onRoute(excludedStamp.nid()));
+        Assertions.assertEquals(includedStamp.nid(), excludingCalculator.latest(edited).get().stampNid());
+        Assertions.assertEquals(includedStamp.nid(), excludingCalculator.latest(edited.nid()).get().stampNid());
+        assertTableMatchesSegments(allModulesCalculator, edited);
+        assertTableMatchesSegments(excludingCalculator, edited);
+    }
+
+    /**
+     * Adds a version with unchanged fields for each stamp, and writes the result.
+     */
+    private static SemanticRecord addVersions(SemanticRecord semantic, StampEntity... stamps) {
+        SemanticRecord edited = semantic;
+        for (StampEntity stamp : stamps) {
+            edited = edited.with(new SemanticVersionRecord(edited, stamp.nid(), semantic.versions().get(0).fieldValues())).build();
+        }
+        Entity.provider().putEntity(edited);
+        return edited;
+    }
+
+    /**
+     * The stamp order table must order every pair of versions on the route as the path segments do.
+     */
+    private static void assertTableMatchesSegments(StampCalculatorWithCache calculator, SemanticRecord semantic) {
+        for (SemanticVersionRecord version1 : semantic.versions()) {
+            for (SemanticVersionRecord version2 : semantic.versions()) {
+                if (calculator.onRoute(version1.stampNid()) && calculator.onRoute(version2.stampNid())) {
+                    Assertions.assertEquals(calculator.getRelativePosition(version1.stamp(), version2.stamp()),
+                            calculator.fastRelativePosition(version1.stampNid(), version2.stampNid()),
+                            () -> version1.stamp() + " vs " + version2.stamp());
+                }
+            }
+        }
+    }
 }
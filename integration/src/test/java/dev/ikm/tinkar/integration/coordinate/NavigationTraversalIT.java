@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.coordinate;
+
+import dev.ikm.tinkar.common.id.IntIdCollection;
+import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.coordinate.Calculators;
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculatorWithCache;
+import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntIntMaps;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Depth-limited traversals of the navigation calculator must agree with a plain breadth-first search over the
+ * calculator's parents and children, whether a level is expanded serially or on the fork-join pool.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class NavigationTraversalIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            NavigationTraversalIT.class);
+
+    @BeforeAll
+    static void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    private static NavigationCalculatorWithCache calculator() {
+        return Calculators.Navigation.inferred(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+    }
+
+    @Test
+    @Order(1)
+    void depthLimitedDescendentsMatchUnbounded() {
+        NavigationCalculatorWithCache calculator = calculator();
+        MutableIntIntMap depths = referenceDepths(TinkarTerm.ROOT_VERTEX.nid(), calculator::unsortedChildrenOf);
+        Assertions.assertTrue(depths.size() > 1);
+        assertTraversalsMatch(calculator, TinkarTerm.ROOT_VERTEX.nid(), depths, true);
+    }
+
+    @Test
+    @Order(2)
+    void depthLimitedAncestorsMatchUnbounded() {
+        NavigationCalculatorWithCache calculator = calculator();
+        MutableIntIntMap descendentDepths = referenceDepths(TinkarTerm.ROOT_VERTEX.nid(), calculator::unsortedChildrenOf);
+        int deepestNid = TinkarTerm.ROOT_VERTEX.nid();
+        for (int nid : descendentDepths.keySet().toArray()) {
+            if (descendentDepths.get(nid) > descendentDepths.get(deepestNid)) {
+                deepestNid = nid;
+            }
+        }
+        MutableIntIntMap depths = referenceDepths(deepestNid, calculator::unsortedParentsOf);
+        Assertions.assertTrue(depths.containsKey(TinkarTerm.ROOT_VERTEX.nid()));
+        assertTraversalsMatch(calculator, deepestNid, depths, false);
+    }
+
+    @Test
+    @Order(3)
+    void wideLevelsExpandedInParallelMatchSerialSearch() {
+        // Make every concept, and enough descriptions to be wider than a parallel batch, children of the root,
+        // so the second level is expanded on the fork-join pool and workers race to visit the same concepts.
+        int rootNid = TinkarTerm.ROOT_VERTEX.nid();
+        MutableIntSet wideChildren = IntSets.mutable.empty();
+        PrimitiveData.get().forEachConceptNid(wideChildren::add);
+        wideChildren.remove(rootNid);
+        int[] descriptionNids = PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid());
+        for (int i = 0; i < descriptionNids.length && wideChildren.size() < 2 * TinkExecutor.defaultParallelBatchSize(); i++) {
+            wideChildren.add(descriptionNids[i]);
+        }
+        Assertions.assertTrue(wideChildren.size() >= TinkExecutor.defaultParallelBatchSize());
+        addChildren(rootNid, wideChildren);
+
+        NavigationCalculatorWithCache calculator = calculator();
+        Assertions.assertTrue(calculator.unsortedChildrenOf(rootNid).size() >= TinkExecutor.defaultParallelBatchSize());
+        MutableIntIntMap depths = referenceDepths(rootNid, calculator::unsortedChildrenOf);
+        for (int round = 0; round < 10; round++) {
+            assertTraversalsMatch(calculator, rootNid, depths, true);
+        }
+    }
+
+    /**
+     * Compares the bounded set queries at every depth, and the visiting order of the for-each traversal, with
+     * the reference depths, and the unbounded query with the deepest bounded one.
+     */
+    private static void assertTraversalsMatch(NavigationCalculatorWithCache calculator, int startNid,
+                                              MutableIntIntMap depths, boolean descendents) {
+        int maxDepth = depths.max();
+        for (int depth = 0; depth <= maxDepth + 1; depth++) {
+            int limit = depth;
+            IntIdSet bounded = descendents ? calculator.descendentsOf(startNid, depth) : calculator.ancestorsOf(startNid, depth);
+            int[] expected = depths.keySet().select(nid -> nid != startNid && depths.get(nid) <= limit).toSortedArray();
+            Assertions.assertArrayEquals(expected, sorted(bounded.toArray()), "depth " + depth);
+        }
+        IntIdSet unbounded = descendents ? calculator.descendentsOf(startNid) : calculator.ancestorsOf(startNid);
+        IntIdSet unlimited = descendents ? calculator.descendentsOf(startNid, Integer.MAX_VALUE)
+                : calculator.ancestorsOf(startNid, Integer.MAX_VALUE);
+        Assertions.assertArrayEquals(sorted(unbounded.toArray()), sorted(unlimited.toArray()));
+
+        MutableIntIntMap visited = IntIntMaps.mutable.empty();
+        MutableList<String> problems = Lists.mutable.empty();
+        IntIntProcedure procedure = (nid, depth) -> {
+            if (visited.containsKey(nid)) {
+                problems.add("visited twice: " + nid);
+            }
+            visited.put(nid, depth);
+        };
+        if (descendents) {
+            calculator.forEachDescendent(startNid, Integer.MAX_VALUE, procedure);
+        } else {
+            calculator.forEachAncestor(startNid, Integer.MAX_VALUE, procedure);
+        }
+        Assertions.assertEquals(Lists.mutable.empty(), problems);
+        MutableIntIntMap expectedVisits = IntIntMaps.mutable.empty();
+        expectedVisits.putAll(depths);
+        expectedVisits.remove(startNid);
+        Assertions.assertEquals(expectedVisits, visited);
+    }
+
+    /**
+     * Shortest distance from the start to every concept reachable through the step, by a serial search.
+     */
+    private static MutableIntIntMap referenceDepths(int startNid, IntFunction<IntIdList> step) {
+        MutableIntIntMap depths = IntIntMaps.mutable.of(startNid, 0);
+        MutableIntList level = IntLists.mutable.of(startNid);
+        for (int depth = 1; level.notEmpty(); depth++) {
+            MutableIntList next = IntLists.mutable.empty();
+            for (int nid : level.toArray()) {
+                for (int relatedNid : step.apply(nid).toArray()) {
+                    if (!depths.containsKey(relatedNid)) {
+                        depths.put(relatedNid, depth);
+                        next.add(relatedNid);
+                    }
+                }
+            }
+            level = next;
+        }
+        return depths;
+    }
+
+    /**
+     * Writes a version of the concept's inferred navigation semantic that adds the given children.
+     */
+    private static void addChildren(int conceptNid, MutableIntSet children) {
+        int[] navigationNids = PrimitiveData.get().semanticNidsForComponentOfPattern(conceptNid,
+                TinkarTerm.INFERRED_NAVIGATION_PATTERN.nid());
+        Assertions.assertEquals(1, navigationNids.length);
+        SemanticRecord navigation = Entity.getFast(navigationNids[0]);
+        Latest<PatternEntityVersion> pattern = calculator().stampCalculator().latest(TinkarTerm.INFERRED_NAVIGATION_PATTERN.nid());
+        int childIndex = pattern.get().indexForMeaning(TinkarTerm.RELATIONSHIP_DESTINATION);
+        Latest<SemanticVersionRecord> latest = calculator().stampCalculator().latest(navigation.nid());
+        MutableList<Object> fields = latest.get().fieldValues().toList();
+        MutableIntSet allChildren = IntSets.mutable.withAll(children);
+        allChildren.addAll(((IntIdCollection) fields.get(childIndex)).toArray());
+        fields.set(childIndex, IntIds.set.of(allChildren.toArray()));
+
+        Transaction transaction = new Transaction("addChildren");
+        StampEntity stamp = transaction.getStamp(State.ACTIVE, System.currentTimeMillis(), TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid());
+        Entity.provider().putEntity(navigation.with(new SemanticVersionRecord(navigation, stamp.nid(), fields.toImmutable())).build());
+        transaction.commit();
+    }
+
+    private static int[] sorted(int[] values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -19,6 +19,7 @@
 import dev.ikm.tinkar.common.id.impl.IntIdListArray;
 import dev.ikm.tinkar.common.id.impl.IntIdSetArray;
 import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.util.io.FileUtil;
 import dev.ikm.tinkar.coordinate.Calculators;
 import dev.ikm.tinkar.coordinate.Coordinates;
@@ -27,8 +28,10 @@
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
+import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityCountSummary;
 import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.EntityVersion;
 import dev.ikm.tinkar.entity.PatternEntityVersion;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
 import dev.ikm.tinkar.entity.export.ExportEntitiesToProtobufFile;
@@ -46,7 +49,9 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -169,4 +174,41 @@ public void testFieldTypeSetToList() throws IOException {
         assertTrue(atomicBoolean.get());
     }
 
+    @Test
+    public void chunkedExportRoundTrip() {
+        File chunkedProtobuf = new File(DATASTORE_ROOT.getParentFile(), "chunked-export-pb.zip");
+        if (chunkedProtobuf.exists()) {
+            assertTrue(chunkedProtobuf.delete());
+        }
+        EntityCountSummary exportSummary = new ExportEntitiesToProtobufFile(chunkedProtobuf, 4).compute();
+        LOG.info("Entities exported to chunked protobuf: " + exportSummary.getTotalCount());
+        Map<String, Integer> exportedVersionCounts = versionCountsByPublicId();
+        TestHelper.stopDatabase();
+
+        // Load into an empty database, so that a missing or misordered entity is not hidden by the original data
+        File freshDatastoreRoot = new File(DATASTORE_ROOT.getParentFile(), DATASTORE_ROOT.getName() + "-chunked");
+        FileUtil.recursiveDelete(freshDatastoreRoot);
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, freshDatastoreRoot);
+        try {
+            EntityCountSummary loadSummary = new LoadEntitiesFromProtobufFile(chunkedProtobuf).compute();
+            assertEquals(exportSummary, loadSummary);
+            assertEquals(exportedVersionCounts, versionCountsByPublicId());
+        } finally {
+            TestHelper.stopDatabase();
+            TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        }
+    }
+
+    /**
+     * Nids differ between databases, so entities are compared by public id, along with their number of versions.
+     */
+    private static Map<String, Integer> versionCountsByPublicId() {
+        Map<String, Integer> versionCounts = new ConcurrentHashMap<>();
+        PrimitiveData.get().forEach((bytes, nid) -> {
+            Entity<? extends EntityVersion> entity = EntityService.get().getEntityFast(nid);
+            versionCounts.put(entity.publicId().idString(), entity.versions().size());
+        });
+        return versionCounts;
+    }
+
 }
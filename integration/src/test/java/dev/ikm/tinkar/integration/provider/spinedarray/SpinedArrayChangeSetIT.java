@@ -29,6 +29,7 @@
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.load.LoadChangeSetsFromDirectory;
 import dev.ikm.tinkar.entity.load.LoadEntitiesFromProtobufFile;
 import dev.ikm.tinkar.integration.TestConstants;
 import dev.ikm.tinkar.integration.helper.DataStore;
@@ -39,8 +40,11 @@
 import org.eclipse.collections.api.list.ImmutableList;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +54,7 @@
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
@@ -60,6 +65,7 @@
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class SpinedArrayChangeSetIT {
     private static final Logger LOG = LoggerFactory.getLogger(SpinedArrayChangeSetIT.class);
     private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
@@ -81,20 +87,77 @@ static void afterAll() {
     }
 
     @Test
+    @Order(1)
     public void changesetWriterRaceCondition() throws InterruptedException, ExecutionException {
         // Get ChangeSetFolder location
+        final File changeSetFolder = changeSetFolder();
+        assertTrue(changeSetFolder.exists() || changeSetFolder.mkdirs());
+
+        // Create a new Semantic Version, commit to database, and save ChangeSetWriter state
+        commitStatedAxiomEdit("changesetWriterRaceCondition");
+
+        // Waiting until the changeset writer closes will cause this test to pass
+        //Thread.sleep(10000);
+
+        // Get files to add
+        ImmutableList<String> filesToAdd = filesToAdd(changeSetFolder.toPath(), "ike-cs.zip");
+        assertEquals(1, filesToAdd.size());
+    }
+
+    @Test
+    @Order(2)
+    public void replayChangeSetsOnlyOnce() throws Exception {
+        final File changeSetFolder = changeSetFolder();
+        File ledger = new File(DATASTORE_ROOT.getParentFile(), "replayChangeSetsOnlyOnce-ledger.txt");
+        ledger.delete();
+        commitStatedAxiomEdit("replayChangeSetsOnlyOnce");
+        ImmutableList<String> changeSetFiles = filesToAdd(changeSetFolder.toPath(),
+                LoadChangeSetsFromDirectory.CHANGE_SET_SUFFIX);
+        assertFalse(changeSetFiles.isEmpty());
+
+        EntityCountSummary firstReplay = new LoadChangeSetsFromDirectory(changeSetFolder, ledger).compute();
+        assertTrue(firstReplay.getTotalCount() > 0);
+        List<String> appliedHashes = Files.readAllLines(ledger.toPath());
+        assertEquals(changeSetFiles.size(), appliedHashes.size());
+        assertEquals(appliedHashes.size(), appliedHashes.stream().distinct().count());
+
+        EntityCountSummary secondReplay = new LoadChangeSetsFromDirectory(changeSetFolder, ledger).compute();
+        assertEquals(0, secondReplay.getTotalCount());
+        assertEquals(appliedHashes, Files.readAllLines(ledger.toPath()));
+    }
+
+    @Test
+    @Order(3)
+    public void editAfterRestartingDataStore() throws Exception {
+        final File changeSetFolder = changeSetFolder();
+        int changeSetsBeforeRestart = filesToAdd(changeSetFolder.toPath(), "ike-cs.zip").size();
+
+        // Stopping the data store shuts down the change set writer, which must start again with the data store
+        TestHelper.stopDatabase();
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+
+        commitStatedAxiomEdit("editAfterRestartingDataStore");
+        assertEquals(changeSetsBeforeRestart + 1, filesToAdd(changeSetFolder.toPath(), "ike-cs.zip").size());
+    }
+
+    private static File changeSetFolder() {
         Optional<File> optionalDataStoreRoot = ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT);
         assertFalse(optionalDataStoreRoot.isEmpty());
-        final File changeSetFolder = new File(optionalDataStoreRoot.get(), "changeSets");
-        assertTrue(changeSetFolder.exists() || changeSetFolder.mkdirs());
+        return new File(optionalDataStoreRoot.get(), "changeSets");
+    }
 
+    /**
+     * Adds a version to the current stated logical definition semantic, commits it, and saves the
+     * ChangeSetWriter state so the edit is sealed in a change set file.
+     */
+    private static void commitStatedAxiomEdit(String composerName) throws InterruptedException, ExecutionException {
         // Find current stated logical definition Semantic to reference it when creating a new Version
         int[] statedDefNid = PrimitiveData.get().semanticNidsForComponentOfPattern(TinkarTerm.STATUS_VALUE.nid(), TinkarTerm.EL_PLUS_PLUS_STATED_AXIOMS_PATTERN.nid());
         assertEquals(1, statedDefNid.length);
         SemanticEntity<SemanticEntityVersion> statedDefSemantic = EntityService.get().getEntityFast(statedDefNid[0]);
 
         // Create a new Semantic Version and commit to database
-        Composer composer = new Composer("changesetWriterRaceCondition");
+        Composer composer = new Composer(composerName);
         Session session = composer.open(State.ACTIVE, TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE, TinkarTerm.DEVELOPMENT_PATH);
         session.compose(new StatedAxiom()
                 .semantic(statedDefSemantic.toProxy())
@@ -108,13 +171,6 @@ public void changesetWriterRaceCondition() throws InterruptedException, Executio
         if (changeSetWriterService instanceof SaveState savableChangeSetWriterService) {
             savableChangeSetWriterService.save().get();
         }
-
-        // Waiting until the changeset writer closes will cause this test to pass
-        //Thread.sleep(10000);
-
-        // Get files to add
-        ImmutableList<String> filesToAdd = filesToAdd(changeSetFolder.toPath(), "ike-cs.zip");
-        assertEquals(1, filesToAdd.size());
     }
 
     /**
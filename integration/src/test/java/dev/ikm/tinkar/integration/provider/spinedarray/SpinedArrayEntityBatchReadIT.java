@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.CacheStatistics;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.ConceptVersionRecord;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.provider.entity.EntityCacheKeys;
+import dev.ikm.tinkar.provider.entity.EntityProvider;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link EntityService#getEntitiesFast(int[], Entity[])} and {@link EntityService#forEachEntity} as implemented by
+ * the entity provider: results in input order with null slots for nids without an entity, decoded entities
+ * cached only for small batches, and entities already cached, or cached by a writer, never replaced by a read.
+ */
+class SpinedArrayEntityBatchReadIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayEntityBatchReadIT.class);
+
+    private static int[] conceptNids;
+    private static int[] patternNids;
+    private static int[] semanticNids;
+    private static int[] stampNids;
+    private static int unknownNid;
+
+    @BeforeAll
+    static void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        conceptNids = nids(PrimitiveData.get()::forEachConceptNid);
+        patternNids = nids(PrimitiveData.get()::forEachPatternNid);
+        semanticNids = nids(PrimitiveData.get()::forEachSemanticNid);
+        stampNids = nids(PrimitiveData.get()::forEachStampNid);
+        // Assigned a nid, but never written.
+        unknownNid = PrimitiveData.nid(PublicIds.newRandom());
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @BeforeEach
+    void resetEntityCaches() {
+        new EntityProvider.CacheProvider().reset();
+    }
+
+    @Test
+    @DisplayName("Results are in input order, with null for nids without an entity")
+    void resultsInInputOrder() {
+        int[] smallBatch = {conceptNids[0], unknownNid, stampNids[0], patternNids[0], semanticNids[0],
+                conceptNids[1], conceptNids[0]};
+        int largeSize = TinkExecutor.defaultParallelBatchSize() * 4 + 1;
+        assertTrue(semanticNids.length > largeSize, "Too few semantics: " + semanticNids.length);
+        int[] largeBatch = Arrays.copyOf(semanticNids, largeSize);
+        for (int i = 0; i < largeBatch.length; i += 37) {
+            largeBatch[i] = i % 2 == 0 ? unknownNid : stampNids[i % stampNids.length];
+        }
+        for (int[] batch : new int[][]{smallBatch, largeBatch}) {
+            // The first read decodes the batch, the second is served from the caches where it was cached.
+            assertMatchesEntityFast(batch, readBatch(batch));
+            assertMatchesEntityFast(batch, readBatch(batch));
+        }
+    }
+
+    @Test
+    @DisplayName("Slots past the nids are left alone and a short results array is rejected")
+    void resultsArrayLength() {
+        int[] batch = {conceptNids[0], unknownNid};
+        Entity sentinel = EntityService.get().getEntityFast(TinkarTerm.ROOT_VERTEX.nid());
+        Entity[] entities = new Entity[]{null, sentinel, sentinel};
+        EntityService.get().getEntitiesFast(batch, entities);
+        assertEquals(conceptNids[0], entities[0].nid());
+        assertNull(entities[1]);
+        assertSame(sentinel, entities[2]);
+        assertThrows(IllegalArgumentException.class, () -> EntityService.get().getEntitiesFast(batch, new Entity[1]));
+    }
+
+    @Test
+    @DisplayName("forEachEntity passes existing entities in input order across batches")
+    void forEachEntityInInputOrder() {
+        MutableIntList nids = IntLists.mutable.empty();
+        while (nids.size() <= 2 * 4096) {
+            nids.addAll(conceptNids);
+            nids.add(unknownNid);
+            nids.addAll(patternNids);
+            nids.addAll(semanticNids);
+        }
+        MutableIntList expected = nids.reject(nid -> nid == unknownNid);
+        MutableIntList actual = IntLists.mutable.empty();
+        EntityService.get().forEachEntity(IntIds.list.of(nids.toArray()), entity -> actual.add(entity.nid()));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Decoded entities are cached only for batches within a sixteenth of the entity cache")
+    void onlySmallBatchesAreCached() {
+        long defaultMaxBytes = statistics("entity").maximumWeight();
+        int[] smallBatch = Arrays.copyOf(conceptNids, 8);
+        int[] largeBatch = Arrays.copyOf(conceptNids, smallBatch.length + 1);
+        int[] stampBatch = Arrays.copyOf(stampNids, 4);
+        try {
+            ServiceProperties.set(EntityCacheKeys.ENTITY_CACHE_MAX_BYTES, 16 * byteLength(smallBatch));
+            new EntityProvider.CacheProvider().reset();
+            readBatch(smallBatch);
+            assertEquals(smallBatch.length, statistics("entity").estimatedSize());
+
+            new EntityProvider.CacheProvider().reset();
+            readBatch(concat(largeBatch, stampBatch));
+            assertEquals(0, statistics("entity").estimatedSize());
+            // Stamps are cached whatever the size of the batch.
+            assertEquals(stampBatch.length, statistics("stamp").estimatedSize());
+        } finally {
+            ServiceProperties.set(EntityCacheKeys.ENTITY_CACHE_MAX_BYTES, defaultMaxBytes);
+            new EntityProvider.CacheProvider().reset();
+        }
+    }
+
+    @Test
+    @DisplayName("A batch read neither replaces cached entities nor hides later writes")
+    void cachedEntitiesWin() {
+        Entity cachedConcept = EntityService.get().getEntityFast(conceptNids[0]);
+        StampEntity cachedStamp = EntityService.get().getStampFast(stampNids[0]);
+        int[] batch = {conceptNids[0], stampNids[0], conceptNids[1], stampNids[1]};
+        Entity[] entities = readBatch(batch);
+        assertSame(cachedConcept, entities[0]);
+        assertSame(cachedStamp, entities[1]);
+        // What the batch decoded it cached, and serves again rather than decoding a copy.
+        assertSame(entities[2], EntityService.get().getEntityFast(conceptNids[1]));
+        assertSame(entities[3], EntityService.get().getStampFast(stampNids[1]));
+        Entity[] again = readBatch(batch);
+        for (int i = 0; i < batch.length; i++) {
+            assertSame(entities[i], again[i]);
+        }
+
+        // Written after the batch cached the concept, a new version replaces it in the cache.
+        Transaction transaction = new Transaction();
+        StampEntity stamp = transaction.getStamp(State.ACTIVE, TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE,
+                TinkarTerm.DEVELOPMENT_PATH);
+        ConceptRecord concept = (ConceptRecord) entities[2];
+        EntityService.get().putEntity(concept.with(new ConceptVersionRecord(concept, stamp.nid())).build());
+        transaction.addComponent(concept.nid());
+        Entity[] uncommitted = readBatch(new int[]{stamp.nid(), concept.nid()});
+        assertEquals(Long.MAX_VALUE, ((StampEntity) uncommitted[0]).time());
+        assertEquals(concept.versions().size() + 1, uncommitted[1].versions().size());
+
+        transaction.commit();
+        Entity[] committed = readBatch(new int[]{stamp.nid(), concept.nid()});
+        assertNotEquals(Long.MAX_VALUE, ((StampEntity) committed[0]).time());
+        assertEquals(concept.versions().size() + 1, committed[1].versions().size());
+    }
+
+    private static Entity[] readBatch(int[] nids) {
+        Entity[] entities = new Entity[nids.length];
+        EntityService.get().getEntitiesFast(nids, entities);
+        return entities;
+    }
+
+    private static void assertMatchesEntityFast(int[] nids, Entity[] entities) {
+        for (int i = 0; i < nids.length; i++) {
+            Entity expected = EntityService.get().getEntityFast(nids[i]);
+            if (expected == null) {
+                assertNull(entities[i], "Entity at " + i);
+            } else {
+                assertEquals(nids[i], entities[i].nid(), "Nid at " + i);
+                assertEquals(expected.publicId(), entities[i].publicId(), "Public id at " + i);
+                assertEquals(expected.versions().size(), entities[i].versions().size(), "Versions at " + i);
+            }
+        }
+    }
+
+    private static CacheStatistics statistics(String cacheName) {
+        return new EntityProvider.CacheProvider().statistics().stream()
+                .filter(statistics -> statistics.name().equals(cacheName)).findFirst().orElseThrow();
+    }
+
+    private static long byteLength(int[] nids) {
+        long byteLength = 0;
+        for (byte[] bytes : PrimitiveData.get().getBytes(nids)) {
+            byteLength += bytes.length;
+        }
+        return byteLength;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] nids = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, nids, first.length, second.length);
+        return nids;
+    }
+
+    private static int[] nids(Consumer<IntProcedure> forEach) {
+        MutableIntList nids = IntLists.mutable.empty();
+        forEach.accept(nids::add);
+        return nids.toArray();
+    }
+}
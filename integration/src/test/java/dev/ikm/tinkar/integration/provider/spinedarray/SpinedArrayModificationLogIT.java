@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.composer.Composer;
+import dev.ikm.tinkar.composer.Session;
+import dev.ikm.tinkar.composer.template.StatedAxiom;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.aggregator.ModifiedSinceEntityAggregator;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SpinedArrayModificationLogIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayModificationLogIT.class);
+
+    @BeforeAll
+    static void beforeAll() {
+        FileUtil.recursiveDelete(DATASTORE_ROOT);
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_EXAMPLE_DATA_REASONED);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    public void modifiedSinceSurvivesRestart() throws InterruptedException {
+        PrimitiveData.save();
+        long sequenceBeforeEdit = PrimitiveData.get().writeSequence();
+        Thread.sleep(5);
+        long millisBeforeEdit = System.currentTimeMillis();
+        Thread.sleep(5);
+
+        int[] statedDefNid = PrimitiveData.get().semanticNidsForComponentOfPattern(TinkarTerm.STATUS_VALUE.nid(),
+                TinkarTerm.EL_PLUS_PLUS_STATED_AXIOMS_PATTERN.nid());
+        assertEquals(1, statedDefNid.length);
+        SemanticEntity<SemanticEntityVersion> statedDefSemantic = EntityService.get().getEntityFast(statedDefNid[0]);
+        Composer composer = new Composer("modifiedSinceSurvivesRestart");
+        Session session = composer.open(State.ACTIVE, TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE, TinkarTerm.DEVELOPMENT_PATH);
+        session.compose(new StatedAxiom()
+                        .semantic(statedDefSemantic.toProxy())
+                        .isA(TinkarTerm.OBJECT),
+                statedDefSemantic.referencedComponent().toProxy());
+        composer.commitSession(session);
+        long sequenceAfterEdit = PrimitiveData.get().writeSequence();
+        assertTrue(sequenceAfterEdit > sequenceBeforeEdit);
+
+        MutableIntSet modifiedNids = modifiedSince(sequenceBeforeEdit);
+        assertTrue(modifiedNids.contains(statedDefNid[0]));
+        SemanticEntity<SemanticEntityVersion> editedSemantic = EntityService.get().getEntityFast(statedDefNid[0]);
+        editedSemantic.stampNids().forEach(stampNid -> assertTrue(modifiedNids.contains(stampNid)));
+
+        PrimitiveData.save();
+        TestHelper.stopDatabase();
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+
+        assertTrue(PrimitiveData.get().writeSequence() >= sequenceAfterEdit);
+        assertEquals(sequenceBeforeEdit, PrimitiveData.get().writeSequenceAt(millisBeforeEdit).getAsLong());
+        assertEquals(modifiedNids, modifiedSince(sequenceBeforeEdit));
+        assertFalse(modifiedSince(sequenceBeforeEdit).isEmpty());
+
+        PrimitiveData.get().truncateModificationsThrough(sequenceBeforeEdit);
+        assertEquals(modifiedNids, modifiedSince(sequenceBeforeEdit));
+        assertThrows(UnsupportedOperationException.class, () -> modifiedSince(sequenceBeforeEdit - 1));
+    }
+
+    private static MutableIntSet modifiedSince(long writeSequence) {
+        MutableIntSet nids = IntSets.mutable.empty();
+        ModifiedSinceEntityAggregator.sinceWriteSequence(writeSequence).aggregate(nids::add);
+        return nids;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.SemanticVersionRecord;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.entity.transaction.Transaction;
+import dev.ikm.tinkar.integration.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Transaction#forStamp(int)} and {@link Transaction#forVersion} find a transaction from the moment it
+ * hands out a stamp until it is committed or canceled, and again once it is restored from a save.
+ */
+class SpinedArrayTransactionLookupIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayTransactionLookupIT.class);
+
+    private static int[] descriptionNids;
+
+    @BeforeAll
+    static void beforeAll() {
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+        descriptionNids = PrimitiveData.get().semanticNidsOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid());
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    @DisplayName("getStamp registers the transaction, commit removes it")
+    void commitRemovesLookups() {
+        Transaction transaction = new Transaction("commit");
+        StampEntity stamp = stamp(transaction);
+        StampEntity secondStamp = transaction.getStamp(State.INACTIVE, TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE,
+                TinkarTerm.DEVELOPMENT_PATH);
+        SemanticVersionRecord version = addVersion(transaction, stamp, descriptionNids[0]);
+        assertFound(transaction, stamp, version);
+        assertSame(transaction, Transaction.forStamp(secondStamp.nid()).orElseThrow());
+        assertSame(transaction, Transaction.forStamp(stamp.publicId()).orElseThrow());
+
+        // A version is only found through its stamp while its component is in the transaction.
+        SemanticRecord other = Entity.getFast(descriptionNids[1]);
+        assertTrue(Transaction.forVersion(new SemanticVersionRecord(other, stamp.nid(),
+                other.versions().getLast().fieldValues())).isEmpty());
+        assertTrue(Transaction.forVersion(other.versions().getLast()).isEmpty());
+
+        assertEquals(2, transaction.commit());
+        assertNotFound(stamp, version);
+        assertTrue(Transaction.forStamp(secondStamp.nid()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getStamp registers the transaction, cancel removes it")
+    void cancelRemovesLookups() {
+        Transaction transaction = new Transaction("cancel");
+        StampEntity stamp = stamp(transaction);
+        SemanticVersionRecord version = addVersion(transaction, stamp, descriptionNids[2]);
+        assertFound(transaction, stamp, version);
+
+        assertEquals(1, transaction.cancel());
+        assertNotFound(stamp, version);
+    }
+
+    @Test
+    @DisplayName("restore registers the saved transaction again, commit removes it")
+    void restoreRegistersLookups() {
+        Transaction transaction = new Transaction("restore");
+        StampEntity stamp = stamp(transaction);
+        SemanticVersionRecord version = addVersion(transaction, stamp, descriptionNids[3]);
+        Transaction.save();
+        transaction.commit();
+        assertNotFound(stamp, version);
+
+        Transaction.restore();
+        Transaction restored = Transaction.forStamp(stamp.nid()).orElseThrow();
+        assertNotSame(transaction, restored);
+        assertEquals(transaction.transactionUuid(), restored.transactionUuid());
+        assertFound(restored, stamp, version);
+
+        restored.commit();
+        assertNotFound(stamp, version);
+    }
+
+    private static StampEntity stamp(Transaction transaction) {
+        StampEntity stamp = transaction.getStamp(State.ACTIVE, TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE,
+                TinkarTerm.DEVELOPMENT_PATH);
+        // Asking again for the same stamp returns it without registering anything new.
+        assertEquals(stamp.nid(), transaction.getStamp(State.ACTIVE, stamp.time(), TinkarTerm.USER.nid(),
+                TinkarTerm.DEVELOPMENT_MODULE.nid(), TinkarTerm.DEVELOPMENT_PATH.nid()).nid());
+        return stamp;
+    }
+
+    private static SemanticVersionRecord addVersion(Transaction transaction, StampEntity stamp, int semanticNid) {
+        SemanticRecord semantic = Entity.getFast(semanticNid);
+        SemanticVersionRecord version = new SemanticVersionRecord(semantic, stamp.nid(),
+                semantic.versions().getLast().fieldValues());
+        EntityService.get().putEntity(semantic.with(version).build());
+        transaction.addComponent(semanticNid);
+        return version;
+    }
+
+    private static void assertFound(Transaction transaction, StampEntity stamp, SemanticVersionRecord version) {
+        assertSame(transaction, Transaction.forStamp(stamp.nid()).orElseThrow());
+        assertSame(transaction, Transaction.forVersion(version).orElseThrow());
+    }
+
+    private static void assertNotFound(StampEntity stamp, SemanticVersionRecord version) {
+        assertEquals(Optional.empty(), Transaction.forStamp(stamp.nid()));
+        assertEquals(Optional.empty(), Transaction.forVersion(version));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.changeset;
+
+/**
+ * {@link dev.ikm.tinkar.common.service.ServiceProperties} keys that tune the {@link ChangeSetWriterProvider}.
+ * The queue capacity is read when the provider is first started, the file limits each time a data store
+ * starts the provider.
+ */
+public enum ChangeSetWriterKeys {
+    /**
+     * Integer: maximum number of entities waiting to be written. Editors block once the queue is full,
+     * so a slow disk applies backpressure instead of growing the heap. Defaults to 65,536.
+     */
+    QUEUE_CAPACITY,
+    /**
+     * Long: uncompressed bytes after which the current change set file is sealed and a new file started.
+     * Defaults to 64 MiB.
+     */
+    MAX_FILE_BYTES,
+    /**
+     * java.time.Duration: age after which the current change set file is sealed and a new file started.
+     * Defaults to one hour.
+     */
+    MAX_FILE_AGE
+}
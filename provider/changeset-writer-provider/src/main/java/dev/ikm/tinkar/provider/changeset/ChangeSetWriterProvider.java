@@ -1,12 +1,12 @@
 package dev.ikm.tinkar.provider.changeset;
 
+import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.SaveState;
 import dev.ikm.tinkar.common.service.ServiceKeys;
 import dev.ikm.tinkar.common.service.ServiceProperties;
-import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.util.time.DateTimeUtil;
 import dev.ikm.tinkar.entity.ChangeSetWriterService;
 import dev.ikm.tinkar.entity.ConceptEntity;
@@ -29,20 +29,24 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -50,12 +54,21 @@
  * The ChangeSetWriterProvider class is responsible for writing and managing entity change sets.
  * It provides functionalities to persist entity changes, manage service lifecycles, and ensure
  * proper handling of change set files using zip compression and metadata generation. The class
- * is designed to handle entities efficiently through a service thread, leveraging internal queues
- * for processing and persistence.
+ * is designed to handle entities efficiently through a single service thread that drains a bounded
+ * queue in batches, rotates change set files by size and age, and makes committed changes durable
+ * before moving on.
+ * <p>
+ * Tuning values are read from {@link ServiceProperties} using {@link ChangeSetWriterKeys}.
  */
 public class ChangeSetWriterProvider implements ChangeSetWriterService, SaveState {
     private static final Logger LOG = LoggerFactory.getLogger(ChangeSetWriterProvider.class);
 
+    private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+    private static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    private static final Duration DEFAULT_MAX_FILE_AGE = Duration.ofHours(1);
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long POLL_MILLIS = 250;
+
     /**
      * Represents the various states of the ChangeSetWriterProvider during its lifecycle.
      * <p>
@@ -67,10 +80,11 @@ public class ChangeSetWriterProvider implements ChangeSetWriterService, SaveStat
      * <p>
      * <p> - INITIALIZING: The service is starting up and performing initialization tasks.
      * <p> - RUNNING: The service is actively processing and writing entity changes.
-     * <p> - ROTATING: The service is in the process of rotating or transitioning its resources,
-     *             such as creating a new change set file.
+     * <p> - ROTATING: The service is sealing the current change set file; the next write starts a new file.
      * <p> - STOPPED: The service has been intentionally stopped and is no longer processing.
      * <p> - FAILED: The service encountered an error or failure preventing it from continuing operation.
+     * <p>
+     * STOPPED and FAILED last until the next data store start, which restarts the service.
      */
     private enum STATE {
         INITIALIZING,
@@ -80,9 +94,16 @@ private enum STATE {
         FAILED
     }
 
-    final AtomicReference<Thread> serviceThread = new AtomicReference<>();
-    private final Map<Thread, Semaphore> threadSemaphoreMap = new ConcurrentHashMap<>();
-    private final Map<Thread, STATE> threadStateMap = new ConcurrentHashMap<>();
+    /**
+     * A request to seal the current change set file once every entity queued before the request
+     * has been written.
+     *
+     * @param writeCount number of entities that must be processed before the barrier is released
+     * @param stop       whether the service thread stops after the barrier
+     * @param done       completed once the file is sealed
+     */
+    private record Barrier(long writeCount, boolean stop, CompletableFuture<Void> done) {
+    }
 
     /**
      * Initialization-on-demand holder idiom:
@@ -92,14 +113,55 @@ private static class ChangeSetWriterHolder {
         public static final ChangeSetWriterProvider INSTANCE = new ChangeSetWriterProvider();
     }
 
+    /**
+     * Returns the provider, restarting its service thread if a previous data store shut it down or it failed.
+     * Data stores load their change set writers with a service loader each time they start, so a data store
+     * that is stopped and started again within the same JVM gets a running writer for its own data store root.
+     */
     public static ChangeSetWriterProvider provider() {
-        return ChangeSetWriterHolder.INSTANCE;
+        ChangeSetWriterProvider provider = ChangeSetWriterHolder.INSTANCE;
+        provider.restartIfStopped();
+        return provider;
     }
 
-    private final File changeSetFolder;
-    private final LinkedBlockingQueue<Entity<EntityVersion>> entitiesToWrite = new LinkedBlockingQueue<>();
+    /**
+     * Folder and file limits of the current data store. Only written while the service thread is not running.
+     */
+    private File changeSetFolder;
+    private long maxFileBytes;
+    private long maxFileAgeMillis;
+    private final LinkedBlockingQueue<Entity<EntityVersion>> entitiesToWrite;
+    private final ConcurrentLinkedQueue<Barrier> barriers = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<STATE> state = new AtomicReference<>(STATE.INITIALIZING);
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder commitSyncCount = new LongAdder();
+    private final LongAdder fileCount = new LongAdder();
+    /**
+     * Entities held until their stamp is committed. Only accessed from the service thread.
+     */
+    private final MutableMultimap<Integer, Entity<EntityVersion>> uncommittedEntitiesByStamp = Multimaps.mutable.set.empty();
+    /**
+     * The change set file being written, or null until the next write. Only accessed from the service thread.
+     */
+    private ChangeSetFile changeSetFile;
+    /**
+     * The current service thread, joined before a restart so two service threads never run at once.
+     */
+    private Thread serviceThread;
 
     private ChangeSetWriterProvider() {
+        this.entitiesToWrite = new LinkedBlockingQueue<>(
+                ServiceProperties.get(ChangeSetWriterKeys.QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
+        start();
+    }
+
+    /**
+     * Reads the change set folder and file limits of the current data store, registers the provider to be
+     * saved with the data store, and starts the service thread.
+     */
+    private void start() {
         Optional<File> optionalDataStoreRoot = ServiceProperties.get(ServiceKeys.DATA_STORE_ROOT);
         if (optionalDataStoreRoot.isPresent()) {
             // TODO: Use Paths and Files classes to simplify code and handle file creation errors
@@ -107,32 +169,65 @@ private ChangeSetWriterProvider() {
             if (!changeSetFolder.exists()) {
                 changeSetFolder.mkdirs();
             }
-            PrimitiveData.getStatesToSave().add(this);
+            this.maxFileBytes = ServiceProperties.get(ChangeSetWriterKeys.MAX_FILE_BYTES, DEFAULT_MAX_FILE_BYTES);
+            this.maxFileAgeMillis = ServiceProperties.get(ChangeSetWriterKeys.MAX_FILE_AGE, DEFAULT_MAX_FILE_AGE).toMillis();
+            PrimitiveData.getStatesToSave().addIfAbsent(this);
             startService();
         } else {
             throw new IllegalStateException("ServiceKeys.DATA_STORE_ROOT not provided.");
         }
     }
 
+    /**
+     * Starts a new service thread once the previous one has finished, if the service was stopped or failed.
+     * Entities still queued from the previous run are written to the first change set of the new run.
+     */
+    private synchronized void restartIfStopped() {
+        STATE current = state.get();
+        if (current != STATE.STOPPED && current != STATE.FAILED) {
+            return;
+        }
+        try {
+            serviceThread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        uncommittedEntitiesByStamp.clear();
+        changeSetFile = null;
+        LOG.info("Restarting ChangeSetWriterProvider after it was {}", current);
+        state.set(STATE.INITIALIZING);
+        start();
+    }
+
     /**
      * Writes an entity to the change set based on the specified activity.
      * <p>
      * Depending on the provided activity, the method will determine whether the
      * entity should be queued for writing or ignored. Specifically, entities with
      * the activity {@code SYNCHRONIZABLE_EDIT} are added to the internal queue for
-     * processing. All other activity types do not trigger any action.
+     * processing. All other activity types do not trigger any action. When the queue
+     * is full, the caller blocks until the service thread catches up, or fails if the
+     * service thread has stopped.
      *
      * @param entity the entity to be written or processed based on the activity
      * @param activity the type of data activity that determines the operation
      *                 on the entity; supported activities include SYNCHRONIZABLE_EDIT,
      *                 LOADING_CHANGE_SET, INITIALIZE, LOCAL_EDIT, and DATA_REPAIR
+     * @throws IllegalStateException if the service thread has stopped or failed and no data store has been started
+     *                               since, so the entity cannot be written
      * @throws RuntimeException if the thread is interrupted during the operation
      */
     @Override
     public void writeToChangeSet(Entity entity, DataActivity activity) {
         try {
             switch (activity) {
-                case SYNCHRONIZABLE_EDIT -> this.entitiesToWrite.put(entity);
+                case SYNCHRONIZABLE_EDIT -> {
+                    ensureRunning();
+                    while (!this.entitiesToWrite.offer(entity, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        ensureRunning();
+                    }
+                    this.queuedCount.incrementAndGet();
+                }
                 case LOADING_CHANGE_SET, INITIALIZE, LOCAL_EDIT, DATA_REPAIR -> {
                 }
             }
@@ -141,6 +236,13 @@ public void writeToChangeSet(Entity entity, DataActivity activity) {
         }
     }
 
+    private void ensureRunning() {
+        STATE current = state.get();
+        if (current == STATE.STOPPED || current == STATE.FAILED) {
+            throw new IllegalStateException("Change set writer is " + current + ". Unable to write entity to change set.");
+        }
+    }
+
     /**
      * Generates a random alphanumeric string of the specified length.
      *
@@ -177,216 +279,311 @@ private File newZipFile() {
     }
 
     /**
-     * Starts the main service thread responsible for processing and writing entity data changes
-     * into a ZIP file format. This method creates and manages a virtual thread, utilizing the
-     * Thread API with a specific thread name for identification. The service remains operational
-     * until explicitly stopped, processing entities passed to it for handling and writing.
+     * Starts the service thread that writes queued entities into change set files.
      * <p>
-     * The method performs the following tasks:
-     * <p> - Acquires necessary resources for thread execution.
-     * <p> - Processes entities from a queue for writing. Handles both committed and uncommitted entities
-     *   separately, ensuring uncommitted entities are managed at the end.
-     * <p> - Writes data into a ZIP file located in the change set folder, creating a primary "Entities"
-     *   entry and a manifest file for metadata when entities are successfully written.
-     * <p> - Monitors and aggregates statistical counts including the number of entities, concepts,
-     *   semantics, patterns, stamps, and associated module and author identifiers.
-     * <p> - Cleans up resources and deletes the ZIP file if no entities were processed or if the file
-     *   is empty.
-     * <p> - Ensures thread execution is properly controlled, including handling interruptions and failure
-     *   scenarios with appropriate state transitions.
+     * The thread performs the following tasks:
+     * <p> - Waits up to {@value #POLL_MILLIS} ms for an entity, then drains up to {@value #MAX_BATCH_SIZE}
+     *   more with {@code drainTo} and writes them as one batch.
+     * <p> - Holds uncommitted entities until their stamp is committed, so uncommitted edits do not bloat
+     *   the change set. Remaining uncommitted entities are written when a save or shutdown seals the file.
+     * <p> - After a batch that contains a committed stamp, flushes the compressor and forces the file to disk,
+     *   so a commit is durable before the writer moves on.
+     * <p> - Seals the current file and starts a new one once it exceeds the configured size or age.
+     * <p> - Releases save and shutdown barriers once every entity queued before them has been written.
+     * <p> - When shut down or interrupted, stops accepting entities, writes those still queued or held, and
+     *   seals the file.
      * <p>
-     * This method is core to managing and persisting changes in the change set, leveraging thread-safe
-     * mechanisms and efficient I/O handling.
+     * Files are created lazily on the first write, so idle periods do not leave empty change sets behind.
      */
     private void startService() {
-        Thread.ofVirtual().name("ChangeSetWriterProvider-ServiceThread").start(() -> {
-            Semaphore changeSetWriter = new Semaphore(1);
+        serviceThread = Thread.ofVirtual().name("ChangeSetWriterProvider-ServiceThread").start(() -> {
+            final List<Entity<EntityVersion>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            state.set(STATE.RUNNING);
             try {
-                changeSetWriter.acquireUninterruptibly();
-                threadSemaphoreMap.put(Thread.currentThread(), changeSetWriter);
-                final MutableMultimap<Integer, Entity<EntityVersion>> uncommittedEntitiesByStamp = Multimaps.mutable.set.empty();
-                serviceThread.set(Thread.currentThread());
-                threadStateMap.put(Thread.currentThread(), STATE.RUNNING);
-                final LongAdder entityCount = new LongAdder();
-                final LongAdder conceptsCount = new LongAdder();
-                final LongAdder semanticsCount = new LongAdder();
-                final LongAdder patternsCount = new LongAdder();
-                final LongAdder stampsCount = new LongAdder();
-
-                final Set<PublicId> moduleList = new HashSet<>();
-                final Set<PublicId> authorList = new HashSet<>();
-                final EntityToTinkarSchemaTransformer entityTransformer =
-                        EntityToTinkarSchemaTransformer.getInstance();
-
-                final File zipfile = newZipFile();
-                try (FileOutputStream fos = new FileOutputStream(zipfile);
-                     BufferedOutputStream bos = new BufferedOutputStream(fos);
-                     ZipOutputStream zos = new ZipOutputStream(bos)) {
-                    // Create a single entry for all changes in this zip file
-                    final ZipEntry zipEntry = new ZipEntry("Entities");
-                    zos.putNextEntry(zipEntry);
+                boolean stop = false;
+                while (!stop) {
+                    Entity<EntityVersion> first;
                     try {
-                        while (threadStateMap.get(Thread.currentThread()) == STATE.RUNNING) {
-                            final Entity<EntityVersion> entityToWrite = this.entitiesToWrite.poll(250, TimeUnit.MILLISECONDS);
-                            if (entityToWrite != null) {
-                                if (entityToWrite.uncommitted()) {
-                                    // We will write uncommitted versions at the end of the thread to prevent bloat from uncommitted changes,
-                                    // unless they are committed before the thread stops.
-                                    ImmutableIntList uncommittedStampNids = entityToWrite.uncommittedStampNids();
-                                    uncommittedStampNids.forEach(stampNid -> {
-                                        uncommittedEntitiesByStamp.remove(stampNid, entityToWrite);
-                                        uncommittedEntitiesByStamp.put(stampNid, entityToWrite);
-                                    });
-                                } else {
-                                    writeEntity(entityCount, entityToWrite, conceptsCount, semanticsCount, patternsCount, stampsCount, moduleList, authorList, entityTransformer, zos);
-                                    // If a committed stamp comes through, then see if any previously uncommitted versions for that stamp exist, and write them if so.
-                                    if (entityToWrite instanceof StampEntity stampEntity && uncommittedEntitiesByStamp.containsKey(stampEntity.nid())) {
-                                        uncommittedEntitiesByStamp.removeAll(stampEntity.nid()).forEach(entity ->
-                                                writeEntity(entityCount, entity, conceptsCount, semanticsCount, patternsCount,
-                                                        stampsCount, moduleList, authorList, entityTransformer, zos));
-                                    }
-                                }
-                            }
-                        }
+                        first = this.entitiesToWrite.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
                     } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (first != null) {
+                        batch.add(first);
+                        this.entitiesToWrite.drainTo(batch, MAX_BATCH_SIZE - 1);
+                        writeBatch(batch);
                     }
-                    // Write any uncommitted entities.
-                    uncommittedEntitiesByStamp.forEachValue(entityToWrite ->
-                            writeEntity(entityCount, entityToWrite, conceptsCount, semanticsCount, patternsCount,
-                                    stampsCount, moduleList, authorList, entityTransformer, zos));
-                    zos.closeEntry();
-                    if (entityCount.sum() > 0) {
-                        LOG.info("Data zipEntry size: " + zipEntry.getSize());
-                        LOG.info("Data zipEntry compressed size: " + zipEntry.getCompressedSize());
-
-                        // Write Manifest File
-                        final ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
-                        zos.putNextEntry(manifestEntry);
-                        zos.write(generateManifestContent(entityCount,
-                                conceptsCount,
-                                semanticsCount,
-                                patternsCount,
-                                stampsCount,
-                                moduleList,
-                                authorList).getBytes(StandardCharsets.UTF_8));
-                        zos.closeEntry();
-                        zos.flush();
+                    if (changeSetFile != null && changeSetFile.shouldRotate(maxFileBytes, maxFileAgeMillis)) {
+                        state.set(STATE.ROTATING);
+                        changeSetFile.seal();
+                        changeSetFile = null;
+                        state.set(STATE.RUNNING);
                     }
-                    // Cleanup
-                    zos.finish();
-
-                } catch (IOException e) {
-                    threadStateMap.put(Thread.currentThread(), STATE.FAILED);
-                    throw new RuntimeException(e);
-                } finally {
-                    if (zipfile.exists()) {
-                        if (zipfile.length() == 0 || entityCount.sum() == 0) {
-                            zipfile.delete();
+                    Barrier barrier = barriers.peek();
+                    if (barrier != null && barrier.writeCount() <= processedCount.get()) {
+                        state.set(STATE.ROTATING);
+                        sealWithUncommitted();
+                        while ((barrier = barriers.peek()) != null && barrier.writeCount() <= processedCount.get()) {
+                            barriers.poll();
+                            stop |= barrier.stop();
+                            barrier.done().complete(null);
                         }
+                        state.set(STATE.RUNNING);
                     }
                 }
-            } finally {
-                changeSetWriter.release();
-                threadStateMap.remove(Thread.currentThread());
+                // Refuse new entities, then write those already queued and seal, so the last file is complete
+                // whether the writer was shut down or interrupted.
+                state.set(STATE.STOPPED);
+                while (this.entitiesToWrite.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+                    writeBatch(batch);
+                }
+                sealWithUncommitted();
+                Barrier barrier;
+                while ((barrier = barriers.poll()) != null) {
+                    barrier.done().complete(null);
+                }
+            } catch (IOException | RuntimeException e) {
+                state.set(STATE.FAILED);
+                LOG.error("Change set writer failed", e);
+                AlertStreams.dispatchToRoot(e);
+                Barrier barrier;
+                while ((barrier = barriers.poll()) != null) {
+                    barrier.done().completeExceptionally(e);
+                }
+                if (changeSetFile != null) {
+                    changeSetFile.abandon();
+                    changeSetFile = null;
+                }
             }
         });
-
     }
 
     /**
-     * Writes a given entity to a ZIP output stream after transforming it,
-     * while incrementing corresponding statistical counters for entity types and
-     * collecting module and author public IDs for manifest generation.
-     *
-     * @param entityCount the counter for the total number of entities processed
-     * @param entityToWrite the entity to be written
-     * @param conceptsCount the counter for the number of concept entities processed
-     * @param semanticsCount the counter for the number of semantic entities processed
-     * @param patternsCount the counter for the number of pattern entities processed
-     * @param stampsCount the counter for the number of stamp entities processed
-     * @param moduleList the set to collect module public IDs for manifest generation
-     * @param authorList the set to collect author public IDs for manifest generation
-     * @param entityTransformer the transformer used to convert entities to Tinkar schema messages
-     * @param zos the ZIP output stream to write the entity data into
+     * Writes a batch of committed entities, holding uncommitted ones until their stamp is committed, and
+     * forces the file to disk if the batch contains a committed stamp. Clears the batch.
      */
-    private static void writeEntity(LongAdder entityCount,
-                                    Entity<EntityVersion> entityToWrite,
-                                    LongAdder conceptsCount,
-                                    LongAdder semanticsCount,
-                                    LongAdder patternsCount,
-                                    LongAdder stampsCount,
-                                    Set<PublicId> moduleList,
-                                    Set<PublicId> authorList,
-                                    EntityToTinkarSchemaTransformer entityTransformer,
-                                    ZipOutputStream zos) {
-        entityCount.increment();
-        switch (entityToWrite) {
-            case ConceptEntity _ -> conceptsCount.increment();
-            case SemanticEntity _ -> semanticsCount.increment();
-            case PatternEntity _ -> patternsCount.increment();
-            case StampEntity stampEntity -> {
-                stampsCount.increment();
-                // Store Module & Author Dependencies for Manifest
-                moduleList.add(stampEntity.module().publicId());
-                authorList.add(stampEntity.author().publicId());
-            }
-            default -> {
-                throw new IllegalStateException("Unexpected value: " + entityToWrite);
+    private void writeBatch(List<Entity<EntityVersion>> batch) throws IOException {
+        final EntityToTinkarSchemaTransformer entityTransformer = EntityToTinkarSchemaTransformer.getInstance();
+        boolean commitPoint = false;
+        for (Entity<EntityVersion> entityToWrite : batch) {
+            if (entityToWrite.uncommitted()) {
+                // We will write uncommitted versions when the file is sealed to prevent bloat from uncommitted changes,
+                // unless they are committed before then.
+                ImmutableIntList uncommittedStampNids = entityToWrite.uncommittedStampNids();
+                uncommittedStampNids.forEach(stampNid -> {
+                    uncommittedEntitiesByStamp.remove(stampNid, entityToWrite);
+                    uncommittedEntitiesByStamp.put(stampNid, entityToWrite);
+                });
+            } else {
+                changeSetFile = openIfNeeded(changeSetFile);
+                changeSetFile.write(entityToWrite, entityTransformer);
+                // If a committed stamp comes through, then see if any previously uncommitted versions for that stamp exist, and write them if so.
+                if (entityToWrite instanceof StampEntity stampEntity) {
+                    commitPoint = true;
+                    if (uncommittedEntitiesByStamp.containsKey(stampEntity.nid())) {
+                        for (Entity<EntityVersion> entity : uncommittedEntitiesByStamp.removeAll(stampEntity.nid())) {
+                            changeSetFile.write(entity, entityTransformer);
+                        }
+                    }
+                }
             }
         }
-        // Transform and write data
-        try {
+        if (commitPoint && changeSetFile != null) {
+            changeSetFile.sync();
+            commitSyncCount.increment();
+        }
+        processedCount.addAndGet(batch.size());
+        batchCount.increment();
+        LOG.debug("Wrote batch of {} entities; {} entities in {} batches, {} commit syncs, {} files",
+                batch.size(), processedCount.get(), batchCount.sum(), commitSyncCount.sum(), fileCount.sum());
+        batch.clear();
+    }
+
+    /**
+     * Writes any uncommitted entities still held, then seals the current file so the saved change set is complete.
+     */
+    private void sealWithUncommitted() throws IOException {
+        final EntityToTinkarSchemaTransformer entityTransformer = EntityToTinkarSchemaTransformer.getInstance();
+        for (Entity<EntityVersion> entityToWrite : uncommittedEntitiesByStamp.valuesView()) {
+            changeSetFile = openIfNeeded(changeSetFile);
+            changeSetFile.write(entityToWrite, entityTransformer);
+        }
+        uncommittedEntitiesByStamp.clear();
+        if (changeSetFile != null) {
+            changeSetFile.seal();
+            changeSetFile = null;
+        }
+    }
+
+    private ChangeSetFile openIfNeeded(ChangeSetFile changeSetFile) throws IOException {
+        if (changeSetFile != null) {
+            return changeSetFile;
+        }
+        fileCount.increment();
+        return new ChangeSetFile(newZipFile());
+    }
+
+    /**
+     * A single change set zip file: one "Entities" entry of delimited TinkarMsg messages followed by a manifest.
+     * Only accessed from the service thread.
+     */
+    private static final class ChangeSetFile {
+        private final File zipFile;
+        private final FileOutputStream fos;
+        private final SyncFlushZipOutputStream zos;
+        private final ZipEntry zipEntry = new ZipEntry("Entities");
+        private final long openedMillis = System.currentTimeMillis();
+        private final Set<PublicId> moduleList = new HashSet<>();
+        private final Set<PublicId> authorList = new HashSet<>();
+        private long entityCount;
+        private long conceptsCount;
+        private long semanticsCount;
+        private long patternsCount;
+        private long stampsCount;
+        private long uncompressedBytes;
+
+        ChangeSetFile(File zipFile) throws IOException {
+            this.zipFile = zipFile;
+            this.fos = new FileOutputStream(zipFile);
+            this.zos = new SyncFlushZipOutputStream(new BufferedOutputStream(fos));
+            // Create a single entry for all changes in this zip file
+            this.zos.putNextEntry(zipEntry);
+        }
+
+        /**
+         * Writes a given entity to the ZIP output stream after transforming it,
+         * while incrementing corresponding statistical counters for entity types and
+         * collecting module and author public IDs for manifest generation.
+         *
+         * @param entityToWrite the entity to be written
+         * @param entityTransformer the transformer used to convert entities to Tinkar schema messages
+         */
+        void write(Entity<EntityVersion> entityToWrite, EntityToTinkarSchemaTransformer entityTransformer) throws IOException {
+            entityCount++;
+            switch (entityToWrite) {
+                case ConceptEntity _ -> conceptsCount++;
+                case SemanticEntity _ -> semanticsCount++;
+                case PatternEntity _ -> patternsCount++;
+                case StampEntity stampEntity -> {
+                    stampsCount++;
+                    // Store Module & Author Dependencies for Manifest
+                    moduleList.add(stampEntity.module().publicId());
+                    authorList.add(stampEntity.author().publicId());
+                }
+                default -> {
+                    throw new IllegalStateException("Unexpected value: " + entityToWrite);
+                }
+            }
+            // Transform and write data
             TinkarMsg tinkarMsg = entityTransformer.transform(entityToWrite);
+            uncompressedBytes += tinkarMsg.getSerializedSize();
             tinkarMsg.writeDelimitedTo(zos);
-            LOG.info("Wrote: {}", entityToWrite);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        }
+
+        boolean shouldRotate(long maxFileBytes, long maxFileAgeMillis) {
+            return uncompressedBytes >= maxFileBytes ||
+                    System.currentTimeMillis() - openedMillis >= maxFileAgeMillis;
+        }
+
+        /**
+         * Pushes all compressed data written so far to the file and forces it to disk. The file is not yet a
+         * complete zip, but every message written before the sync can be recovered by streaming the entry.
+         */
+        void sync() throws IOException {
+            zos.flush();
+            fos.getFD().sync();
+        }
+
+        /**
+         * Closes the entity entry, writes the manifest, and forces the completed zip to disk.
+         */
+        void seal() throws IOException {
+            zos.closeEntry();
+            if (entityCount > 0) {
+                LOG.info("Data zipEntry size: " + zipEntry.getSize());
+                LOG.info("Data zipEntry compressed size: " + zipEntry.getCompressedSize());
+
+                // Write Manifest File
+                final ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
+                zos.putNextEntry(manifestEntry);
+                zos.write(ExportEntitiesToProtobufFile.generateManifestContent(entityCount,
+                        conceptsCount,
+                        semanticsCount,
+                        patternsCount,
+                        stampsCount,
+                        moduleList,
+                        authorList).getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+            // Cleanup
+            zos.finish();
+            zos.flush();
+            fos.getFD().sync();
+            zos.close();
+            if (entityCount == 0) {
+                zipFile.delete();
+            } else {
+                LOG.info("Sealed change set {} with {} entities", zipFile.getName(), entityCount);
+            }
+        }
+
+        void abandon() {
+            try {
+                zos.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close change set {}", zipFile, e);
+            }
+            if (entityCount == 0) {
+                zipFile.delete();
+            }
         }
     }
 
     /**
-     * Generates the content for a manifest file based on the provided entity counts, module data,
-     * and author data. This method aggregates the totals and passes them to another utility
-     * method that constructs the final manifest content.
-     *
-     * @param entityCount the counter for the total number of entities processed
-     * @param conceptsCount the counter for the total number of concepts processed
-     * @param semanticsCount the counter for the total number of semantics processed
-     * @param patternsCount the counter for the total number of patterns processed
-     * @param stampsCount the counter for the total number of stamps processed
-     * @param moduleList the set of module public IDs collected for the manifest
-     * @param authorList the set of author public IDs collected for the manifest
-     * @return the generated manifest content as a String
+     * ZipOutputStream whose flush also flushes the deflater with {@link Deflater#SYNC_FLUSH}, so that
+     * everything written to the current entry reaches the underlying stream. Only valid while an entry
+     * is open, which holds for the single entity entry of a {@link ChangeSetFile}.
      */
-    private String generateManifestContent(LongAdder entityCount,
-                                           LongAdder conceptsCount,
-                                           LongAdder semanticsCount,
-                                           LongAdder patternsCount,
-                                           LongAdder stampsCount,
-                                           Set<PublicId> moduleList,
-                                           Set<PublicId> authorList) {
-        return ExportEntitiesToProtobufFile.generateManifestContent(entityCount.sum(),
-                conceptsCount.sum(),
-                semanticsCount.sum(),
-                patternsCount.sum(),
-                stampsCount.sum(),
-                moduleList,
-                authorList);
+    private static final class SyncFlushZipOutputStream extends ZipOutputStream {
+        private boolean entryOpen;
+
+        SyncFlushZipOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void putNextEntry(ZipEntry e) throws IOException {
+            super.putNextEntry(e);
+            entryOpen = true;
+        }
+
+        @Override
+        public void closeEntry() throws IOException {
+            super.closeEntry();
+            entryOpen = false;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (entryOpen) {
+                int length;
+                while ((length = def.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH)) > 0) {
+                    out.write(buf, 0, length);
+                }
+            }
+            out.flush();
+        }
     }
 
     /**
      * Saves the current state of the change set writer by initiating a checkpoint.
      * <p>
-     * The method performs the following actions:
-     * <p> - If a service thread is currently running, it interrupts the thread to ensure
-     *   any ongoing processing is stopped, and all changes are written to the open zip file.
-     * <p> - If the restart parameter is set to true, it initiates a new service thread
-     *   by calling the {@code startService} method, effectively resetting the processing
-     *   state. The reset writer will write to a new zip file.
+     * Every entity queued before the call is written, the current zip file is sealed with its manifest,
+     * and the writer continues with a new zip file on its next write.
      */
     @Override
     public CompletableFuture<Void> save() {
-        return checkpoint(true);
+        return checkpoint(false);
     }
 
     /**
@@ -395,18 +592,15 @@ public CompletableFuture<Void> save() {
      * <p>
      * This method performs the following actions:
      * <p> - Logs the initiation of the shutdown process.
-     * <p> - Executes a checkpoint operation to save the current state without restarting the service.
-     * <p> - Acquires the maximum allowed writer permits, effectively blocking further writing operations.
+     * <p> - Executes a checkpoint operation that writes all queued entities, seals the current file,
+     *   and stops the service thread.
      * <p> - Logs the completion of the shutdown process.
-     * <p>
-     * This implementation ensures that all active resources are managed or released properly
-     * to facilitate a clean shutdown of the service.
      */
     @Override
     public void shutdown() {
         LOG.info("Start shutdown of ChangeSetWriterProvider");
         try {
-            checkpoint(false).get();
+            checkpoint(true).get();
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException(e);
         }
@@ -414,40 +608,17 @@ public void shutdown() {
     }
 
     /**
-     * Manages the checkpoint operation for the ChangeSetWriterProvider service.
-     * The method either interrupts the current service thread to prepare for state change
-     * or transitions the state of the service based on the {@code restart} parameter.
+     * Queues a barrier that the service thread releases once every entity queued before this call has been
+     * written and the current change set file has been sealed.
      *
-     * @param restart a flag indicating whether the service should restart after the checkpoint.
-     *                If {@code true}, the service state transitions to {@code ROTATING},
-     *                and a new service thread is started to continue operations.
-     *                If {@code false}, the service state transitions to {@code STOPPED}.
+     * @param stop whether the service thread stops after releasing the barrier
      */
-    private CompletableFuture<Void> checkpoint(boolean restart) {
-        return CompletableFuture.supplyAsync(() -> {
-            Thread interruptedThread = null;
-            switch (serviceThread.get()) {
-                case Thread thread -> {
-                    interruptedThread = thread;
-                }
-                case null -> {
-                }
-            }
-            if (interruptedThread != null) {
-                threadStateMap.put(interruptedThread, (restart?STATE.ROTATING:STATE.STOPPED));
-            }
-            if (restart) {
-                // start a new thread with a new file
-                startService();
-            }
-
-            if (interruptedThread != null) {
-                Semaphore changeSetWriter = threadSemaphoreMap.remove(interruptedThread);
-                if (changeSetWriter != null) {
-                    changeSetWriter.acquireUninterruptibly();
-                }
-            }
-            return null;
-        }, TinkExecutor.ioThreadPool());
+    private CompletableFuture<Void> checkpoint(boolean stop) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        switch (state.get()) {
+            case STOPPED, FAILED -> done.complete(null);
+            default -> barriers.add(new Barrier(queuedCount.get(), stop, done));
+        }
+        return done;
     }
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.set.primitive.IntSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of (writeSequence, nid) pairs, one record for every merge into the store.
+ * <p>
+ * Sequences come from an atomic counter, and records are buffered in stripes selected by thread id, so
+ * concurrent writers only contend when they share a stripe. A full stripe is appended to the file as a
+ * block headed by its lowest and highest sequence. Blocks from different stripes interleave, so readers skip
+ * whole blocks by their highest sequence rather than binary searching. The current sequence is recovered
+ * from the block headers on open, which keeps write sequences monotonic across restarts.
+ * <p>
+ * The file starts with a floor sequence. {@link #truncateThrough(long)} discards the records at or before
+ * a sequence and raises the floor; the log can only report modifications since sequences at or after it.
+ * <p>
+ * Each {@link #flush()} also appends a (epochMillis, writeSequence) checkpoint to a separate file, so a
+ * wall clock time can be translated to a conservative starting sequence.
+ */
+final class ModificationLog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ModificationLog.class);
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int BLOCK_HEADER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int CHECKPOINT_BYTES = Long.BYTES + Long.BYTES;
+    private static final int BUFFERED_RECORDS = 4096;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Stripe[] stripes;
+    private final Object flushLock = new Object();
+    private final Path logPath;
+    private final FileChannel checkpointChannel;
+    private FileChannel logChannel;
+    private volatile long floorSequence;
+
+    ModificationLog(File logFile, File checkpointFile) throws IOException {
+        this.logPath = logFile.toPath();
+        int stripeCount = 1 << (32 - Integer.numberOfLeadingZeros(Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        Files.deleteIfExists(truncatingPath());
+        this.logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointChannel = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpointChannel.truncate(checkpointChannel.size() / CHECKPOINT_BYTES * CHECKPOINT_BYTES);
+        recover();
+        logChannel.position(logChannel.size());
+        checkpointChannel.position(checkpointChannel.size());
+    }
+
+    /**
+     * @return the most recently assigned write sequence
+     */
+    long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * @return the lowest write sequence the log can report modifications since
+     */
+    long floorSequence() {
+        return floorSequence;
+    }
+
+    /**
+     * Assigns the next write sequence to the nid and buffers the pair for the log.
+     *
+     * @return the assigned write sequence
+     */
+    long record(int nid) {
+        Stripe stripe = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            // Assigned under the stripe monitor, so a record is buffered before any drain that follows a
+            // read of its sequence.
+            long writeSequence = sequence.incrementAndGet();
+            if (stripe.add(writeSequence, nid)) {
+                synchronized (this) {
+                    writeBlock(stripe);
+                }
+            }
+            return writeSequence;
+        }
+    }
+
+    /**
+     * Writes buffered records, forces them to disk, and appends a checkpoint for the current time.
+     */
+    void flush() throws IOException {
+        synchronized (flushLock) {
+            long epochMillis = System.currentTimeMillis();
+            long flushedSequence = sequence.get();
+            drainStripes();
+            synchronized (this) {
+                logChannel.force(false);
+                ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES)
+                        .putLong(epochMillis)
+                        .putLong(flushedSequence)
+                        .flip();
+                while (checkpoint.hasRemaining()) {
+                    checkpointChannel.write(checkpoint);
+                }
+                checkpointChannel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Translates a wall clock time into a write sequence. Every record written after the returned sequence
+     * was written no earlier than the last checkpoint at or before the given time, so the result may
+     * include some modifications made shortly before that time, but never omits a later one.
+     *
+     * @return the sequence of the last checkpoint at or before epochMillis, or 0 if there is none
+     */
+    synchronized long sequenceAt(long epochMillis) throws IOException {
+        long checkpointCount = checkpointChannel.size() / CHECKPOINT_BYTES;
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES);
+        long result = 0;
+        long low = 0;
+        long high = checkpointCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            checkpoint.clear();
+            checkpointChannel.read(checkpoint, middle * CHECKPOINT_BYTES);
+            if (checkpoint.getLong(0) <= epochMillis) {
+                result = checkpoint.getLong(Long.BYTES);
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the distinct nids written after sinceSequence. Writers are only held up by the scan when
+     * their stripe fills.
+     *
+     * @return the modified nids, or null if sinceSequence is below the {@link #floorSequence() floor}
+     */
+    IntSet nidsModifiedSince(long sinceSequence) throws IOException {
+        drainStripes();
+        synchronized (this) {
+            if (sinceSequence < floorSequence) {
+                return null;
+            }
+            MutableIntSet nids = IntSets.mutable.empty();
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            ByteBuffer records = ByteBuffer.allocate(RECORD_BYTES * BUFFERED_RECORDS);
+            long size = logChannel.size();
+            long position = HEADER_BYTES;
+            while (position < size) {
+                readFully(blockHeader.clear(), position);
+                long maxSequence = blockHeader.getLong(Long.BYTES);
+                int count = blockHeader.getInt(Long.BYTES + Long.BYTES);
+                long recordsPosition = position + BLOCK_HEADER_BYTES;
+                position = recordsPosition + (long) count * RECORD_BYTES;
+                if (maxSequence > sinceSequence) {
+                    readFully(records.clear().limit(count * RECORD_BYTES), recordsPosition);
+                    for (int offset = 0; offset < count * RECORD_BYTES; offset += RECORD_BYTES) {
+                        if (records.getLong(offset) > sinceSequence) {
+                            nids.add(records.getInt(offset + Long.BYTES));
+                        }
+                    }
+                }
+            }
+            return nids;
+        }
+    }
+
+    /**
+     * Discards the records with a write sequence at or before throughSequence, by rewriting the log
+     * without them, and raises the floor to throughSequence. Call once every consumer of
+     * {@link #nidsModifiedSince(long)} has exported past that sequence.
+     */
+    synchronized void truncateThrough(long throughSequence) throws IOException {
+        long newFloor = Math.min(throughSequence, sequence.get());
+        if (newFloor <= floorSequence) {
+            return;
+        }
+        Path truncatingPath = truncatingPath();
+        try (FileChannel out = FileChannel.open(truncatingPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, ByteBuffer.allocate(HEADER_BYTES).putLong(0, newFloor));
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            ByteBuffer records = ByteBuffer.allocate(RECORD_BYTES * BUFFERED_RECORDS);
+            Stripe retained = new Stripe();
+            long size = logChannel.size();
+            long position = HEADER_BYTES;
+            while (position < size) {
+                readFully(blockHeader.clear(), position);
+                long minSequence = blockHeader.getLong(0);
+                long maxSequence = blockHeader.getLong(Long.BYTES);
+                int count = blockHeader.getInt(Long.BYTES + Long.BYTES);
+                long recordsPosition = position + BLOCK_HEADER_BYTES;
+                position = recordsPosition + (long) count * RECORD_BYTES;
+                if (maxSequence <= newFloor) {
+                    continue;
+                }
+                readFully(records.clear().limit(count * RECORD_BYTES), recordsPosition);
+                if (minSequence > newFloor) {
+                    writeFully(out, blockHeader.flip(), records.flip());
+                } else {
+                    for (int offset = 0; offset < count * RECORD_BYTES; offset += RECORD_BYTES) {
+                        long writeSequence = records.getLong(offset);
+                        if (writeSequence > newFloor) {
+                            retained.add(writeSequence, records.getInt(offset + Long.BYTES));
+                        }
+                    }
+                    writeBlock(out, retained);
+                }
+            }
+            out.force(false);
+        }
+        logChannel.close();
+        try {
+            Files.move(truncatingPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            floorSequence = newFloor;
+        } finally {
+            logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logChannel.position(logChannel.size());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        synchronized (this) {
+            logChannel.close();
+            checkpointChannel.close();
+        }
+    }
+
+    private Path truncatingPath() {
+        return logPath.resolveSibling(logPath.getFileName() + ".truncating");
+    }
+
+    private void recover() throws IOException {
+        long size = logChannel.size();
+        if (size < HEADER_BYTES) {
+            logChannel.truncate(0);
+            writeFully(logChannel, ByteBuffer.allocate(HEADER_BYTES).putLong(0, 0L));
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        long floor = header.getLong(0);
+        long lastSequence = floor;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        long position = HEADER_BYTES;
+        while (size - position >= BLOCK_HEADER_BYTES) {
+            readFully(blockHeader.clear(), position);
+            long blockEnd = position + BLOCK_HEADER_BYTES
+                    + (long) blockHeader.getInt(Long.BYTES + Long.BYTES) * RECORD_BYTES;
+            if (blockEnd > size) {
+                break;
+            }
+            lastSequence = Math.max(lastSequence, blockHeader.getLong(Long.BYTES));
+            position = blockEnd;
+        }
+        if (position < size) {
+            LOG.warn("Truncating partial block at end of modification log: {}", logPath);
+            logChannel.truncate(position);
+        }
+        this.floorSequence = floor;
+        this.sequence.set(lastSequence);
+    }
+
+    private void drainStripes() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                synchronized (this) {
+                    writeBlock(stripe);
+                }
+            }
+        }
+    }
+
+    private void writeBlock(Stripe stripe) {
+        try {
+            writeBlock(logChannel, stripe);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBlock(FileChannel channel, Stripe stripe) throws IOException {
+        if (stripe.count == 0) {
+            return;
+        }
+        try {
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                    .putLong(stripe.minSequence)
+                    .putLong(stripe.maxSequence)
+                    .putInt(stripe.count)
+                    .flip();
+            writeFully(channel, blockHeader, stripe.records.flip());
+        } finally {
+            stripe.clear();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (logChannel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of modification log at " + position);
+            }
+        }
+    }
+
+    /**
+     * Records buffered by the writers that share a stripe. Sequences are assigned under the stripe monitor,
+     * so they increase within a stripe.
+     */
+    private static final class Stripe {
+        private final ByteBuffer records = ByteBuffer.allocate(RECORD_BYTES * BUFFERED_RECORDS);
+        private long minSequence;
+        private long maxSequence;
+        private int count;
+
+        /**
+         * @return true if the stripe is full
+         */
+        boolean add(long writeSequence, int nid) {
+            if (count == 0) {
+                minSequence = writeSequence;
+            }
+            maxSequence = writeSequence;
+            records.putLong(writeSequence).putInt(nid);
+            return ++count == BUFFERED_RECORDS;
+        }
+
+        void clear() {
+            records.clear();
+            count = 0;
+        }
+    }
+}
@@ -76,9 +76,12 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.ServiceLoader;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -86,7 +89,6 @@
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.LongAdder;
 import java.util.function.ObjIntConsumer;
 
 /**
@@ -101,7 +103,6 @@ public class SpinedArrayProvider implements PrimitiveDataService, NidGenerator,
     private static final Logger LOG = LoggerFactory.getLogger(SpinedArrayProvider.class);
     protected static final File defaultDataDirectory = new File("target/spinedarrays/");
     protected static SpinedArrayProvider singleton;
-    protected static LongAdder writeSequence = new LongAdder();
     protected final CountDownLatch uuidsLoadedLatch = new CountDownLatch(1);
     final AtomicInteger nextNid = new AtomicInteger(PrimitiveDataService.FIRST_NID);
 
@@ -118,6 +119,7 @@ public class SpinedArrayProvider implements PrimitiveDataService, NidGenerator,
      * Using "citing" instead of "referencing" to make the field names more distinct.
      */
     final SpinedIntLongArrayMap nidToCitingComponentsNidMap;
+    final ModificationLog modificationLog;
 
     final File nidToPatternNidMapDirectory;
     final File nidToByteArrayMapDirectory;
@@ -159,6 +161,8 @@ public SpinedArrayProvider() throws IOException, ExecutionException, Interrupted
         this.nidToCitingComponentNidMapDirectory = new File(configuredRoot, "nidToCitingComponentNidMap");
         this.nidToCitingComponentNidMapDirectory.mkdirs();
         this.nextNidKeyFile = new File(configuredRoot, "nextNidKeyFile");
+        this.modificationLog = new ModificationLog(new File(configuredRoot, "modificationLog"),
+                new File(configuredRoot, "modificationLogCheckpoints"));
 
         this.entityToBytesMap = new SpinedByteArrayMap(new ByteArrayFileStore(nidToByteArrayMapDirectory));
         this.nidToPatternNidMap = new SpinedIntIntMap(KeyType.NID_KEY);
@@ -256,7 +260,40 @@ private void cancelUncommittedStamp(int stampNid, StampRecord stamp) {
 
     @Override
     public long writeSequence() {
-        return writeSequence.sum();
+        return modificationLog.sequence();
+    }
+
+    @Override
+    public boolean forEachNidModifiedSince(long sinceWriteSequence, IntProcedure procedure) {
+        IntSet modifiedNids;
+        try {
+            modifiedNids = modificationLog.nidsModifiedSince(sinceWriteSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (modifiedNids == null) {
+            return false;
+        }
+        modifiedNids.forEach(procedure);
+        return true;
+    }
+
+    @Override
+    public void truncateModificationsThrough(long writeSequence) {
+        try {
+            modificationLog.truncateThrough(writeSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public OptionalLong writeSequenceAt(long epochMillis) {
+        try {
+            return OptionalLong.of(modificationLog.sequenceAt(epochMillis));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -268,6 +305,7 @@ public void close() {
             save();
             listAndCancelUncommittedStamps();
             entityToBytesMap.close();
+            modificationLog.close();
             SpinedArrayProvider.singleton = null;
             this.indexer.close();
         } catch (IOException e) {
@@ -286,6 +324,7 @@ public void save() {
             nidToPatternNidMap.write(this.nidToPatternNidMapDirectory);
             this.entityToBytesMap.write();
             this.nidToCitingComponentsNidMap.write();
+            this.modificationLog.flush();
             this.indexer.commit();
         } catch (IOException e) {
             LOG.error(e.getLocalizedMessage(), e);
@@ -405,6 +444,24 @@ public byte[] getBytes(int nid) {
         return this.entityToBytesMap.get(nid);
     }
 
+    /**
+     * Reads in nid order, so that consecutive reads stay within a spine, and places each result at the
+     * position of its nid in the request.
+     */
+    @Override
+    public byte[][] getBytes(int[] nids) {
+        long[] nidsWithPositions = new long[nids.length];
+        for (int i = 0; i < nids.length; i++) {
+            nidsWithPositions[i] = ((long) nids[i] << 32) | i;
+        }
+        Arrays.sort(nidsWithPositions);
+        byte[][] bytes = new byte[nids.length][];
+        for (long nidWithPosition : nidsWithPositions) {
+            bytes[(int) nidWithPosition] = this.entityToBytesMap.get((int) (nidWithPosition >> 32));
+        }
+        return bytes;
+    }
+
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity) {
         if (nid == Integer.MIN_VALUE) {
@@ -430,7 +487,7 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
             }
         }
         byte[] mergedBytes = this.entityToBytesMap.accumulateAndGet(nid, value, PrimitiveDataService::merge);
-        this.writeSequence.increment();
+        this.modificationLog.record(nid);
         this.changeSetWriterServices.forEach(writerService -> writerService.writeToChangeSet((Entity) sourceObject, activity));
         this.indexer.index(sourceObject);
         return mergedBytes;
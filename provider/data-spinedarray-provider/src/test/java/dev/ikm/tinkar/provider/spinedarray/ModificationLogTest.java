@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.eclipse.collections.api.set.primitive.IntSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModificationLogTest {
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 10_000;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File logFile = new File(directory, "modificationLog");
+        File checkpointFile = new File(directory, "modificationLogCheckpoints");
+        long flushedSequence;
+        long afterFlushMillis;
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            recordConcurrently(log);
+            assertEquals(THREADS * WRITES_PER_THREAD, log.sequence());
+            log.flush();
+            flushedSequence = log.sequence();
+            Thread.sleep(5);
+            afterFlushMillis = System.currentTimeMillis();
+            Thread.sleep(5);
+            for (int i = 0; i < 9; i++) {
+                log.record(-1 - i % 3);
+            }
+        }
+
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            assertEquals(flushedSequence + 9, log.sequence());
+            assertEquals(flushedSequence, log.sequenceAt(afterFlushMillis));
+            assertEquals(0, log.sequenceAt(0));
+            assertEquals(THREADS * WRITES_PER_THREAD + 3, log.nidsModifiedSince(0).size());
+            IntSet sinceFlush = log.nidsModifiedSince(flushedSequence);
+            assertEquals(3, sinceFlush.size());
+            assertTrue(sinceFlush.containsAll(-1, -2, -3));
+            assertEquals(0, log.nidsModifiedSince(log.sequence()).size());
+            assertEquals(flushedSequence + 10, log.record(7));
+        }
+    }
+
+    @Test
+    public void testTruncateThrough() throws Exception {
+        File logFile = new File(directory, "modificationLog");
+        File checkpointFile = new File(directory, "modificationLogCheckpoints");
+        long throughSequence;
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            recordConcurrently(log);
+            long lengthBefore = logFile.length();
+            throughSequence = log.sequence() - 100;
+            log.truncateThrough(throughSequence);
+            assertEquals(throughSequence, log.floorSequence());
+            assertNull(log.nidsModifiedSince(0));
+            assertEquals(100, log.nidsModifiedSince(throughSequence).size());
+            assertTrue(logFile.length() < lengthBefore);
+            log.record(-1);
+        }
+
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            assertEquals(throughSequence, log.floorSequence());
+            assertEquals(throughSequence + 101, log.sequence());
+            assertEquals(101, log.nidsModifiedSince(throughSequence).size());
+        }
+    }
+
+    @Test
+    public void testPartialBlockDiscardedOnOpen() throws Exception {
+        File logFile = new File(directory, "modificationLog");
+        File checkpointFile = new File(directory, "modificationLogCheckpoints");
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            log.record(1);
+            log.flush();
+            log.record(2);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        try (ModificationLog log = new ModificationLog(logFile, checkpointFile)) {
+            assertEquals(1, log.sequence());
+            assertEquals(1, log.nidsModifiedSince(0).size());
+            assertEquals(2, log.record(2));
+        }
+    }
+
+    private static void recordConcurrently(ModificationLog log) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int firstNid = thread * WRITES_PER_THREAD;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                        log.record(firstNid + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dense nid-indexed table of the description semantic that {@link EntityProvider#textFast(int)} takes the text
+ * of for each component, so that a miss in the text cache decodes one description rather than all of them. A
+ * component without descriptions maps to its own nid. Pages of {@value #PAGE_SIZE} nids are only allocated
+ * where text has been looked up.
+ */
+final class DefaultTextIndex {
+    static final int NOT_INDEXED = Integer.MIN_VALUE;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final NidPageTable<AtomicIntegerArray> pages = new NidPageTable<>(PAGE_BITS, AtomicIntegerArray[]::new,
+            DefaultTextIndex::newPage);
+
+    /**
+     * @return the nid of the component's default text semantic, the component's own nid if it has no
+     * descriptions, or {@link #NOT_INDEXED}
+     */
+    int get(int nid) {
+        AtomicIntegerArray page = pages.page(nid);
+        return page == null ? NOT_INDEXED : page.get(pages.slot(nid));
+    }
+
+    /**
+     * @return true if the entry was recorded, false if the component was already indexed
+     */
+    boolean putIfAbsent(int nid, int semanticNid) {
+        return pages.pageOrCreate(nid).compareAndSet(pages.slot(nid), NOT_INDEXED, semanticNid);
+    }
+
+    /**
+     * Removes the entry only if it is still the given semantic.
+     */
+    void remove(int nid, int semanticNid) {
+        AtomicIntegerArray page = pages.page(nid);
+        if (page != null) {
+            page.compareAndSet(pages.slot(nid), semanticNid, NOT_INDEXED);
+        }
+    }
+
+    void forget(int nid) {
+        AtomicIntegerArray page = pages.page(nid);
+        if (page != null) {
+            page.set(pages.slot(nid), NOT_INDEXED);
+        }
+    }
+
+    private static AtomicIntegerArray newPage() {
+        int[] notIndexed = new int[PAGE_SIZE];
+        Arrays.fill(notIndexed, NOT_INDEXED);
+        return new AtomicIntegerArray(notIndexed);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+/**
+ * {@link dev.ikm.tinkar.common.service.ServiceProperties} keys that size the {@link EntityProvider} caches.
+ * Values are read when the caches are first used after a cache reset.
+ */
+public enum EntityCacheKeys {
+    /**
+     * Long: stored bytes of the entities the entity cache may hold, each entity weighing the length of its
+     * serialized form. Stamps are held separately. Defaults to 64 MiB.
+     */
+    ENTITY_CACHE_MAX_BYTES,
+    /**
+     * Long: bytes of component text the text cache may hold, counting two bytes per character.
+     * Defaults to 16 MiB.
+     */
+    STRING_CACHE_MAX_BYTES,
+    /**
+     * Boolean: whether the caches record hit, miss and eviction counts for
+     * {@link dev.ikm.tinkar.common.service.CachingService#allStatistics()}. Defaults to true.
+     */
+    RECORD_STATS
+}
@@ -17,18 +17,21 @@
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.ikm.tinkar.common.alert.AlertObject;
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.service.CacheStatistics;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.DefaultDescriptionForNidService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
 import dev.ikm.tinkar.common.service.PrimitiveDataRepair;
 import dev.ikm.tinkar.common.service.PublicIdService;
+import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.service.TinkExecutor;
-import dev.ikm.tinkar.common.util.broadcast.Broadcaster;
-import dev.ikm.tinkar.common.util.broadcast.SimpleBroadcaster;
+import dev.ikm.tinkar.common.util.broadcast.CoalescingBroadcaster;
 import dev.ikm.tinkar.common.util.broadcast.Subscriber;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
 import dev.ikm.tinkar.component.Chronology;
@@ -38,6 +41,7 @@
 import dev.ikm.tinkar.entity.transaction.Transaction;
 import dev.ikm.tinkar.provider.search.TypeAheadSearch;
 import dev.ikm.tinkar.terms.EntityFacade;
+import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.factory.Sets;
@@ -50,11 +54,15 @@
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import static dev.ikm.tinkar.terms.TinkarTerm.DESCRIPTION_PATTERN;
 
@@ -62,23 +70,24 @@
 public class EntityProvider implements EntityService, PublicIdService, DefaultDescriptionForNidService, EntityDataRepair {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityProvider.class);
-    private static final Cache<Integer, String> STRING_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
-    private static final Cache<Integer, Entity> ENTITY_CACHE = Caffeine.newBuilder().maximumSize(10240).build();
-    private static final Cache<Integer, StampEntity> STAMP_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
+    private static final long DEFAULT_ENTITY_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_STRING_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    private static volatile Caches caches;
 
 
     //Multi<Entity<? extends EntityVersion>> chronologyBroadcaster = BroadcastProcessor.create().toHotStream();
     //  <T extends Entity<? extends EntityVersion>>
-    final Broadcaster<Integer> processor;
+    final CoalescingBroadcaster processor;
+    private final NidWriteSequences writeSequences = new NidWriteSequences();
 
-    private boolean loadPhase = false;
+    private volatile boolean loadPhase = false;
 
     /**
      * TODO elegant shutdown of entityStream and others
      */
     public EntityProvider() {
         LOG.info("Constructing EntityProvider");
-        this.processor = new SimpleBroadcaster<>();
+        this.processor = new CoalescingBroadcaster();
         // Ensure that the non-existent stamp is always available.
         // Write is idempotent, so writing each time should not cause any problems.
         // But we don't want to prevent starting the entity service if this.putEntity
@@ -93,56 +102,117 @@ public void addSubscriberWithWeakReference(Subscriber<Integer> subscriber) {
 
     @Override
     public String textFast(int nid) {
+        return caches().strings.get(nid, this::defaultText);
+    }
+
+    /**
+     * Takes the text of the description semantic indexed for the component, indexing it first if needed.
+     */
+    private String defaultText(int nid) {
+        int semanticNid = caches().defaultTexts.get(nid);
+        if (semanticNid == nid) {
+            return null;
+        }
+        if (semanticNid != DefaultTextIndex.NOT_INDEXED) {
+            String text = descriptionText(Entity.getFast(semanticNid));
+            if (text != null) {
+                return text;
+            }
+        }
+        return indexDefaultText(nid);
+    }
+
+    private static String descriptionText(Entity descriptionSemanticEntity) {
+        if (descriptionSemanticEntity instanceof SemanticEntity descriptionSemantic
+                && Entity.getFast(descriptionSemantic.patternNid()) instanceof PatternEntity pattern) {
+            return (String) descriptionField(descriptionSemantic, pattern, TinkarTerm.TEXT_FOR_DESCRIPTION);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a field of a description semantic by meaning, the same way whether the description is being chosen
+     * or its text read back from the index, so that both see the same version.
+     */
+    private static Object descriptionField(SemanticEntity descriptionSemantic, PatternEntity pattern, EntityProxy.Concept meaning) {
+        // TODO: use version computer to get version
+        PatternEntityVersion patternEntityVersion = (PatternEntityVersion) pattern.versions().get(0);
+        SemanticEntityVersion version = (SemanticEntityVersion) descriptionSemantic.versions().get(0);
+        return version.fieldValues().get(patternEntityVersion.indexForMeaning(meaning));
+    }
 
+    /**
+     * Chooses the first regular name, else the fully qualified name, else the last description, and records the
+     * chosen semantic unless a description of the component was written meanwhile.
+     */
+    private String indexDefaultText(int nid) {
         // TODO use a default language coordinate instead of this hardcode routine.
-        return STRING_CACHE.get(nid, integer -> {
-            int[] semanticNids = PrimitiveData.get().semanticNidsForComponentOfPattern(nid, DESCRIPTION_PATTERN.nid());
-            String anyString = null;
-            String fqnString = null;
-            for (int semanticNid : semanticNids) {
-                Entity descriptionSemanticEntity = Entity.getFast(semanticNid);
-                if (descriptionSemanticEntity instanceof SemanticEntity descriptionSemantic) {
-                    Entity entity = Entity.getFast(descriptionSemantic.patternNid());
-                    if (entity instanceof PatternEntity pattern) {
-                        // TODO: use version computer to get version
-                        PatternEntityVersion patternEntityVersion = (PatternEntityVersion) pattern.versions().get(0);
-                        SemanticEntityVersion version = (SemanticEntityVersion) descriptionSemantic.versions().get(0);
-                        int indexForMeaning = patternEntityVersion.indexForMeaning(TinkarTerm.DESCRIPTION_TYPE);
-                        int indexForText = patternEntityVersion.indexForMeaning(TinkarTerm.TEXT_FOR_DESCRIPTION);
-                        if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE)) {
-                            return (String) version.fieldValues().get(indexForText);
-                        }
-                        if (version.fieldValues().get(indexForMeaning).equals(TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE)) {
-                            fqnString = (String) version.fieldValues().get(indexForText);
-                        }
-                        anyString = (String) version.fieldValues().get(indexForText);
-                    } else {
-                        anyString = " <" + entity.nid() + ">" + entity.asUuidList().toString();
-                        // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
-                        AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found entity with id:  " + anyString)));
-                        AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found: " + entity)));
+        long writeSequence = writeSequences.get(nid);
+        int[] semanticNids = PrimitiveData.get().semanticNidsForComponentOfPattern(nid, DESCRIPTION_PATTERN.nid());
+        String anyString = null;
+        String fqnString = null;
+        int anySemanticNid = nid;
+        int fqnSemanticNid = nid;
+        for (int semanticNid : semanticNids) {
+            Entity descriptionSemanticEntity = Entity.getFast(semanticNid);
+            if (descriptionSemanticEntity instanceof SemanticEntity descriptionSemantic) {
+                Entity entity = Entity.getFast(descriptionSemantic.patternNid());
+                if (entity instanceof PatternEntity pattern) {
+                    Object descriptionType = descriptionField(descriptionSemantic, pattern, TinkarTerm.DESCRIPTION_TYPE);
+                    String text = (String) descriptionField(descriptionSemantic, pattern, TinkarTerm.TEXT_FOR_DESCRIPTION);
+                    if (descriptionType.equals(TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE)) {
+                        recordDefaultText(nid, semanticNid, writeSequence);
+                        return text;
                     }
+                    if (descriptionType.equals(TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE)) {
+                        fqnString = text;
+                        fqnSemanticNid = semanticNid;
+                    }
+                    anyString = text;
+                    anySemanticNid = semanticNid;
                 } else {
-                    anyString = " <" + descriptionSemanticEntity.nid() + "> " + descriptionSemanticEntity.asUuidList().toString();
-                    LOG.error("ERROR getting string for nid: " + anyString);
-                    LOG.error("ERROR Nid - 2: <" + (nid - 2) + "> " + getChronology(nid - 2));
-                    LOG.error("ERROR Nid - 1: <" + (nid - 1) + "> " + getChronology(nid - 1));
-                    LOG.error("ERROR Nid: <" + nid + "> " + getChronology(nid - 1));
-                    LOG.error("ERROR Nid + 1: <" + (nid + 1) + "> " + getChronology(nid + 1));
-                    LOG.error("ERROR Nid + 2: <" + (nid + 2) + "> " + getChronology(nid + 2));
-
+                    anyString = " <" + entity.nid() + ">" + entity.asUuidList().toString();
+                    anySemanticNid = DefaultTextIndex.NOT_INDEXED;
                     // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
-                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic entity from list: " +
-                            Arrays.toString(semanticNids) + "\n Found entity with id:  " + anyString)));
-                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic. Found: " + descriptionSemanticEntity)));
+                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found entity with id:  " + anyString)));
+                    AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a pattern entity. Found: " + entity)));
                 }
+            } else {
+                anyString = " <" + descriptionSemanticEntity.nid() + "> " + descriptionSemanticEntity.asUuidList().toString();
+                anySemanticNid = DefaultTextIndex.NOT_INDEXED;
+                LOG.error("ERROR getting string for nid: " + anyString);
+                LOG.error("ERROR Nid - 2: <" + (nid - 2) + "> " + getChronology(nid - 2));
+                LOG.error("ERROR Nid - 1: <" + (nid - 1) + "> " + getChronology(nid - 1));
+                LOG.error("ERROR Nid: <" + nid + "> " + getChronology(nid - 1));
+                LOG.error("ERROR Nid + 1: <" + (nid + 1) + "> " + getChronology(nid + 1));
+                LOG.error("ERROR Nid + 2: <" + (nid + 2) + "> " + getChronology(nid + 2));
+
+                // Added in case entity.toString() itself throws an exception, at least get a UUID for the problem.
+                AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic entity from list: " +
+                        Arrays.toString(semanticNids) + "\n Found entity with id:  " + anyString)));
+                AlertStreams.getRoot().dispatch(AlertObject.makeError(new IllegalStateException("Expecting a description semantic. Found: " + descriptionSemanticEntity)));
             }
-            if (fqnString != null) {
-                return fqnString;
-            }
-            return anyString;
-        });
+        }
+        if (fqnString != null) {
+            recordDefaultText(nid, fqnSemanticNid, writeSequence);
+            return fqnString;
+        }
+        if (anySemanticNid != DefaultTextIndex.NOT_INDEXED) {
+            recordDefaultText(nid, anySemanticNid, writeSequence);
+        }
+        return anyString;
+    }
 
+    /**
+     * A description written while the choice was made advances the component's write sequence before its entry
+     * is forgotten, so either the entry recorded here is forgotten, or the changed sequence is seen and the
+     * entry withdrawn.
+     */
+    private void recordDefaultText(int nid, int semanticNid, long writeSequence) {
+        DefaultTextIndex defaultTexts = caches().defaultTexts;
+        if (defaultTexts.putIfAbsent(nid, semanticNid) && writeSequences.get(nid) != writeSequence) {
+            defaultTexts.remove(nid, semanticNid);
+        }
     }
 
     @Override
@@ -165,13 +235,85 @@ public int nidForPublicId(PublicId publicId) {
     }
 
     public <T extends Entity<V>, V extends EntityVersion> T getEntityFast(int nid) {
-        return (T) ENTITY_CACHE.get(nid, entityNid -> {
+        Caches current = caches();
+        StampEntity stamp = current.stamps.getIfPresent(nid);
+        if (stamp != null) {
+            return (T) stamp;
+        }
+        CachedEntity cached = current.entities.get(nid, entityNid -> {
             byte[] bytes = PrimitiveData.get().getBytes(nid);
             if (bytes == null) {
                 return null;
             }
-            return EntityRecordFactory.make(bytes);
+            return new CachedEntity(EntityRecordFactory.make(bytes), bytes.length);
         });
+        return cached == null ? null : (T) cached.entity();
+    }
+
+    /**
+     * Serves what it can from the caches, then reads the bytes of the rest in one bulk call, which the data
+     * provider may order by storage location, and decodes them on the fork-join pool. Decoded entities are
+     * cached only while the batch would take at most a sixteenth of the entity cache, so that a large scan
+     * does not evict the working set; stamps are always cached.
+     */
+    @Override
+    public void getEntitiesFast(int[] nids, Entity[] entities) {
+        if (entities.length < nids.length) {
+            throw new IllegalArgumentException("Results array of length " + entities.length +
+                    " is shorter than " + nids.length + " nids");
+        }
+        Caches current = caches();
+        int[] missingPositions = new int[nids.length];
+        int missingCount = 0;
+        for (int i = 0; i < nids.length; i++) {
+            Entity entity = current.stamps.getIfPresent(nids[i]);
+            if (entity == null) {
+                CachedEntity cached = current.entities.getIfPresent(nids[i]);
+                entity = cached == null ? null : cached.entity();
+            }
+            entities[i] = entity;
+            if (entity == null) {
+                missingPositions[missingCount++] = i;
+            }
+        }
+        if (missingCount == 0) {
+            return;
+        }
+        int[] missingNids = new int[missingCount];
+        for (int i = 0; i < missingCount; i++) {
+            missingNids[i] = nids[missingPositions[i]];
+        }
+        byte[][] missingBytes = PrimitiveData.get().getBytes(missingNids);
+        long batchBytes = 0;
+        for (byte[] bytes : missingBytes) {
+            batchBytes += bytes == null ? 0 : bytes.length;
+        }
+        boolean cacheBatch = !loadPhase && batchBytes <= current.entityCacheMaxBytes / 16;
+        IntConsumer decode = i -> {
+            byte[] bytes = missingBytes[i];
+            if (bytes != null) {
+                Entity entity = EntityRecordFactory.make(bytes);
+                entities[missingPositions[i]] = entity;
+                // A concurrent write may have cached a newer entity since the bytes were read.
+                if (entity instanceof StampEntity stamp) {
+                    current.stamps.putIfAbsent(stamp.nid(), stamp);
+                } else if (cacheBatch) {
+                    current.entities.asMap().putIfAbsent(entity.nid(), new CachedEntity(entity, bytes.length));
+                }
+            }
+        };
+        if (missingCount < TinkExecutor.defaultParallelBatchSize()) {
+            for (int i = 0; i < missingCount; i++) {
+                decode.accept(i);
+            }
+            return;
+        }
+        int count = missingCount;
+        try {
+            TinkExecutor.forkJoinThreadPool().submit(() -> IntStream.range(0, count).parallel().forEach(decode)).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -181,8 +323,8 @@ public int nidForUuids(ImmutableList<UUID> uuidList) {
 
     @Override
     public StampEntity getStampFast(int nid) {
-        return STAMP_CACHE.get(nid, stampNid -> {
-                    byte[] bytes = PrimitiveData.get().getBytes(nid);
+        return caches().stamps.get(nid, stampNid -> {
+                    byte[] bytes = PrimitiveData.get().getBytes(stampNid);
                     if (bytes == null) {
                         return null;
                     }
@@ -203,35 +345,55 @@ public void putEntityQuietly(Entity entity, DataActivity activity) {
 
     private void putEntity(Entity entity, DataActivity activity, boolean dispatch) {
         invalidateCaches(entity);
+        byte[] entityBytes = entity.getBytes();
         byte[] mergedEntityBytes = switch (entity) {
             case ConceptEntity conceptEntity -> {
-                STRING_CACHE.put(conceptEntity.nid(), conceptEntity.asUuidList().toString());
+                caches().strings.put(conceptEntity.nid(), conceptEntity.asUuidList().toString());
                 yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
+                        entityBytes, entity, activity);
             }
             case PatternEntity patternEntity -> {
-                STRING_CACHE.put(patternEntity.nid(), patternEntity.asUuidList().toString());
+                caches().strings.put(patternEntity.nid(), patternEntity.asUuidList().toString());
                 yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
+                        entityBytes, entity, activity);
             }
             case SemanticEntity semanticEntity -> {
-                STRING_CACHE.put(semanticEntity.nid(), semanticEntity.asUuidList().toString());
+                caches().strings.put(semanticEntity.nid(), semanticEntity.asUuidList().toString());
                 yield PrimitiveData.get().merge(entity.nid(),
                         semanticEntity.patternNid(),
                         semanticEntity.referencedComponentNid(),
-                        entity.getBytes(), entity, activity);
+                        entityBytes, entity, activity);
             }
             case StampEntity stampEntity -> {
                 if (stampEntity.lastVersion().stateNid() == State.CANCELED.nid()) {
                     PrimitiveData.get().addCanceledStampNid(stampEntity.nid());
                 }
                 yield PrimitiveData.get().merge(entity.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
-                        entity.getBytes(), entity, activity);
+                        entityBytes, entity, activity);
             }
             default -> throw new IllegalStateException("Unexpected value: " + entity);
         };
 
-        ENTITY_CACHE.put(entity.nid(),  EntityRecordFactory.make(mergedEntityBytes));
+        // A bulk load touches each entity once, so caching what it writes would only evict the working set.
+        if (!loadPhase) {
+            if (PrimitiveDataService.mergeUnchanged(entityBytes, mergedEntityBytes)) {
+                // New, or nothing to merge: the entity as given is what a read would decode.
+                cache(entity, entityBytes.length);
+            } else {
+                cache(EntityRecordFactory.make(mergedEntityBytes), mergedEntityBytes.length);
+            }
+        }
+        // A load writes too many entities to track each one, so every derived value is revalidated instead.
+        if (loadPhase) {
+            writeSequences.advanceAll();
+        } else {
+            advanceWriteSequences(entity);
+        }
+        if (entity instanceof SemanticEntity semanticEntity && semanticEntity.patternNid() == DESCRIPTION_PATTERN.nid()) {
+            // After the sequence advances; see recordDefaultText.
+            caches().defaultTexts.forget(semanticEntity.referencedComponentNid());
+            caches().strings.invalidate(semanticEntity.referencedComponentNid());
+        }
         if (dispatch) {
             processor.dispatch(entity.nid());
             if (entity instanceof SemanticEntity semanticEntity) {
@@ -240,6 +402,25 @@ private void putEntity(Entity entity, DataActivity activity, boolean dispatch) {
         }
     }
 
+    /**
+     * Advances the write sequence of the entity and of each component up its chain of referenced components,
+     * since a semantic such as a dialect acceptability may change what is derived for the concept it
+     * ultimately describes. Called after the merge, so that a value computed at the new sequence reflects it.
+     */
+    private void advanceWriteSequences(Entity entity) {
+        writeSequences.advance(entity.nid());
+        Entity chained = entity;
+        while (chained instanceof SemanticEntity semanticEntity) {
+            writeSequences.advance(semanticEntity.referencedComponentNid());
+            chained = getEntityFast(semanticEntity.referencedComponentNid());
+        }
+    }
+
+    @Override
+    public long writeSequence(int nid) {
+        return writeSequences.get(nid);
+    }
+
     @Override
     public void putStamp(StampEntity stampEntity) {
         putEntity(stampEntity);
@@ -255,17 +436,17 @@ public void invalidateCaches(Entity entity) {
                 switch (parent) {
                     case ConceptEntity conceptEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(conceptEntity.nid());
+                        caches().strings.invalidate(conceptEntity.nid());
                     }
                     case PatternEntity patternEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(patternEntity.nid());
+                        caches().strings.invalidate(patternEntity.nid());
                     }
                     case SemanticEntity semantic -> {
                         // If semantic is a dialect, might invalidate preferred description,
                         // so need to go up to concept or pattern to invalidate strings in cache.
                         parent = getEntityFast(semantic.referencedComponentNid());
-                        STRING_CACHE.invalidate(semantic.nid());
+                        caches().strings.invalidate(semantic.nid());
                     }
                     default -> throw new IllegalStateException("Unexpected value: " + parent);
                 }
@@ -275,10 +456,11 @@ public void invalidateCaches(Entity entity) {
 
     @Override
     public void invalidateCaches(int... nids) {
+        Caches current = caches();
         for (int nid : nids) {
-            STRING_CACHE.invalidate(nid);
-            ENTITY_CACHE.invalidate(nid);
-            STAMP_CACHE.invalidate(nid);
+            current.strings.invalidate(nid);
+            current.entities.invalidate(nid);
+            current.stamps.invalidate(nid);
         }
     }
 
@@ -319,8 +501,15 @@ public int[] semanticNidsForComponentOfPattern(int componentNid, int patternNid)
 
     @Override
     public void notifyRefreshRequired(Transaction transaction) {
+        // Committing or canceling changes no entity bytes, only which versions are latest, so no cache needs
+        // to be touched; advancing the write sequences revalidates what calculators derived from them.
         transaction.forEachComponentInTransaction(nid -> {
-            Entity.get(nid).ifPresent(entity -> invalidateCaches(entity));
+            Entity entity = getEntityFast(nid);
+            if (entity != null) {
+                advanceWriteSequences(entity);
+            } else {
+                writeSequences.advance(nid);
+            }
             this.processor.dispatch(nid);
         });
     }
@@ -366,14 +555,98 @@ public <T extends Chronology<V>, V extends Version> void putChronology(T chronol
         }
     }
 
+    private static void cache(Entity entity, int byteLength) {
+        if (entity instanceof StampEntity stamp) {
+            caches().stamps.put(stamp.nid(), stamp);
+        } else {
+            caches().entities.put(entity.nid(), new CachedEntity(entity, byteLength));
+        }
+    }
+
+    private static Caches caches() {
+        Caches current = caches;
+        if (current == null) {
+            synchronized (EntityProvider.class) {
+                current = caches;
+                if (current == null) {
+                    current = new Caches();
+                    caches = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * An entity with the length of its serialized form, which is its weight in the entity cache.
+     */
+    private record CachedEntity(Entity entity, int byteLength) {
+    }
+
+    /**
+     * The provider's caches, sized from {@link EntityCacheKeys} when first used after a cache reset.
+     */
+    private static final class Caches {
+        final Cache<Integer, String> strings;
+        final Cache<Integer, CachedEntity> entities;
+        final StampArrayCache stamps = new StampArrayCache();
+        final DefaultTextIndex defaultTexts = new DefaultTextIndex();
+        final long entityCacheMaxBytes;
+
+        Caches() {
+            boolean recordStats = ServiceProperties.get(EntityCacheKeys.RECORD_STATS, Boolean.TRUE);
+            long stringCacheMaxBytes = ServiceProperties.get(EntityCacheKeys.STRING_CACHE_MAX_BYTES,
+                    DEFAULT_STRING_CACHE_MAX_BYTES);
+            this.entityCacheMaxBytes = ServiceProperties.get(EntityCacheKeys.ENTITY_CACHE_MAX_BYTES,
+                    DEFAULT_ENTITY_CACHE_MAX_BYTES);
+            Caffeine<Object, Object> stringCacheBuilder = Caffeine.newBuilder().maximumWeight(stringCacheMaxBytes);
+            Caffeine<Object, Object> entityCacheBuilder = Caffeine.newBuilder().maximumWeight(entityCacheMaxBytes);
+            if (recordStats) {
+                stringCacheBuilder.recordStats();
+                entityCacheBuilder.recordStats();
+            }
+            this.strings = stringCacheBuilder.weigher((Integer nid, String text) -> 2 * text.length()).build();
+            this.entities = entityCacheBuilder.weigher((Integer nid, CachedEntity cached) -> cached.byteLength()).build();
+            LOG.info("Entity cache bounded to {} bytes, text cache to {} bytes", entityCacheMaxBytes, stringCacheMaxBytes);
+        }
+
+        void invalidateAll() {
+            strings.invalidateAll();
+            entities.invalidateAll();
+            stamps.invalidateAll();
+        }
+
+        List<CacheStatistics> statistics() {
+            return List.of(statistics("entity", entities), statistics("text", strings), stamps.statistics("stamp"));
+        }
+
+        private static CacheStatistics statistics(String name, Cache<Integer, ?> cache) {
+            CacheStats stats = cache.stats();
+            long estimatedSize = cache.estimatedSize();
+            var eviction = cache.policy().eviction();
+            return new CacheStatistics(name, stats.hitCount(), stats.missCount(), stats.evictionCount(), estimatedSize,
+                    eviction.map(policy -> policy.weightedSize().orElse(estimatedSize)).orElse(estimatedSize),
+                    eviction.map(policy -> policy.getMaximum()).orElse(Long.MAX_VALUE));
+        }
+    }
+
     public static class CacheProvider implements CachingService {
 
         @Override
         public void reset() {
             LOG.info("Resetting Entity Caches");
-            STRING_CACHE.invalidateAll();
-            ENTITY_CACHE.invalidateAll();
-            STAMP_CACHE.invalidateAll();
+            synchronized (EntityProvider.class) {
+                if (caches != null) {
+                    caches.invalidateAll();
+                }
+                // Dropped so that the next use picks up the configured sizes.
+                caches = null;
+            }
+        }
+
+        @Override
+        public List<CacheStatistics> statistics() {
+            return caches().statistics();
         }
     }
 
@@ -387,6 +660,16 @@ public void removeSubscriber(Subscriber<Integer> subscriber) {
         this.processor.removeSubscriber(subscriber);
     }
 
+    @Override
+    public long writeGeneration() {
+        return this.processor.writeGeneration();
+    }
+
+    @Override
+    public void deliverPendingChanges() {
+        this.processor.deliverPending();
+    }
+
     @Override
     public void erase(Entity entity) {
         if (PrimitiveData.get() instanceof PrimitiveDataRepair primitiveDataRepair) {
@@ -525,6 +808,7 @@ public void beginLoadPhase() {
     @Override
     public void endLoadPhase() {
         loadPhase = false;
+        writeSequences.advanceAll();
         processor.dispatch(Integer.MIN_VALUE);
         // Now we build the AnalyzingSuggester Index
         try {
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dense nid-indexed table of the write sequence at which each component, or a semantic chained to it, last
+ * changed. A value derived from a component is current while the component's sequence is the one read before
+ * the value was computed. Pages of {@value #PAGE_SIZE} nids are only allocated where components have been
+ * written; elsewhere the sequence is the floor set by the last {@link #advanceAll()}.
+ */
+final class NidWriteSequences {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final NidPageTable<AtomicLongArray> pages = new NidPageTable<>(PAGE_BITS, AtomicLongArray[]::new,
+            () -> new AtomicLongArray(PAGE_SIZE));
+
+    long get(int nid) {
+        long currentFloor = floor.get();
+        AtomicLongArray page = pages.page(nid);
+        return page == null ? currentFloor : Math.max(page.get(pages.slot(nid)), currentFloor);
+    }
+
+    void advance(int nid) {
+        pages.pageOrCreate(nid).accumulateAndGet(pages.slot(nid), sequence.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Advances the sequence of every nid at once, without allocating pages.
+     */
+    void advanceAll() {
+        floor.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.entity;
+
+import dev.ikm.tinkar.collection.NidPageTable;
+import dev.ikm.tinkar.common.service.CacheStatistics;
+import dev.ikm.tinkar.entity.StampEntity;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Dense nid-indexed cache of stamp entities. Stamps are few compared to other entities and are read on every
+ * latest version computation, so they are kept in arrays rather than competing with other entities for room
+ * in a hashed cache. Pages of {@value #PAGE_SIZE} nids are only allocated where stamps exist.
+ */
+final class StampArrayCache {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final NidPageTable<AtomicReferenceArray<StampEntity>> pages = new NidPageTable<>(PAGE_BITS,
+            AtomicReferenceArray[]::new, () -> new AtomicReferenceArray<>(PAGE_SIZE));
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * @return the cached stamp, or null, without counting a hit or miss
+     */
+    StampEntity getIfPresent(int nid) {
+        AtomicReferenceArray<StampEntity> page = pages.page(nid);
+        return page == null ? null : page.get(pages.slot(nid));
+    }
+
+    StampEntity get(int nid, IntFunction<StampEntity> loader) {
+        StampEntity stamp = getIfPresent(nid);
+        if (stamp != null) {
+            hitCount.increment();
+            return stamp;
+        }
+        missCount.increment();
+        stamp = loader.apply(nid);
+        return stamp == null ? null : putIfAbsent(nid, stamp);
+    }
+
+    /**
+     * Caches a stamp read from storage unless a writer has cached one since the read, which is newer.
+     *
+     * @return the cached stamp
+     */
+    StampEntity putIfAbsent(int nid, StampEntity stamp) {
+        AtomicReferenceArray<StampEntity> page = pages.pageOrCreate(nid);
+        int slot = pages.slot(nid);
+        while (!page.compareAndSet(slot, null, stamp)) {
+            StampEntity cached = page.get(slot);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        size.increment();
+        return stamp;
+    }
+
+    /**
+     * Caches a stamp that was just written, replacing any cached one.
+     */
+    void put(int nid, StampEntity stamp) {
+        if (pages.pageOrCreate(nid).getAndSet(pages.slot(nid), stamp) == null) {
+            size.increment();
+        }
+    }
+
+    void invalidate(int nid) {
+        AtomicReferenceArray<StampEntity> page = pages.page(nid);
+        if (page != null && page.getAndSet(pages.slot(nid), null) != null) {
+            size.decrement();
+        }
+    }
+
+    void invalidateAll() {
+        pages.clear();
+        size.reset();
+    }
+
+    CacheStatistics statistics(String name) {
+        long entries = size.sum();
+        return new CacheStatistics(name, hitCount.sum(), missCount.sum(), 0, entries, entries, Long.MAX_VALUE);
+    }
+}
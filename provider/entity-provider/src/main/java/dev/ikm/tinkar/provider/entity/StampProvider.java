@@ -79,30 +79,36 @@ public void processBytesForType(FieldDataType componentType, byte[] bytes) {
     }
 
     public IntIdSet stampNids() {
+        EntityService.get().deliverPendingChanges();
         return IntIds.set.of(stampNids.stream().mapToInt(wrappedPath -> (int) wrappedPath).toArray());
     }
 
     public ImmutableLongList timesInUse() {
+        EntityService.get().deliverPendingChanges();
         return LongLists.immutable.of(times.stream().mapToLong(wrappedTime -> wrappedTime.longValue()).toArray());
     }
 
     @Override
     public IntIdSet getAuthorNidsInUse() {
+        EntityService.get().deliverPendingChanges();
         return IntIds.set.of(authors, nid -> nid);
     }
 
     @Override
     public IntIdSet getModuleNidsInUse() {
+        EntityService.get().deliverPendingChanges();
         return IntIds.set.of(modules, nid -> nid);
     }
 
     @Override
     public IntIdSet getPathNidsInUse() {
+        EntityService.get().deliverPendingChanges();
         return IntIds.set.of(paths, nid -> nid);
     }
 
     @Override
     public ImmutableLongList getTimesInUse() {
+        EntityService.get().deliverPendingChanges();
         return LongLists.immutable.ofAll(times);
     }
 
@@ -32,10 +32,13 @@
     requires com.github.benmanes.caffeine;
     requires org.eclipse.collections.api;
     requires org.eclipse.collections.impl;
+    requires dev.ikm.tinkar.collection;
     requires dev.ikm.tinkar.common;
     requires dev.ikm.tinkar.provider.search;
     requires org.slf4j;
 
+    exports dev.ikm.tinkar.provider.entity;
+
     provides CachingService with EntityProvider.CacheProvider;
     provides DefaultDescriptionForNidService with DefaultDescriptionForNidServiceFactory;
     provides EntityService with EntityServiceFactory;
@@ -161,10 +161,11 @@ public static List<PublicId> childrenOf(PublicId parentConceptId) {
      */
     public static List<PublicId> childrenOf(NavigationCalculator navCalc, PublicId parentConceptId) {
         List<PublicId> childIds = new ArrayList<>();
-        int[] childNidList = navCalc.childrenOf(EntityService.get().nidForPublicId(parentConceptId)).toArray();
-        for (int childNid : childNidList) {
-            EntityService.get().getEntity(childNid).ifPresent((entity) -> childIds.add(entity.publicId()));
-        }
+        EntityService.get().forEachEntity(navCalc.childrenOf(EntityService.get().nidForPublicId(parentConceptId)), (entity) -> {
+            if (!entity.canceled()) {
+                childIds.add(entity.publicId());
+            }
+        });
         return childIds;
     }
 
@@ -192,10 +193,11 @@ public static List<PublicId> descendantsOf(PublicId ancestorConceptId) {
      */
     public static List<PublicId> descendantsOf(NavigationCalculator navCalc, PublicId ancestorConceptId) {
         List<PublicId> descendantIds = new ArrayList<>();
-        int[] descendantNidList = navCalc.descendentsOf(EntityService.get().nidForPublicId(ancestorConceptId)).toArray();
-        for (int descendantNid : descendantNidList) {
-            EntityService.get().getEntity(descendantNid).ifPresent((entity) -> descendantIds.add(entity.publicId()));
-        }
+        EntityService.get().forEachEntity(navCalc.descendentsOf(EntityService.get().nidForPublicId(ancestorConceptId)), (entity) -> {
+            if (!entity.canceled()) {
+                descendantIds.add(entity.publicId());
+            }
+        });
         return descendantIds;
     }
 
@@ -215,22 +217,27 @@ public static List<String> descriptionsOf(List<PublicId> conceptIds) {
      * using a supplied NavigationCalculator
      * <p>
      * Provided as an ease-of-use method to retrieve FQNs for multiple concepts at once
-     * using the {@link NavigationCalculator#getFullyQualifiedNameText(int)} method
+     * using the {@link NavigationCalculator#getFullyQualifiedNameTexts(int[], String[])} method
      *
      * @param   navCalc NavigationCalculator to calculate FQNs
      * @param   conceptIds List of PublicIds for concepts with FQNs to return
      * @return  List of FQN Strings with indexes matching the supplied List of PublicIds
      */
     public static List<String> descriptionsOf(NavigationCalculator navCalc, List<PublicId> conceptIds) {
-        List<String> names = new ArrayList<>();
-        for (PublicId pid : conceptIds) {
-            navCalc.getFullyQualifiedNameText(EntityService.get().nidForPublicId(pid))
-                    .ifPresentOrElse(names::add,
-                        () -> {
-                            LOG.warn("FQN not defined for " + pid.idString());
-                            names.add("");
-                        }
-                    );
+        int[] conceptNids = new int[conceptIds.size()];
+        for (int i = 0; i < conceptNids.length; i++) {
+            conceptNids[i] = EntityService.get().nidForPublicId(conceptIds.get(i));
+        }
+        String[] fullyQualifiedNames = new String[conceptNids.length];
+        navCalc.getFullyQualifiedNameTexts(conceptNids, fullyQualifiedNames);
+        List<String> names = new ArrayList<>(conceptNids.length);
+        for (int i = 0; i < conceptNids.length; i++) {
+            if (fullyQualifiedNames[i] == null) {
+                LOG.warn("FQN not defined for " + conceptIds.get(i).idString());
+                names.add("");
+            } else {
+                names.add(fullyQualifiedNames[i]);
+            }
         }
         return names;
     }